@@ -0,0 +1,72 @@
+package com.example.e_learn.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Background pool for CPU-heavy media jobs (transcoding, packaging), kept
+ * small so they cannot starve request handling.
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+    @Value("${media.jobs.threads:2}")
+    private int threads;
+
+    @Value("${media.jobs.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${transcription.worker.threads:2}")
+    private int transcriptionThreads;
+
+    @Value("${asr.parallelism:4}")
+    private int asrParallelism;
+
+    @Bean
+    public ThreadPoolTaskExecutor mediaTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs claimed transcription jobs. Workers only claim as many jobs as there
+     * are free threads, so nothing waits in the queue holding a lease.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor transcriptionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(transcriptionThreads);
+        executor.setMaxPoolSize(transcriptionThreads);
+        executor.setQueueCapacity(transcriptionThreads);
+        executor.setThreadNamePrefix("transcription-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Segment requests to the ASR service. Shared by all running jobs, so the
+     * pool size is the number of concurrent ASR streams this node opens.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor asrSegmentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asrParallelism);
+        executor.setMaxPoolSize(asrParallelism);
+        executor.setThreadNamePrefix("asr-segment-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
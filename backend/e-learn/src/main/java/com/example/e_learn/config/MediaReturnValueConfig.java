@@ -0,0 +1,137 @@
+package com.example.e_learn.config;
+
+import com.example.e_learn.service.MediaBody;
+import com.example.e_learn.service.MediaBodyWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBodyReturnValueHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Media endpoints return {@code ResponseEntity<?>} so they can answer with
+ * either a streamed body or an error/redirect. Spring only picks the streaming
+ * handler from the declared generic type, so ResponseEntity return values are
+ * routed here and dispatched on the actual body instead.
+ * <p>
+ * {@link MediaBody} responses are written with non-blocking servlet I/O: the
+ * request thread is released immediately and no thread is held while a slow
+ * client drains the socket. Set {@code media.stream.non-blocking=false} to
+ * write them on the stream executor with blocking I/O instead.
+ * <p>
+ * A non-blocking write has no overall deadline, since playbacks can run for
+ * hours; instead it fails once the client has taken no bytes for
+ * {@code media.stream.write-idle-timeout-ms}.
+ */
+@Configuration
+public class MediaReturnValueConfig {
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    @Qualifier("mediaStreamExecutor")
+    private TaskExecutor mediaStreamExecutor;
+
+    @Value("${media.stream.non-blocking:true}")
+    private boolean nonBlocking;
+
+    @Value("${media.stream.write-idle-timeout-ms:60000}")
+    private long writeIdleTimeoutMs;
+
+    // Private rather than a bean so @Scheduled does not pick it up
+    private final ScheduledExecutorService idleWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "media-write-idle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void registerHandler() {
+        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(handlerAdapter.getReturnValueHandlers());
+        for (int i = 0; i < handlers.size(); i++) {
+            HandlerMethodReturnValueHandler handler = handlers.get(i);
+            if (handler instanceof ResponseEntityReturnValueHandler || handler instanceof HttpEntityMethodProcessor) {
+                handlers.set(i, new MediaResponseHandler(handler));
+                break;
+            }
+        }
+        handlerAdapter.setReturnValueHandlers(handlers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        idleWatchdog.shutdownNow();
+    }
+
+    class MediaResponseHandler implements HandlerMethodReturnValueHandler {
+        private final HandlerMethodReturnValueHandler entityHandler;
+        private final StreamingResponseBodyReturnValueHandler streamingHandler = new StreamingResponseBodyReturnValueHandler();
+
+        MediaResponseHandler(HandlerMethodReturnValueHandler entityHandler) {
+            this.entityHandler = entityHandler;
+        }
+
+        @Override
+        public boolean supportsReturnType(MethodParameter returnType) {
+            return entityHandler.supportsReturnType(returnType);
+        }
+
+        @Override
+        public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                      ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+            if (returnValue instanceof ResponseEntity<?> entity && entity.getBody() instanceof MediaBody body && nonBlocking) {
+                writeNonBlocking(entity, body, mavContainer, webRequest);
+            } else if (returnValue instanceof ResponseEntity<?> entity && entity.getBody() instanceof StreamingResponseBody) {
+                streamingHandler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+            } else {
+                entityHandler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+            }
+        }
+
+        private void writeNonBlocking(ResponseEntity<?> entity, MediaBody body,
+                                      ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+            HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+            ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(response);
+            outputMessage.setStatusCode(entity.getStatusCode());
+            outputMessage.getHeaders().putAll(entity.getHeaders());
+            // Copies the headers onto the servlet response
+            ServletOutputStream out = (ServletOutputStream) outputMessage.getBody();
+
+            // Completing the deferred result ends the async request once the body is written.
+            // 0 lifts the overall async timeout; the idle check below bounds stalled clients.
+            DeferredResult<Object> done = new DeferredResult<>(0L);
+            WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(done, mavContainer);
+            MediaBodyWriter writer = new MediaBodyWriter(body, out, mediaStreamExecutor, failure -> done.setResult(null));
+            long period = Math.max(writeIdleTimeoutMs / 4, 100);
+            ScheduledFuture<?> idleCheck = idleWatchdog.scheduleWithFixedDelay(
+                () -> writer.expireIfIdle(writeIdleTimeoutMs), period, period, TimeUnit.MILLISECONDS);
+            done.onCompletion(() -> idleCheck.cancel(false));
+            writer.start();
+        }
+    }
+}
@@ -1,25 +1,63 @@
 package com.example.e_learn.config;
 
+import com.example.e_learn.service.MultipartMinioClient;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class MinioConfig {
     @Value("${minio.url:http://localhost:9000}")
     private String minioUrl;
+    @Value("${minio.publicUrl:http://localhost:9000}")
+    private String publicUrl;
+    @Value("${minio.region:us-east-1}")
+    private String region;
     @Value("${minio.accessKey:minioadmin}")
     private String accessKey;
     @Value("${minio.secretKey:minioadmin}")
     private String secretKey;
 
+    /**
+     * Client on the internal endpoint, also signing URLs for backend services
+     * (the fixed region lets it sign without a bucket-location lookup).
+     */
     @Bean
+    @Primary
     public MinioClient minioClient() {
         return MinioClient.builder()
                 .endpoint(minioUrl)
+                .region(region)
+                .credentials(accessKey, secretKey)
+                .build();
+    }
+
+    /**
+     * Client used only to sign URLs handed to browsers. Presigned URLs sign the
+     * Host header, so they must be generated against the public endpoint rather
+     * than rewritten afterwards; the fixed region avoids a bucket-location
+     * lookup against a host the backend may not be able to reach.
+     */
+    @Bean
+    public MinioClient publicMinioClient() {
+        return MinioClient.builder()
+                .endpoint(publicUrl)
+                .region(region)
                 .credentials(accessKey, secretKey)
                 .build();
     }
-}
 
+    /**
+     * Async client for streamed multipart uploads (internal endpoint).
+     */
+    @Bean
+    public MultipartMinioClient multipartMinioClient() {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(minioUrl)
+                .credentials(accessKey, secretKey)
+                .build());
+    }
+}
@@ -40,9 +40,13 @@ public class SecurityConfig {
                     "/swagger-ui.html",
                     "/v3/api-docs/**"
                 ).permitAll()
-                .requestMatchers(new RegexRequestMatcher("/api/lessons/\\d+/stream", null)).permitAll()
-                .requestMatchers(new RegexRequestMatcher("/api/videos/\\d+/stream", null)).permitAll()
-                .requestMatchers(new RegexRequestMatcher("/api/documents/\\d+/download", null)).permitAll()
+                // RegexRequestMatcher also sees the query string (?delivery=, ?inline=)
+                .requestMatchers(new RegexRequestMatcher("/api/lessons/\\d+/stream(\\?.*)?", null)).permitAll()
+                .requestMatchers(new RegexRequestMatcher("/api/videos/\\d+/stream(\\?.*)?", null)).permitAll()
+                .requestMatchers(new RegexRequestMatcher("/api/videos/\\d+/master\\.m3u8(\\?.*)?", null)).permitAll()
+                .requestMatchers(new RegexRequestMatcher("/api/videos/\\d+/hls/[^?]+(\\?.*)?", null)).permitAll()
+                .requestMatchers(new RegexRequestMatcher("/api/videos/\\d+/thumbnails(/[^?]+)?(\\?.*)?", "GET")).permitAll()
+                .requestMatchers(new RegexRequestMatcher("/api/documents/\\d+/download(\\?.*)?", null)).permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
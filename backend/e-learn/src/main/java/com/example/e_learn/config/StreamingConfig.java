@@ -0,0 +1,66 @@
+package com.example.e_learn.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs StreamingResponseBody writes on a dedicated pool so long media
+ * transfers do not hold Tomcat request threads.
+ */
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+    @Value("${media.stream.max-concurrent:256}")
+    private int maxConcurrent;
+
+    @Value("${media.stream.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${media.stream.async-timeout-ms:3600000}")
+    private long asyncTimeoutMs;
+
+    @Value("${media.readahead.threads:8}")
+    private int prefetchThreads;
+
+    @Value("${media.readahead.max-pending:32}")
+    private int prefetchPending;
+
+    @Bean
+    public ThreadPoolTaskExecutor mediaStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("media-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Background block fetches for sequential readers. The bounded queue caps
+     * prefetch memory and origin load; excess prefetches are rejected and dropped.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mediaPrefetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(prefetchThreads);
+        executor.setMaxPoolSize(prefetchThreads);
+        executor.setQueueCapacity(prefetchPending);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("media-prefetch-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mediaStreamExecutor());
+        // Bounds blocking StreamingResponseBody writes; Tomcat's 30s default would cut long playbacks.
+        // Non-blocking media writes use a write-idle timeout instead, SSE its own emitter timeout.
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+}
@@ -1,21 +1,28 @@
 package com.example.e_learn.controller;
 
 import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.TranscriptionJob;
 import com.example.e_learn.service.LessonService;
+import com.example.e_learn.service.MediaStreamService;
 import com.example.e_learn.service.MinioService;
-import com.example.e_learn.service.TranscriptService;
+import com.example.e_learn.service.ObjectMetadata;
+import com.example.e_learn.service.UploadedObject;
+import com.example.e_learn.service.TranscriptEventService;
+import com.example.e_learn.service.TranscriptStore;
+import com.example.e_learn.service.TranscriptionJobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
 import java.util.List;
-import java.io.InputStream;
+import java.util.Map;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import com.example.e_learn.service.UserService;
@@ -30,7 +37,16 @@ public class LessonController {
     private MinioService minioService;
 
     @Autowired
-    private TranscriptService transcriptService;
+    private MediaStreamService mediaStreamService;
+
+    @Autowired
+    private TranscriptionJobService transcriptionJobService;
+
+    @Autowired
+    private TranscriptEventService transcriptEventService;
+
+    @Autowired
+    private TranscriptStore transcriptStore;
 
     @Autowired
     private UserService userService;
@@ -60,11 +76,17 @@ public class LessonController {
             .map(lesson -> {
                 lesson.setTitle(lessonUpdate.getTitle());
                 lesson.setDescription(lessonUpdate.getDescription());
-                lesson.setVideoUrl(lessonUpdate.getVideoUrl());
-                lesson.setTranscript(lessonUpdate.getTranscript());
+                // Clients echo back a signed URL of the current video; only a different object is a change
+                String currentKey = lesson.getVideoMedia() != null ? lesson.getVideoMedia().getObjectKey() : null;
+                boolean sameObject = currentKey != null
+                    && currentKey.equals(minioService.objectKeyFor(lessonUpdate.getVideoUrl()));
+                if (!sameObject && !java.util.Objects.equals(lesson.getVideoUrl(), lessonUpdate.getVideoUrl())) {
+                    // metadata belonged to the previous object
+                    lessonService.replaceVideo(lesson, lessonUpdate.getVideoUrl(), null);
+                }
                 lesson.setDurationSec(lessonUpdate.getDurationSec());
                 lesson.setSpecialization(lessonUpdate.getSpecialization());
-                return ResponseEntity.ok(lessonService.saveLesson(lesson));
+                return ResponseEntity.ok(lessonService.updateLesson(lesson));
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -76,9 +98,8 @@ public class LessonController {
             return lessonService.getLesson(id)
                 .map(lesson -> {
                     try {
-                        String videoUrl = minioService.uploadVideo(file);
-                        lesson.setVideoUrl(videoUrl);
-                        lessonService.saveLesson(lesson);
+                        UploadedObject uploaded = minioService.uploadVideo(file);
+                        replaceVideo(lesson, uploaded);
                         return ResponseEntity.ok(lesson);
                     } catch (Exception e) {
                         return ResponseEntity.internalServerError().build();
@@ -90,22 +111,80 @@ public class LessonController {
         }
     }
 
+    /**
+     * Raw-body variant of the video upload, streamed into MinIO without spooling to disk.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/{id}/video/stream-upload")
+    public ResponseEntity<?> streamUploadVideo(@PathVariable Long id, @RequestParam("filename") String filename,
+                                               HttpServletRequest request) {
+        Lesson lesson = lessonService.getLesson(id).orElse(null);
+        if (lesson == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            UploadedObject uploaded = minioService.uploadVideoStream(request.getInputStream(), filename, request.getContentType());
+            replaceVideo(lesson, uploaded);
+            return ResponseEntity.ok(lesson);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private void replaceVideo(Lesson lesson, UploadedObject uploaded) {
+        try {
+            lessonService.replaceVideo(lesson, uploaded.url(), uploaded.toMediaObject());
+        } catch (RuntimeException e) {
+            // The lesson still points at its previous video; drop the reference the upload took
+            minioService.discard(uploaded);
+            throw e;
+        }
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/{id}/transcript")
-    public ResponseEntity<?> triggerTranscript(@PathVariable Long id) {
+    public ResponseEntity<?> triggerTranscript(@PathVariable Long id,
+                                               @RequestParam(defaultValue = "false") boolean refresh) {
         return lessonService.getLesson(id)
             .map(lesson -> {
                 if (lesson.getVideoUrl() == null) {
                     return ResponseEntity.badRequest().build();
                 }
-                String transcript = transcriptService.transcribeVideo(lesson.getVideoUrl());
-                lesson.setTranscript(transcript);
-                lessonService.saveLesson(lesson);
-                return ResponseEntity.ok(lesson);
+                // Transcription runs on the job queue; poll the job for the result. Media
+                // transcribed before is answered from the cache (200) unless ?refresh=true
+                TranscriptionJob job = transcriptionJobService.enqueue(TranscriptionJobService.LESSON, id, refresh);
+                ResponseEntity.BodyBuilder response = TranscriptionJobService.SUCCEEDED.equals(job.getStatus())
+                    ? ResponseEntity.ok() : ResponseEntity.accepted();
+                return response
+                    .location(URI.create("/api/transcription-jobs/" + job.getId()))
+                    .body(job);
             })
             .orElse(ResponseEntity.notFound().build());
     }
 
+    // Word-level transcript, optionally only the words between ?from= and ?to= (seconds)
+    @GetMapping("/{id}/transcript")
+    public ResponseEntity<?> getTranscript(@PathVariable Long id,
+                                           @RequestParam(required = false) Double from,
+                                           @RequestParam(required = false) Double to) {
+        return lessonService.getLesson(id)
+            .<ResponseEntity<?>>map(lesson -> transcriptStore.window(TranscriptionJobService.LESSON, id, lesson.getTranscript(), from, to))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Live progress and partial transcript of the latest transcription (Server-Sent Events)
+    @GetMapping(value = "/{id}/transcript/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> transcriptEvents(@PathVariable Long id) {
+        if (lessonService.getLesson(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CACHE_CONTROL, "no-store")
+            .body(transcriptEventService.subscribe(TranscriptionJobService.LESSON, id));
+    }
+
     @PostMapping("/{id}/watched")
     public ResponseEntity<Void> markAsWatched(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
         if (userDetails == null) return ResponseEntity.status(401).build();
@@ -150,8 +229,8 @@ public class LessonController {
         HttpHeaders headers = new HttpHeaders();
         headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
         headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, OPTIONS");
-        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, Content-Type, Authorization");
-        headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges");
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, If-Range, If-None-Match, If-Modified-Since, Content-Type, Authorization");
+        headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges, ETag, Last-Modified");
         headers.set(HttpHeaders.ACCESS_CONTROL_MAX_AGE, "3600");
         return ResponseEntity.ok().headers(headers).build();
     }
@@ -160,14 +239,7 @@ public class LessonController {
     @GetMapping("/{id}/stream")
     public ResponseEntity<?> streamVideo(
             @PathVariable Long id, 
-            @RequestHeader(value = "Range", required = false) String rangeHeader,
             HttpServletRequest request) {
-        System.out.println("=== VIDEO STREAM REQUEST ===");
-        System.out.println("Lesson ID: " + id);
-        System.out.println("Range header: " + rangeHeader);
-        System.out.println("Request method: " + request.getMethod());
-        System.out.println("Request URI: " + request.getRequestURI());
-        
         return lessonService.getLesson(id)
             .map(lesson -> {
                 try {
@@ -175,91 +247,10 @@ public class LessonController {
                         System.err.println("Lesson " + id + " has no video URL");
                         return ResponseEntity.notFound().build();
                     }
-                    
-                    System.out.println("Video URL: " + lesson.getVideoUrl());
-                    
-                    long fileSize = minioService.getObjectSize(lesson.getVideoUrl());
-                    System.out.println("File size: " + fileSize);
-                    
-                    if (fileSize < 0) {
-                        System.err.println("Could not determine file size for lesson " + id);
-                        // Try to stream anyway without size
-                        fileSize = 0;
-                    }
-                    
-                    HttpHeaders headers = new HttpHeaders();
-                    // Set content type - try to detect from filename, default to mp4
-                    String contentType = "video/mp4";
-                    if (lesson.getVideoUrl().toLowerCase().endsWith(".webm")) {
-                        contentType = "video/webm";
-                    } else if (lesson.getVideoUrl().toLowerCase().endsWith(".ogg")) {
-                        contentType = "video/ogg";
-                    }
-                    headers.setContentType(MediaType.parseMediaType(contentType));
-                    
-                    // CORS headers for video streaming
-                    headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-                    headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, OPTIONS");
-                    headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, Content-Type, Authorization");
-                    headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges");
-                    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
-                    headers.set(HttpHeaders.CACHE_CONTROL, "public, max-age=3600");
-                    
-                    InputStream videoStream;
-                    long start = 0;
-                    long end = fileSize > 0 ? fileSize - 1 : 0;
-                    long contentLength = fileSize;
-                    
-                    // Parse Range header if present
-                    if (rangeHeader != null && !rangeHeader.isBlank() && rangeHeader.startsWith("bytes=")) {
-                        String range = rangeHeader.substring(6);
-                        String[] ranges = range.split("-");
-                        try {
-                            if (ranges.length > 0 && !ranges[0].isEmpty()) {
-                                start = Long.parseLong(ranges[0]);
-                            }
-                            if (ranges.length > 1 && !ranges[1].isEmpty()) {
-                                end = Long.parseLong(ranges[1]);
-                            } else if (fileSize > 0) {
-                                // If only start is provided, end is fileSize - 1
-                                end = fileSize - 1;
-                            }
-                            if (fileSize > 0 && end >= fileSize) {
-                                end = fileSize - 1;
-                            }
-                            if (start < 0) start = 0;
-                            if (end < start) end = start;
-                            
-                            contentLength = end - start + 1;
-                            
-                            System.out.println("Range request: bytes " + start + "-" + end + "/" + fileSize);
-                            
-                            // Use range request
-                            videoStream = minioService.getVideoStream(lesson.getVideoUrl(), start, contentLength);
-                            headers.set(HttpHeaders.CONTENT_RANGE, 
-                                String.format("bytes %d-%d/%d", start, end, fileSize > 0 ? fileSize : "*"));
-                            headers.setContentLength(contentLength);
-                            
-                            System.out.println("Returning 206 Partial Content");
-                            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                                .headers(headers)
-                                .body(new InputStreamResource(videoStream));
-                        } catch (NumberFormatException e) {
-                            System.err.println("Invalid range header: " + rangeHeader + " - " + e.getMessage());
-                            // Fall through to full file
-                        }
-                    }
-                    
-                    // Full file request
-                    System.out.println("Full file request");
-                    videoStream = minioService.getVideoStream(lesson.getVideoUrl());
-                    if (fileSize > 0) {
-                        headers.setContentLength(fileSize);
-                    }
-                    System.out.println("Returning 200 OK with full video");
-                    return ResponseEntity.ok()
-                        .headers(headers)
-                        .body(new InputStreamResource(videoStream));
+                    ObjectMetadata meta = minioService.metadataFor(lesson.getVideoMedia(), lesson.getVideoUrl());
+                    HttpHeaders headers = mediaStreamService.mediaHeaders(
+                        MediaStreamService.videoContentType(meta, lesson.getVideoUrl()));
+                    return mediaStreamService.stream(meta, headers, request);
                 } catch (Exception e) {
                     System.err.println("Error streaming video for lesson " + id + ": " + e.getMessage());
                     e.printStackTrace();
@@ -0,0 +1,33 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.service.MediaBlockCache;
+import com.example.e_learn.service.PresignedUrlCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/media")
+@PreAuthorize("hasRole('ADMIN')")
+public class MediaAdminController {
+    @Autowired
+    private MediaBlockCache blockCache;
+
+    @Autowired
+    private PresignedUrlCache urlCache;
+
+    // Hit/miss/eviction counters of the local media block cache
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(blockCache.stats());
+    }
+
+    // Reuse counters of presigned delivery URLs
+    @GetMapping("/url-cache")
+    public ResponseEntity<Map<String, Object>> urlCacheStats() {
+        return ResponseEntity.ok(urlCache.stats());
+    }
+}
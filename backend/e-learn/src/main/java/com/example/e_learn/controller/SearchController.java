@@ -0,0 +1,34 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Search over lessons and transcripts; transcript hits carry the video and
+ * the second to start playing at.
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+    @Autowired
+    private SearchService searchService;
+
+    @Value("${search.max-page-size:50}")
+    private int maxPageSize;
+
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > maxPageSize) {
+            return ResponseEntity.badRequest().body("page must be >= 0 and size between 1 and " + maxPageSize);
+        }
+        return ResponseEntity.ok(searchService.search(query, page, size));
+    }
+}
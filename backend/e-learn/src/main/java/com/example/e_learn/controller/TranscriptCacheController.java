@@ -0,0 +1,30 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.service.TranscriptCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/transcript-cache")
+@PreAuthorize("hasRole('ADMIN')")
+public class TranscriptCacheController {
+    @Autowired
+    private TranscriptCache transcriptCache;
+
+    // Current model version and cached transcripts per model version
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(transcriptCache.stats());
+    }
+
+    // Drop the transcripts of ?model=, or of every model but the current one (after a model upgrade)
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> invalidate(@RequestParam(required = false) String model) {
+        int removed = transcriptCache.invalidate(model);
+        return ResponseEntity.ok(Map.of("removed", removed));
+    }
+}
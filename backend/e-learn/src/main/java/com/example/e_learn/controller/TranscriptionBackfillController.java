@@ -0,0 +1,73 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.dto.CreateBackfillRequest;
+import com.example.e_learn.model.TranscriptionBackfill;
+import com.example.e_learn.service.TranscriptionBackfillService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bulk transcription of videos and lessons with a missing, failed or stale
+ * transcript, fed to the job queue under a concurrency and rate limit.
+ */
+@RestController
+@RequestMapping("/api/admin/transcription-backfills")
+@PreAuthorize("hasRole('ADMIN')")
+public class TranscriptionBackfillController {
+    @Autowired
+    private TranscriptionBackfillService backfillService;
+
+    @PostMapping
+    public ResponseEntity<?> start(@RequestBody(required = false) CreateBackfillRequest request) {
+        return handle(() -> {
+            TranscriptionBackfill run = backfillService.start(request != null ? request : new CreateBackfillRequest());
+            return ResponseEntity.created(URI.create("/api/admin/transcription-backfills/" + run.getId())).body(run);
+        });
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(backfillService.list());
+    }
+
+    // The run and the number of its jobs per status
+    @GetMapping("/{id}")
+    public ResponseEntity<?> progress(@PathVariable Long id) {
+        return backfillService.progress(id)
+            .<ResponseEntity<?>>map(progress -> ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(progress))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<?> pause(@PathVariable Long id) {
+        return handle(() -> ResponseEntity.ok(backfillService.pause(id)));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        return handle(() -> ResponseEntity.ok(backfillService.resume(id)));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        return handle(() -> ResponseEntity.ok(backfillService.cancel(id)));
+    }
+
+    private ResponseEntity<?> handle(Supplier<ResponseEntity<?>> action) {
+        try {
+            return action.get();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.service.TranscriptionJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Status of queued transcriptions, as returned (with a Location header) by the
+ * transcript trigger endpoints of videos and lessons.
+ */
+@RestController
+@RequestMapping("/api/transcription-jobs")
+@PreAuthorize("hasRole('ADMIN')")
+public class TranscriptionJobController {
+    @Autowired
+    private TranscriptionJobService transcriptionJobService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable Long id) {
+        return transcriptionJobService.get(id)
+            .<ResponseEntity<?>>map(job -> ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(job))
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
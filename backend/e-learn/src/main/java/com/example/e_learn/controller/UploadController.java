@@ -0,0 +1,152 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.dto.CreateUploadRequest;
+import com.example.e_learn.model.UploadSession;
+import com.example.e_learn.service.UploadSessionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resumable video uploads. The client creates a session with the total
+ * length, sends the file in chunks with an Upload-Offset header, asks for the
+ * offset with HEAD after a dropped connection, and finalizes once the offset
+ * reaches the length. Finalizing answers 202 while the video is created in
+ * the background; the session is polled until it is COMPLETED with a videoId.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@PreAuthorize("hasRole('ADMIN')")
+public class UploadController {
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @PostMapping
+    public ResponseEntity<?> createUpload(@RequestBody CreateUploadRequest request) {
+        try {
+            UploadSession session = uploadSessionService.create(request);
+            return ResponseEntity.created(URI.create("/api/uploads/" + session.getId()))
+                .header(UPLOAD_OFFSET, "0")
+                .body(describe(session));
+        } catch (ResponseStatusException e) {
+            return error(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to create upload: " + e.getMessage()));
+        }
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> uploadOffset(@PathVariable String id) {
+        return uploadSessionService.get(id)
+            .map(session -> ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffsetBytes()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getTotalBytes()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .<Void>build())
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getUpload(@PathVariable String id) {
+        return uploadSessionService.get(id)
+            .<ResponseEntity<?>>map(session -> ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(describe(session)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Append one chunk (the raw request body) at the given offset.
+     */
+    @RequestMapping(value = "/{id}", method = {RequestMethod.PATCH, RequestMethod.PUT})
+    public ResponseEntity<?> appendChunk(
+            @PathVariable String id,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request) {
+        try {
+            UploadSession session = uploadSessionService.appendChunk(
+                id, offset, request.getContentLengthLong(), request.getInputStream());
+            return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffsetBytes()))
+                .build();
+        } catch (ResponseStatusException e) {
+            return error(e);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Chunk was appended concurrently; check the offset and retry"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to store chunk: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<?> finalizeUpload(@PathVariable String id) {
+        try {
+            UploadSession session = uploadSessionService.finalizeUpload(id);
+            if (UploadSessionService.COMPLETED.equals(session.getStatus())) {
+                return ResponseEntity.ok(describe(session));
+            }
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/uploads/" + session.getId()))
+                .body(describe(session));
+        } catch (ResponseStatusException e) {
+            return error(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to finalize upload: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abortUpload(@PathVariable String id) {
+        try {
+            uploadSessionService.abort(id);
+            return ResponseEntity.noContent().build();
+        } catch (ResponseStatusException e) {
+            return error(e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to abort upload: " + e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> describe(UploadSession session) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", session.getId());
+        body.put("status", session.getStatus());
+        body.put("offset", session.getOffsetBytes());
+        body.put("length", session.getTotalBytes());
+        body.put("parts", session.getPartCount());
+        body.put("maxChunkBytes", uploadSessionService.getMaxChunkBytes());
+        body.put("minChunkBytes", UploadSessionService.MIN_CHUNK_BYTES);
+        if (session.getVideoId() != null) {
+            body.put("videoId", session.getVideoId());
+        }
+        if (session.getError() != null) {
+            body.put("error", session.getError());
+        }
+        return body;
+    }
+
+    private ResponseEntity<?> error(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+    }
+}
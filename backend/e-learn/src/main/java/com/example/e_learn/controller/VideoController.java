@@ -1,22 +1,39 @@
 package com.example.e_learn.controller;
 
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.TranscriptionJob;
 import com.example.e_learn.model.Video;
 import com.example.e_learn.service.VideoService;
+import com.example.e_learn.service.LessonService;
+import com.example.e_learn.service.HlsPackagingService;
+import com.example.e_learn.service.ThumbnailService;
+import com.example.e_learn.service.KeyframeIndex;
+import com.example.e_learn.service.KeyframeIndexService;
+import com.example.e_learn.service.MediaProbe;
+import com.example.e_learn.service.MediaProbeService;
+import com.example.e_learn.service.MediaStreamService;
 import com.example.e_learn.service.MinioService;
-import com.example.e_learn.service.TranscriptService;
+import com.example.e_learn.service.ObjectMetadata;
+import com.example.e_learn.service.UploadedObject;
+import com.example.e_learn.service.TranscriptEventService;
+import com.example.e_learn.service.TranscriptStore;
+import com.example.e_learn.service.TranscriptionJobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.InputStream;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import java.net.URI;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.nio.file.NoSuchFileException;
 
 @RestController
 @RequestMapping("/api/videos")
@@ -24,11 +41,37 @@ public class VideoController {
     @Autowired
     private VideoService videoService;
 
+    @Autowired
+    private LessonService lessonService;
+
     @Autowired
     private MinioService minioService;
 
     @Autowired
-    private TranscriptService transcriptService;
+    private MediaStreamService mediaStreamService;
+
+    @Autowired
+    private TranscriptionJobService transcriptionJobService;
+
+    @Autowired
+    private TranscriptEventService transcriptEventService;
+
+    @Autowired
+    private TranscriptStore transcriptStore;
+
+    @Autowired
+    private HlsPackagingService hlsPackagingService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private MediaProbeService mediaProbeService;
+
+    @Autowired
+    private KeyframeIndexService keyframeIndexService;
+
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]*");
 
     @GetMapping("/lesson/{lessonId}")
     public ResponseEntity<List<Video>> getVideosByLesson(@PathVariable Long lessonId) {
@@ -48,26 +91,40 @@ public class VideoController {
             @PathVariable Long lessonId,
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "title", required = false, defaultValue = "") String title) {
+        if (lessonService.getLesson(lessonId).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Lesson not found: " + lessonId));
+        }
         try {
             // Upload video to MinIO
-            String videoUrl = minioService.uploadVideo(file);
-            
-            // Get existing videos to determine order index
-            List<Video> existingVideos = videoService.getVideosByLessonId(lessonId);
-            int orderIndex = existingVideos.size();
-            
-            // Use filename as title if not provided
-            String videoTitle = title != null && !title.isEmpty() 
-                ? title 
-                : file.getOriginalFilename();
-            
-            // Estimate duration (default 90 seconds, can be improved later)
-            int durationSec = 90;
-            
-            // Create video entity
-            Video video = videoService.createVideoForLesson(lessonId, videoTitle, videoUrl, durationSec, orderIndex);
-            
-            return ResponseEntity.ok(video);
+            UploadedObject uploaded = minioService.uploadVideo(file);
+            return ResponseEntity.ok(createVideo(lessonId, title, file.getOriginalFilename(), uploaded));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to upload video: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Upload with the raw video as the request body (Content-Type video/*),
+     * streamed into MinIO without being spooled to disk like multipart uploads.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/lesson/{lessonId}/stream-upload")
+    public ResponseEntity<?> streamUploadVideo(
+            @PathVariable Long lessonId,
+            @RequestParam("filename") String filename,
+            @RequestParam(value = "title", required = false, defaultValue = "") String title,
+            HttpServletRequest request) {
+        if (lessonService.getLesson(lessonId).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Lesson not found: " + lessonId));
+        }
+        try {
+            UploadedObject uploaded = minioService.uploadVideoStream(request.getInputStream(), filename, request.getContentType());
+            return ResponseEntity.ok(createVideo(lessonId, title, filename, uploaded));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode())
+                .body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -75,6 +132,35 @@ public class VideoController {
         }
     }
 
+    private Video createVideo(Long lessonId, String title, String filename, UploadedObject uploaded) {
+        try {
+            return saveVideo(lessonId, title, filename, uploaded);
+        } catch (RuntimeException e) {
+            // No row took over the reference the upload holds
+            minioService.discard(uploaded);
+            throw e;
+        }
+    }
+
+    private Video saveVideo(Long lessonId, String title, String filename, UploadedObject uploaded) {
+        // Get existing videos to determine order index
+        List<Video> existingVideos = videoService.getVideosByLessonId(lessonId);
+        int orderIndex = existingVideos.size();
+        
+        // Use filename as title if not provided
+        String videoTitle = title != null && !title.isEmpty() 
+            ? title 
+            : filename;
+        
+        // Duration, resolution and codecs come from the container headers (a few KB of range reads)
+        MediaObject media = uploaded.toMediaObject();
+        MediaProbe.MediaInfo probed = mediaProbeService.probe(media);
+        
+        // Create video entity
+        return videoService.createVideoForLesson(
+            lessonId, videoTitle, uploaded.url(), media, probed, orderIndex);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteVideo(@PathVariable Long id) {
@@ -84,46 +170,173 @@ public class VideoController {
 
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/{id}/transcript")
-    public ResponseEntity<?> triggerTranscript(@PathVariable Long id) {
+    public ResponseEntity<?> triggerTranscript(@PathVariable Long id,
+                                               @RequestParam(defaultValue = "false") boolean refresh) {
         return videoService.getVideo(id)
             .map(video -> {
                 if (video.getVideoUrl() == null || video.getVideoUrl().isEmpty()) {
                     return ResponseEntity.badRequest().build();
                 }
-                try {
-                    String transcript = transcriptService.transcribeVideo(video.getVideoUrl());
-                    video.setTranscript(transcript);
-                    videoService.saveVideo(video);
-                    return ResponseEntity.ok(video);
-                } catch (Exception e) {
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-                }
+                // Transcription runs on the job queue; poll the job for the result. Media
+                // transcribed before is answered from the cache (200) unless ?refresh=true
+                TranscriptionJob job = transcriptionJobService.enqueue(TranscriptionJobService.VIDEO, id, refresh);
+                ResponseEntity.BodyBuilder response = TranscriptionJobService.SUCCEEDED.equals(job.getStatus())
+                    ? ResponseEntity.ok() : ResponseEntity.accepted();
+                return response
+                    .location(URI.create("/api/transcription-jobs/" + job.getId()))
+                    .body(job);
             })
             .orElse(ResponseEntity.notFound().build());
     }
 
+    // Word-level transcript, optionally only the words between ?from= and ?to= (seconds)
+    @GetMapping("/{id}/transcript")
+    public ResponseEntity<?> getTranscript(@PathVariable Long id,
+                                           @RequestParam(required = false) Double from,
+                                           @RequestParam(required = false) Double to) {
+        return videoService.getVideo(id)
+            .<ResponseEntity<?>>map(video -> transcriptStore.window(TranscriptionJobService.VIDEO, id, video.getTranscript(), from, to))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Live progress and partial transcript of the latest transcription (Server-Sent Events)
+    @GetMapping(value = "/{id}/transcript/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> transcriptEvents(@PathVariable Long id) {
+        if (videoService.getVideo(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CACHE_CONTROL, "no-store")
+            .body(transcriptEventService.subscribe(TranscriptionJobService.VIDEO, id));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/{id}/hls")
+    public ResponseEntity<?> triggerHlsPackaging(@PathVariable Long id) {
+        if (videoService.getVideo(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        hlsPackagingService.packageAsync(id);
+        return ResponseEntity.accepted().build();
+    }
+
+    // HLS master playlist; short-lived because a re-package replaces it
+    @GetMapping("/{id}/master.m3u8")
+    public ResponseEntity<?> hlsMaster(@PathVariable Long id, HttpServletRequest request) {
+        return videoService.getVideo(id)
+            .filter(video -> video.getHlsPath() != null)
+            .map(video -> serveDerived(video.getHlsPath() + "/master.m3u8",
+                HlsPackagingService.PLAYLIST_TYPE, "public, max-age=60", request))
+            .orElse(ResponseEntity.notFound()
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .build());
+    }
+
+    // Variant playlists and segments of one packaging run never change
+    @GetMapping("/{id}/hls/{run}/{rendition}/{file}")
+    public ResponseEntity<?> hlsFile(
+            @PathVariable Long id,
+            @PathVariable String run,
+            @PathVariable String rendition,
+            @PathVariable String file,
+            HttpServletRequest request) {
+        if (!SAFE_NAME.matcher(run).matches() || !SAFE_NAME.matcher(rendition).matches()
+                || !SAFE_NAME.matcher(file).matches()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String type = file.endsWith(".m3u8") ? HlsPackagingService.PLAYLIST_TYPE : HlsPackagingService.SEGMENT_TYPE;
+        return serveDerived("hls/" + id + "/" + run + "/" + rendition + "/" + file,
+            type, "public, max-age=31536000, immutable", request);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/{id}/thumbnails")
+    public ResponseEntity<?> triggerThumbnails(@PathVariable Long id) {
+        if (videoService.getVideo(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        thumbnailService.generateAsync(id);
+        return ResponseEntity.accepted().build();
+    }
+
+    // Where the poster and preview track of the current run live; short-lived because a regeneration replaces them
+    @GetMapping("/{id}/thumbnails")
+    public ResponseEntity<?> thumbnails(@PathVariable Long id) {
+        return videoService.getVideo(id)
+            .filter(video -> video.getThumbnailPath() != null)
+            .<ResponseEntity<?>>map(video -> {
+                String base = "/api/videos/" + id + "/thumbnails/"
+                    + video.getThumbnailPath().substring(video.getThumbnailPath().lastIndexOf('/') + 1) + "/";
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("poster", base + ThumbnailService.POSTER);
+                body.put("track", base + ThumbnailService.TRACK);
+                body.put("intervalSeconds", thumbnailService.getIntervalSeconds());
+                return ResponseEntity.ok()
+                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                    .header(HttpHeaders.CACHE_CONTROL, "public, max-age=60")
+                    .body(body);
+            })
+            .orElse(ResponseEntity.notFound()
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .build());
+    }
+
+    // Poster, sprite sheets and track of one generation run never change
+    @GetMapping("/{id}/thumbnails/{run}/{file}")
+    public ResponseEntity<?> thumbnailFile(
+            @PathVariable Long id,
+            @PathVariable String run,
+            @PathVariable String file,
+            HttpServletRequest request) {
+        if (!SAFE_NAME.matcher(run).matches() || !SAFE_NAME.matcher(file).matches()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String type = file.endsWith(".vtt") ? ThumbnailService.VTT_TYPE : ThumbnailService.IMAGE_TYPE;
+        return serveDerived("thumbs/" + id + "/" + run + "/" + file,
+            type, "public, max-age=31536000, immutable", request);
+    }
+
+    private ResponseEntity<?> serveDerived(String objectKey, String contentType, String cacheControl, HttpServletRequest request) {
+        try {
+            ObjectMetadata meta = minioService.metadataForKey(objectKey);
+            HttpHeaders headers = mediaStreamService.mediaHeaders(MediaType.parseMediaType(contentType));
+            headers.setCacheControl(cacheControl);
+            return mediaStreamService.stream(meta, headers, request, false);
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound()
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .build();
+        } catch (Exception e) {
+            System.err.println("Error serving " + objectKey + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .body("Error serving " + objectKey + ": " + e.getMessage());
+        }
+    }
+
     // Handle OPTIONS preflight for CORS
     @RequestMapping(value = "/{id}/stream", method = RequestMethod.OPTIONS)
     public ResponseEntity<Void> streamVideoOptions(@PathVariable Long id) {
         HttpHeaders headers = new HttpHeaders();
         headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
         headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, OPTIONS");
-        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, Content-Type, Authorization");
-        headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges");
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, If-Range, If-None-Match, If-Modified-Since, Content-Type, Authorization");
+        headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges, ETag, Last-Modified, X-Keyframe-Time");
         headers.set(HttpHeaders.ACCESS_CONTROL_MAX_AGE, "3600");
         return ResponseEntity.ok().headers(headers).build();
     }
 
-    // Stream video through backend to avoid CORS and ensure proper headers
+    /**
+     * Stream video through backend to avoid CORS and ensure proper headers.
+     * With {@code ?t=seconds} and no Range header, the response is the 206 range
+     * starting at the last keyframe at or before that time; X-Keyframe-Time
+     * carries the keyframe's actual time.
+     */
     @GetMapping("/{id}/stream")
     public ResponseEntity<?> streamVideo(
             @PathVariable Long id,
-            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            @RequestParam(value = "t", required = false) Double t,
             HttpServletRequest request) {
-        System.out.println("=== VIDEO STREAM REQUEST ===");
-        System.out.println("Video ID: " + id);
-        System.out.println("Range header: " + rangeHeader);
-        
         return videoService.getVideo(id)
             .map(video -> {
                 try {
@@ -131,89 +344,18 @@ public class VideoController {
                         System.err.println("Video " + id + " has no video URL");
                         return ResponseEntity.notFound().build();
                     }
-                    
-                    System.out.println("Video URL: " + video.getVideoUrl());
-                    
-                    long fileSize = minioService.getObjectSize(video.getVideoUrl());
-                    System.out.println("File size: " + fileSize);
-                    
-                    if (fileSize < 0) {
-                        System.err.println("Could not determine file size for video " + id);
-                        fileSize = 0;
-                    }
-                    
-                    HttpHeaders headers = new HttpHeaders();
-                    // Set content type - try to detect from filename, default to mp4
-                    String contentType = "video/mp4";
-                    if (video.getVideoUrl().toLowerCase().endsWith(".webm")) {
-                        contentType = "video/webm";
-                    } else if (video.getVideoUrl().toLowerCase().endsWith(".ogg")) {
-                        contentType = "video/ogg";
-                    }
-                    headers.setContentType(MediaType.parseMediaType(contentType));
-                    
-                    // CORS headers for video streaming
-                    headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-                    headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, OPTIONS");
-                    headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, Content-Type, Authorization");
-                    headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges");
-                    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
-                    headers.set(HttpHeaders.CACHE_CONTROL, "public, max-age=3600");
-                    
-                    InputStream videoStream;
-                    long start = 0;
-                    long end = fileSize > 0 ? fileSize - 1 : 0;
-                    long contentLength = fileSize;
-                    
-                    // Parse Range header if present
-                    if (rangeHeader != null && !rangeHeader.isBlank() && rangeHeader.startsWith("bytes=")) {
-                        String range = rangeHeader.substring(6);
-                        String[] ranges = range.split("-");
-                        try {
-                            if (ranges.length > 0 && !ranges[0].isEmpty()) {
-                                start = Long.parseLong(ranges[0]);
-                            }
-                            if (ranges.length > 1 && !ranges[1].isEmpty()) {
-                                end = Long.parseLong(ranges[1]);
-                            } else if (fileSize > 0) {
-                                end = fileSize - 1;
-                            }
-                            if (fileSize > 0 && end >= fileSize) {
-                                end = fileSize - 1;
-                            }
-                            if (start < 0) start = 0;
-                            if (end < start) end = start;
-                            
-                            contentLength = end - start + 1;
-                            
-                            System.out.println("Range request: bytes " + start + "-" + end + "/" + fileSize);
-                            
-                            // Use range request
-                            videoStream = minioService.getVideoStream(video.getVideoUrl(), start, contentLength);
-                            headers.set(HttpHeaders.CONTENT_RANGE,
-                                String.format("bytes %d-%d/%d", start, end, fileSize > 0 ? fileSize : "*"));
-                            headers.setContentLength(contentLength);
-                            
-                            System.out.println("Returning 206 Partial Content");
-                            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                                .headers(headers)
-                                .body(new InputStreamResource(videoStream));
-                        } catch (NumberFormatException e) {
-                            System.err.println("Invalid range header: " + rangeHeader + " - " + e.getMessage());
-                            // Fall through to full file
+                    ObjectMetadata meta = minioService.metadataFor(video.getMedia(), video.getVideoUrl());
+                    HttpHeaders headers = mediaStreamService.mediaHeaders(
+                        MediaStreamService.videoContentType(meta, video.getVideoUrl()));
+                    if (t != null && request.getHeader(HttpHeaders.RANGE) == null) {
+                        KeyframeIndex index = keyframeIndexService.indexFor(video.getMedia());
+                        int keyframe = index != null ? index.floor(Math.round(t * 1000)) : -1;
+                        if (keyframe >= 0) {
+                            headers.set("X-Keyframe-Time", String.valueOf(index.timeMs(keyframe) / 1000.0));
+                            return mediaStreamService.streamFrom(meta, headers, request, index.offset(keyframe));
                         }
                     }
-                    
-                    // Full file request
-                    System.out.println("Full file request");
-                    videoStream = minioService.getVideoStream(video.getVideoUrl());
-                    if (fileSize > 0) {
-                        headers.setContentLength(fileSize);
-                    }
-                    System.out.println("Returning 200 OK with full video");
-                    return ResponseEntity.ok()
-                        .headers(headers)
-                        .body(new InputStreamResource(videoStream));
+                    return mediaStreamService.stream(meta, headers, request);
                 } catch (Exception e) {
                     System.err.println("Error streaming video " + id + ": " + e.getMessage());
                     e.printStackTrace();
@@ -0,0 +1,10 @@
+package com.example.e_learn.dto;
+
+import java.util.List;
+
+public class CreateBackfillRequest {
+    public List<String> reasons; // missing, failed, stale (default: missing and failed)
+    public List<String> targets; // VIDEO, LESSON (default: both)
+    public Integer concurrency; // backfill jobs queued or running at once
+    public Integer ratePerMinute; // jobs queued per minute at most
+}
@@ -0,0 +1,9 @@
+package com.example.e_learn.dto;
+
+public class CreateUploadRequest {
+    public Long lessonId;
+    public String title;
+    public String filename;
+    public String contentType;
+    public Long length; // total size in bytes
+}
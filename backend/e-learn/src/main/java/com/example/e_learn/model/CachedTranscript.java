@@ -0,0 +1,48 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Finished transcript of a media file, keyed by its content (hash or ETag)
+ * and the ASR model that produced it, so the same recording attached to
+ * another video or lesson is not recognized again.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cached_transcript_content", columnNames = {"contentKey", "modelVersion"}))
+public class CachedTranscript {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 255)
+    private String contentKey; // sha256/<hex> of content-addressed media, else etag/<etag>:<size>
+
+    @Column(length = 64)
+    private String modelVersion;
+
+    private byte[] data;
+
+    private int wordCount;
+
+    private Instant createdAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getContentKey() { return contentKey; }
+    public void setContentKey(String contentKey) { this.contentKey = contentKey; }
+
+    public String getModelVersion() { return modelVersion; }
+    public void setModelVersion(String modelVersion) { this.modelVersion = modelVersion; }
+
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+
+    public int getWordCount() { return wordCount; }
+    public void setWordCount(int wordCount) { this.wordCount = wordCount; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
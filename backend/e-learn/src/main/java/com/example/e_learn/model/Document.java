@@ -4,7 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
-public class Document {
+@EntityListeners(MediaUrlListener.class)
+public class Document implements MediaUrlResolver.Target {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -12,7 +13,11 @@ public class Document {
     private String title;
     
     @Column(length=2048)
-    private String fileUrl; // URL to PDF file in MinIO
+    private String fileUrl; // only external links; stored PDFs are addressed by media.objectKey
+
+    @Embedded
+    @JsonIgnore // storage details are internal
+    private MediaObject media;
     
     private String description;
     
@@ -23,6 +28,9 @@ public class Document {
     @JsonIgnore // prevent infinite recursion when serializing
     private Lesson lesson;
 
+    @Transient
+    private MediaUrlResolver urlResolver;
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -30,8 +38,14 @@ public class Document {
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
     
-    public String getFileUrl() { return fileUrl; }
+    public String getFileUrl() { return urlResolver != null ? urlResolver.urlFor(media, fileUrl) : fileUrl; }
     public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
+
+    @Override
+    public void attachMediaUrlResolver(MediaUrlResolver resolver) { this.urlResolver = resolver; }
+
+    public MediaObject getMedia() { return media; }
+    public void setMedia(MediaObject media) { this.media = media; }
     
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
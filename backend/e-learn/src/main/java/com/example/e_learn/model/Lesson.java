@@ -9,7 +9,8 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-public class Lesson {
+@EntityListeners(MediaUrlListener.class)
+public class Lesson implements MediaUrlResolver.Target {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -18,12 +19,24 @@ public class Lesson {
     private String description;
     @Column(length=2048)
     private String videoUrl; // Legacy field - kept for backward compatibility
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "bucket", column = @Column(name = "video_bucket", length = 63)),
+        @AttributeOverride(name = "objectKey", column = @Column(name = "video_object_key", length = 1024)),
+        @AttributeOverride(name = "sizeBytes", column = @Column(name = "video_size_bytes")),
+        @AttributeOverride(name = "etag", column = @Column(name = "video_etag", length = 128)),
+        @AttributeOverride(name = "contentType", column = @Column(name = "video_content_type", length = 128)),
+        @AttributeOverride(name = "lastModified", column = @Column(name = "video_last_modified"))
+    })
+    @JsonIgnore // storage details are internal
+    private MediaObject videoMedia;
     /**
-     * Transcript in JSON as a string:
-     * Example: '[{"word": "Hello", "start": 0.01, "end": 0.22}, ...]'
-     * For legacy, can also be just plain text.
+     * Legacy transcript (JSON word list or plain text) of lessons transcribed
+     * before transcripts were stored on their own; served by GET /{id}/transcript.
      */
     @Column(length=8192)
+    @JsonIgnore
     private String transcript; // Legacy field - kept for backward compatibility
     private int durationSec; // Legacy field - total duration of all videos
 
@@ -44,6 +57,9 @@ public class Lesson {
     @OrderBy("orderIndex ASC")
     private List<Document> documents = new ArrayList<>();
 
+    @Transient
+    private MediaUrlResolver urlResolver;
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -51,8 +67,12 @@ public class Lesson {
     public void setTitle(String title) { this.title = title; }
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
-    public String getVideoUrl() { return videoUrl; }
+    public String getVideoUrl() { return urlResolver != null ? urlResolver.urlFor(videoMedia, videoUrl) : videoUrl; }
+    @Override
+    public void attachMediaUrlResolver(MediaUrlResolver resolver) { this.urlResolver = resolver; }
     public void setVideoUrl(String videoUrl) { this.videoUrl = videoUrl; }
+    public MediaObject getVideoMedia() { return videoMedia; }
+    public void setVideoMedia(MediaObject videoMedia) { this.videoMedia = videoMedia; }
     public String getTranscript() { return transcript; }
     public void setTranscript(String transcript) { this.transcript = transcript; }
     public int getDurationSec() { return durationSec; }
@@ -0,0 +1,64 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Storage metadata captured when a media file is uploaded, so streaming
+ * does not need to stat the object or parse its URL. The bucket and key are
+ * the durable address; client URLs are derived from them when read.
+ */
+@Embeddable
+public class MediaObject {
+    @Column(length=63)
+    private String bucket;
+
+    @Column(length=1024)
+    private String objectKey;
+
+    private Long sizeBytes;
+
+    @Column(length=128)
+    private String etag;
+
+    @Column(length=128)
+    private String contentType;
+
+    private Instant lastModified;
+
+    public MediaObject() {}
+
+    public MediaObject(String objectKey, Long sizeBytes, String etag, String contentType, Instant lastModified) {
+        this.objectKey = objectKey;
+        this.sizeBytes = sizeBytes;
+        this.etag = etag;
+        this.contentType = contentType;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Rows written before metadata was captured have no key or size.
+     */
+    public boolean isComplete() {
+        return objectKey != null && sizeBytes != null && etag != null;
+    }
+
+    // Getters and setters
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+
+    public String getObjectKey() { return objectKey; }
+    public void setObjectKey(String objectKey) { this.objectKey = objectKey; }
+
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Instant getLastModified() { return lastModified; }
+    public void setLastModified(Instant lastModified) { this.lastModified = lastModified; }
+}
@@ -0,0 +1,26 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Attaches the application's {@link MediaUrlResolver} to media entities.
+ * Instantiated by Hibernate through Spring; the resolver is looked up on
+ * first use because it depends on beans created after the persistence unit.
+ */
+public class MediaUrlListener {
+    @Autowired
+    private ObjectProvider<MediaUrlResolver> resolver;
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void attach(Object entity) {
+        if (entity instanceof MediaUrlResolver.Target target) {
+            target.attachMediaUrlResolver(resolver.getIfAvailable());
+        }
+    }
+}
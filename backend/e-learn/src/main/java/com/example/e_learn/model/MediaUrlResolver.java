@@ -0,0 +1,23 @@
+package com.example.e_learn.model;
+
+/**
+ * Turns stored media into a URL clients can fetch. Entities only persist the
+ * object key; a resolver is attached when they are loaded or saved (see
+ * {@link MediaUrlListener}) and their URL getters go through it, so links
+ * are generated when read and never go stale in the database.
+ */
+public interface MediaUrlResolver {
+
+    /**
+     * URL for the object, or {@code storedUrl} (an external link or a row that
+     * was never migrated) when the media has no key.
+     */
+    String urlFor(MediaObject media, String storedUrl);
+
+    /**
+     * An entity whose URL getters resolve through a resolver.
+     */
+    interface Target {
+        void attachMediaUrlResolver(MediaUrlResolver resolver);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A content-addressed object in the media bucket, stored once under its
+ * SHA-256 and shared by every row that uploaded the same bytes. The object
+ * is removed when the last reference is released.
+ */
+@Entity
+public class StoredObject {
+    @Id
+    @Column(length = 128)
+    private String objectKey;
+
+    // Null until first persisted, so a concurrent insert fails instead of merging
+    @Version
+    private Long version;
+
+    @Column(length = 64, nullable = false)
+    private String sha256;
+
+    private long sizeBytes;
+
+    @Column(length = 128)
+    private String etag;
+
+    @Column(length = 128)
+    private String contentType;
+
+    private long refCount;
+
+    private Instant createdAt;
+
+    public String getObjectKey() { return objectKey; }
+    public void setObjectKey(String objectKey) { this.objectKey = objectKey; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public long getRefCount() { return refCount; }
+    public void setRefCount(long refCount) { this.refCount = refCount; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
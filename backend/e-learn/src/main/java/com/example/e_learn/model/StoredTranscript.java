@@ -0,0 +1,57 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Word-level transcript of a video or lesson, kept out of the entity rows in
+ * the compact encoding of {@link com.example.e_learn.service.CompactTranscript}.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_stored_transcript_target", columnNames = {"targetType", "targetId"}))
+public class StoredTranscript {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 16)
+    private String targetType; // VIDEO or LESSON
+
+    private Long targetId;
+
+    private byte[] data;
+
+    private int wordCount;
+
+    private int durationMs;
+
+    @Column(length = 64)
+    private String modelVersion; // ASR model that recognized it; null for transcripts of unknown origin
+
+    private Instant updatedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTargetType() { return targetType; }
+    public void setTargetType(String targetType) { this.targetType = targetType; }
+
+    public Long getTargetId() { return targetId; }
+    public void setTargetId(Long targetId) { this.targetId = targetId; }
+
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+
+    public int getWordCount() { return wordCount; }
+    public void setWordCount(int wordCount) { this.wordCount = wordCount; }
+
+    public int getDurationMs() { return durationMs; }
+    public void setDurationMs(int durationMs) { this.durationMs = durationMs; }
+
+    public String getModelVersion() { return modelVersion; }
+    public void setModelVersion(String modelVersion) { this.modelVersion = modelVersion; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,59 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+/**
+ * A stretch of a stored transcript as plain text, the unit of transcript
+ * search: a hit on a passage points into the video at its start. Rewritten
+ * whenever the transcript is.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_transcript_passage_target", columnList = "targetType, targetId"),
+    @Index(name = "idx_transcript_passage_lesson", columnList = "lessonId")
+})
+public class TranscriptPassage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 16)
+    private String targetType; // VIDEO or LESSON
+
+    private Long targetId;
+
+    private Long lessonId;
+
+    private Long videoId; // null for a lesson's own video
+
+    private int startMs;
+
+    private int endMs;
+
+    @Column(columnDefinition = "text")
+    private String content;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTargetType() { return targetType; }
+    public void setTargetType(String targetType) { this.targetType = targetType; }
+
+    public Long getTargetId() { return targetId; }
+    public void setTargetId(Long targetId) { this.targetId = targetId; }
+
+    public Long getLessonId() { return lessonId; }
+    public void setLessonId(Long lessonId) { this.lessonId = lessonId; }
+
+    public Long getVideoId() { return videoId; }
+    public void setVideoId(Long videoId) { this.videoId = videoId; }
+
+    public int getStartMs() { return startMs; }
+    public void setStartMs(int startMs) { this.startMs = startMs; }
+
+    public int getEndMs() { return endMs; }
+    public void setEndMs(int endMs) { this.endMs = endMs; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+}
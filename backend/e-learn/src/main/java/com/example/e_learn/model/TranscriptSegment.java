@@ -0,0 +1,56 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Words of one recognized segment of a transcription job, persisted as soon
+ * as the segment is done so a restarted attempt only recognizes the rest and
+ * clients can follow a running job. Removed once the job finishes.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_transcript_segment", columnNames = {"jobId", "segmentIndex"}))
+public class TranscriptSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long jobId;
+
+    private int segmentIndex;
+
+    private double startSec;
+
+    private double durationSec;
+
+    /**
+     * JSON word list in media time, clipped to this segment's share of the overlaps:
+     * '[{"word": "Hello", "start": 120.4, "end": 120.7}, ...]'
+     */
+    @Column(columnDefinition = "text")
+    private String words;
+
+    private Instant createdAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getJobId() { return jobId; }
+    public void setJobId(Long jobId) { this.jobId = jobId; }
+
+    public int getSegmentIndex() { return segmentIndex; }
+    public void setSegmentIndex(int segmentIndex) { this.segmentIndex = segmentIndex; }
+
+    public double getStartSec() { return startSec; }
+    public void setStartSec(double startSec) { this.startSec = startSec; }
+
+    public double getDurationSec() { return durationSec; }
+    public void setDurationSec(double durationSec) { this.durationSec = durationSec; }
+
+    public String getWords() { return words; }
+    public void setWords(String words) { this.words = words; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
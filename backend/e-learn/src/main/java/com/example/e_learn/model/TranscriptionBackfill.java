@@ -0,0 +1,101 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A bulk transcription run. Videos, then lessons, are selected in id order
+ * (the cursor is the last id handed to the job queue) and queued no faster
+ * than the run's rate and concurrency allow; its jobs carry its id.
+ */
+@Entity
+public class TranscriptionBackfill {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 16)
+    private String status; // RUNNING, PAUSED, COMPLETED or CANCELLED
+
+    // Which targets are selected: no stored transcript, latest job failed, recognized by another model
+    private boolean missing;
+    private boolean failed;
+    private boolean stale;
+
+    private boolean videos;
+    private boolean lessons;
+
+    @Column(length = 64)
+    private String modelVersion; // the current one when the run started
+
+    private int concurrency; // backfill jobs queued or running at once, across nodes
+
+    private int ratePerMinute; // jobs queued per minute at most
+
+    @Column(length = 16)
+    private String cursorType; // VIDEO or LESSON, null once selection is done
+
+    private long cursorId;
+
+    private int selected; // targets handed to the job queue so far
+
+    private Instant nextFeedAt; // rate limit: the next job may be queued from then on
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private Instant finishedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public boolean isMissing() { return missing; }
+    public void setMissing(boolean missing) { this.missing = missing; }
+
+    public boolean isFailed() { return failed; }
+    public void setFailed(boolean failed) { this.failed = failed; }
+
+    public boolean isStale() { return stale; }
+    public void setStale(boolean stale) { this.stale = stale; }
+
+    public boolean isVideos() { return videos; }
+    public void setVideos(boolean videos) { this.videos = videos; }
+
+    public boolean isLessons() { return lessons; }
+    public void setLessons(boolean lessons) { this.lessons = lessons; }
+
+    public String getModelVersion() { return modelVersion; }
+    public void setModelVersion(String modelVersion) { this.modelVersion = modelVersion; }
+
+    public int getConcurrency() { return concurrency; }
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+
+    public int getRatePerMinute() { return ratePerMinute; }
+    public void setRatePerMinute(int ratePerMinute) { this.ratePerMinute = ratePerMinute; }
+
+    public String getCursorType() { return cursorType; }
+    public void setCursorType(String cursorType) { this.cursorType = cursorType; }
+
+    public long getCursorId() { return cursorId; }
+    public void setCursorId(long cursorId) { this.cursorId = cursorId; }
+
+    public int getSelected() { return selected; }
+    public void setSelected(int selected) { this.selected = selected; }
+
+    public Instant getNextFeedAt() { return nextFeedAt; }
+    public void setNextFeedAt(Instant nextFeedAt) { this.nextFeedAt = nextFeedAt; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+}
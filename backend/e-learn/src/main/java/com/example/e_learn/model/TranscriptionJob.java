@@ -0,0 +1,104 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A queued transcription of a video or lesson. Workers on any node claim due
+ * jobs with SELECT ... FOR UPDATE SKIP LOCKED and hold a lease while the ASR
+ * runs; a job whose lease runs out (its node died) becomes claimable again.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_transcription_job_due", columnList = "status, nextAttemptAt"),
+    @Index(name = "idx_transcription_job_target", columnList = "targetType, targetId"),
+    @Index(name = "idx_transcription_job_backfill", columnList = "backfillId, status")
+})
+public class TranscriptionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 16)
+    private String targetType; // VIDEO or LESSON
+
+    private Long targetId;
+
+    @Column(length = 16)
+    private String status; // QUEUED, RUNNING, SUCCEEDED or FAILED
+
+    private int attempts;
+
+    private Instant nextAttemptAt;
+
+    private Integer segments; // segments the media is recognized in, once an attempt started
+
+    private Boolean refresh; // recognize again even if the transcript cache has the media
+
+    private Boolean reused; // answered from the transcript cache, without an ASR call
+
+    private Long backfillId; // bulk run that queued it; claimed after interactive jobs
+
+    @Column(length = 128)
+    private String lockedBy; // node running the current attempt
+
+    private Instant lockedUntil;
+
+    @Column(length = 1024)
+    private String lastError;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private Instant finishedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTargetType() { return targetType; }
+    public void setTargetType(String targetType) { this.targetType = targetType; }
+
+    public Long getTargetId() { return targetId; }
+    public void setTargetId(Long targetId) { this.targetId = targetId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(Instant nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public Integer getSegments() { return segments; }
+    public void setSegments(Integer segments) { this.segments = segments; }
+
+    public Boolean getRefresh() { return refresh; }
+    public void setRefresh(Boolean refresh) { this.refresh = refresh; }
+
+    public Boolean getReused() { return reused; }
+    public void setReused(Boolean reused) { this.reused = reused; }
+
+    public Long getBackfillId() { return backfillId; }
+    public void setBackfillId(Long backfillId) { this.backfillId = backfillId; }
+
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+
+    public Instant getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(Instant lockedUntil) { this.lockedUntil = lockedUntil; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -0,0 +1,120 @@
+package com.example.e_learn.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A resumable video upload. Each accepted chunk is one part of a MinIO
+ * multipart upload; the session only tracks how far the upload got, so it
+ * survives restarts and can be resumed from {@link #getOffsetBytes()}.
+ * Finalizing records each step's result (staged key and hash, adopted key)
+ * so an interrupted finalization resumes instead of starting over.
+ */
+@Entity
+public class UploadSession {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Version
+    private long version;
+
+    private Long lessonId;
+
+    private String title;
+
+    private String filename;
+
+    @Column(length = 128)
+    private String contentType;
+
+    @Column(length = 1024)
+    private String objectKey;
+
+    @Column(length = 256)
+    private String multipartUploadId;
+
+    private long totalBytes;
+
+    private long offsetBytes;
+
+    private int partCount;
+
+    @Column(length = 16)
+    private String status; // ACTIVE, FINALIZING, COMPLETED, FAILED or ABORTED
+
+    @Column(length = 1024)
+    private String stagedKey; // complete (fast-start) bytes, once the multipart upload is completed
+
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(length = 1024)
+    private String adoptedKey; // content-addressed key holding a reference for this upload
+
+    @Column(length = 1024)
+    private String error;
+
+    private Long videoId; // set once finalized
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getVersion() { return version; }
+
+    public Long getLessonId() { return lessonId; }
+    public void setLessonId(Long lessonId) { this.lessonId = lessonId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public String getObjectKey() { return objectKey; }
+    public void setObjectKey(String objectKey) { this.objectKey = objectKey; }
+
+    public String getMultipartUploadId() { return multipartUploadId; }
+    public void setMultipartUploadId(String multipartUploadId) { this.multipartUploadId = multipartUploadId; }
+
+    public long getTotalBytes() { return totalBytes; }
+    public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+
+    public long getOffsetBytes() { return offsetBytes; }
+    public void setOffsetBytes(long offsetBytes) { this.offsetBytes = offsetBytes; }
+
+    public int getPartCount() { return partCount; }
+    public void setPartCount(int partCount) { this.partCount = partCount; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getStagedKey() { return stagedKey; }
+    public void setStagedKey(String stagedKey) { this.stagedKey = stagedKey; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public String getAdoptedKey() { return adoptedKey; }
+    public void setAdoptedKey(String adoptedKey) { this.adoptedKey = adoptedKey; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Long getVideoId() { return videoId; }
+    public void setVideoId(Long videoId) { this.videoId = videoId; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -4,7 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
-public class Video {
+@EntityListeners(MediaUrlListener.class)
+public class Video implements MediaUrlResolver.Target {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -12,25 +13,59 @@ public class Video {
     private String title;
     
     @Column(length=2048)
-    private String videoUrl;
+    private String videoUrl; // only external links; stored media is addressed by media.objectKey
+
+    @Embedded
+    @JsonIgnore // storage details are internal
+    private MediaObject media;
     
     /**
-     * Transcript in JSON as a string:
-     * Example: '[{"word": "Hello", "start": 0.01, "end": 0.22}, ...]'
-     * For legacy, can also be just plain text.
+     * Legacy transcript (JSON word list or plain text) of videos transcribed
+     * before transcripts were stored on their own; served by GET /{id}/transcript.
      */
     @Column(length=8192)
+    @JsonIgnore
     private String transcript;
     
-    private int durationSec;
+    private int durationSec; // probed from the container headers; 0 when unknown
+
+    // Probed at upload (or by the backfill); null when the container did not say
+    private Integer width;
+
+    private Integer height;
+
+    @Column(length=32)
+    private String videoCodec;
+
+    @Column(length=32)
+    private String audioCodec;
+
+    private Long bitrate; // bits per second, averaged over the whole file
     
     private int orderIndex; // Order of video within the lesson
+
+    @Column(length=16)
+    private String hlsStatus; // PENDING, PROCESSING, READY or FAILED; null when never packaged
+
+    @Column(length=256)
+    @JsonIgnore
+    private String hlsPath; // object prefix of the current HLS packaging run
+
+    @Column(length=16)
+    private String thumbnailStatus; // PENDING, PROCESSING, READY or FAILED; null when never generated
+
+    @Column(length=256)
+    @JsonIgnore
+    private String thumbnailPath; // object prefix of the current poster/sprite run
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "lesson_id", nullable = false)
     @JsonIgnore // prevent infinite recursion when serializing
     private Lesson lesson;
 
+    @Transient
+    private MediaUrlResolver urlResolver;
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -38,18 +73,51 @@ public class Video {
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
     
-    public String getVideoUrl() { return videoUrl; }
+    public String getVideoUrl() { return urlResolver != null ? urlResolver.urlFor(media, videoUrl) : videoUrl; }
     public void setVideoUrl(String videoUrl) { this.videoUrl = videoUrl; }
+
+    @Override
+    public void attachMediaUrlResolver(MediaUrlResolver resolver) { this.urlResolver = resolver; }
+
+    public MediaObject getMedia() { return media; }
+    public void setMedia(MediaObject media) { this.media = media; }
     
     public String getTranscript() { return transcript; }
     public void setTranscript(String transcript) { this.transcript = transcript; }
     
     public int getDurationSec() { return durationSec; }
     public void setDurationSec(int durationSec) { this.durationSec = durationSec; }
+
+    public Integer getWidth() { return width; }
+    public void setWidth(Integer width) { this.width = width; }
+
+    public Integer getHeight() { return height; }
+    public void setHeight(Integer height) { this.height = height; }
+
+    public String getVideoCodec() { return videoCodec; }
+    public void setVideoCodec(String videoCodec) { this.videoCodec = videoCodec; }
+
+    public String getAudioCodec() { return audioCodec; }
+    public void setAudioCodec(String audioCodec) { this.audioCodec = audioCodec; }
+
+    public Long getBitrate() { return bitrate; }
+    public void setBitrate(Long bitrate) { this.bitrate = bitrate; }
     
     public int getOrderIndex() { return orderIndex; }
     public void setOrderIndex(int orderIndex) { this.orderIndex = orderIndex; }
     
+    public String getHlsStatus() { return hlsStatus; }
+    public void setHlsStatus(String hlsStatus) { this.hlsStatus = hlsStatus; }
+
+    public String getHlsPath() { return hlsPath; }
+    public void setHlsPath(String hlsPath) { this.hlsPath = hlsPath; }
+
+    public String getThumbnailStatus() { return thumbnailStatus; }
+    public void setThumbnailStatus(String thumbnailStatus) { this.thumbnailStatus = thumbnailStatus; }
+
+    public String getThumbnailPath() { return thumbnailPath; }
+    public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
+    
     public Lesson getLesson() { return lesson; }
     public void setLesson(Lesson lesson) { this.lesson = lesson; }
 }
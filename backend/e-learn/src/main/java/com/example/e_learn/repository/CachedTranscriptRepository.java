@@ -0,0 +1,28 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.CachedTranscript;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
+
+public interface CachedTranscriptRepository extends JpaRepository<CachedTranscript, Long> {
+    Optional<CachedTranscript> findByContentKeyAndModelVersion(String contentKey, String modelVersion);
+
+    // Entry and word counts per model version
+    @Query("select t.modelVersion, count(t), coalesce(sum(t.wordCount), 0) from CachedTranscript t group by t.modelVersion order by t.modelVersion")
+    List<Object[]> countByModel();
+
+    @Transactional
+    @Modifying
+    @Query("delete from CachedTranscript t where t.modelVersion = :model")
+    int deleteByModel(@Param("model") String modelVersion);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CachedTranscript t where t.modelVersion <> :model")
+    int deleteOtherModels(@Param("model") String modelVersion);
+}
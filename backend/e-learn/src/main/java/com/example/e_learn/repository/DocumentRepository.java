@@ -1,13 +1,23 @@
 package com.example.e_learn.repository;
 
 import com.example.e_learn.model.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByLessonIdOrderByOrderIndexAsc(Long lessonId);
-}
-
-
 
+    // Rows migrated to object-key addressing no longer keep the signed URL
+    @Transactional
+    @Modifying
+    @Query("update Document d set d.fileUrl = null where d.media.objectKey is not null and d.fileUrl is not null")
+    int clearUrlsOfKeyedMedia();
 
+    @Query("select d from Document d where d.media.objectKey is null and d.fileUrl is not null and d.id > :after order by d.id")
+    List<Document> findUnkeyedAfter(@Param("after") Long after, Pageable page);
+}
@@ -1,7 +1,49 @@
 package com.example.e_learn.repository;
 
 import com.example.e_learn.model.Lesson;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
 
-public interface LessonRepository extends JpaRepository<Lesson, Long> {}
+public interface LessonRepository extends JpaRepository<Lesson, Long> {
+    // Serializes the jobs queued for one lesson across nodes
+    @Query(value = "select id from lesson where id = :id for update", nativeQuery = true)
+    Optional<Long> lockId(@Param("id") Long id);
 
+    // Rows migrated to object-key addressing no longer keep the signed URL
+    @Transactional
+    @Modifying
+    @Query("update Lesson l set l.videoUrl = null where l.videoMedia.objectKey is not null and l.videoUrl is not null")
+    int clearUrlsOfKeyedMedia();
+
+    @Query("select l from Lesson l where l.videoMedia.objectKey is null and l.videoUrl is not null and l.id > :after order by l.id")
+    List<Lesson> findUnkeyedAfter(@Param("after") Long after, Pageable page);
+
+    // Lessons without videos keep their manually entered duration
+    @Modifying
+    @Query("update Lesson l set l.durationSec = (select coalesce(sum(v.durationSec), 0) from Video v where v.lesson.id = l.id) "
+        + "where l.id = :id and exists (select 1 from Video v where v.lesson.id = l.id)")
+    int rollUpDuration(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Lesson l set l.transcript = :transcript where l.id = :id")
+    int updateTranscript(@Param("id") Long id, @Param("transcript") String transcript);
+
+    // Keyset page of lessons for a transcription backfill: without a stored transcript, whose latest
+    // job failed, or recognized by another model version; lessons with a job in progress are passed over
+    @Query("select l.id from Lesson l where l.id > :after and (l.videoMedia.objectKey is not null or l.videoUrl is not null) "
+        + "and not exists (select j.id from TranscriptionJob j where j.targetType = 'LESSON' and j.targetId = l.id and j.status in ('QUEUED', 'RUNNING')) "
+        + "and ((:missing = true and not exists (select t.id from StoredTranscript t where t.targetType = 'LESSON' and t.targetId = l.id)) "
+        + "or (:stale = true and exists (select t.id from StoredTranscript t where t.targetType = 'LESSON' and t.targetId = l.id "
+        + "and (t.modelVersion is null or t.modelVersion <> :model))) "
+        + "or (:failed = true and exists (select j.id from TranscriptionJob j where j.targetType = 'LESSON' and j.targetId = l.id and j.status = 'FAILED' "
+        + "and j.id = (select max(k.id) from TranscriptionJob k where k.targetType = 'LESSON' and k.targetId = l.id)))) "
+        + "order by l.id")
+    List<Long> findTranscriptionCandidates(@Param("after") Long after, @Param("missing") boolean missing, @Param("failed") boolean failed,
+                                           @Param("stale") boolean stale, @Param("model") String modelVersion, Pageable page);
+}
@@ -0,0 +1,22 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.StoredObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Optional;
+
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+    @Transactional
+    @Modifying
+    @Query("update StoredObject s set s.refCount = s.refCount + 1 where s.objectKey = :key")
+    int addReference(@Param("key") String key);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StoredObject s where s.objectKey = :key")
+    Optional<StoredObject> lockByKey(@Param("key") String key);
+}
@@ -0,0 +1,23 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.StoredTranscript;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Optional;
+
+public interface StoredTranscriptRepository extends JpaRepository<StoredTranscript, Long> {
+    Optional<StoredTranscript> findByTargetTypeAndTargetId(String targetType, Long targetId);
+
+    // Version check without reading the data
+    @Query("select t.updatedAt from StoredTranscript t where t.targetType = :type and t.targetId = :id")
+    Optional<Instant> findUpdatedAt(@Param("type") String targetType, @Param("id") Long targetId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from StoredTranscript t where t.targetType = :type and t.targetId = :id")
+    int deleteByTarget(@Param("type") String targetType, @Param("id") Long targetId);
+}
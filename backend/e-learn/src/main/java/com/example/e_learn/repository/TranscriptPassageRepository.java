@@ -0,0 +1,15 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.TranscriptPassage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface TranscriptPassageRepository extends JpaRepository<TranscriptPassage, Long> {
+    @Transactional
+    @Modifying
+    @Query("delete from TranscriptPassage p where p.targetType = :type and p.targetId = :id")
+    int deleteByTarget(@Param("type") String targetType, @Param("id") Long targetId);
+}
@@ -0,0 +1,36 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.TranscriptSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TranscriptSegmentRepository extends JpaRepository<TranscriptSegment, Long> {
+    Optional<TranscriptSegment> findByJobIdAndSegmentIndex(Long jobId, int segmentIndex);
+
+    List<TranscriptSegment> findByJobIdAndSegmentIndexInOrderBySegmentIndex(Long jobId, Collection<Integer> segmentIndexes);
+
+    // Without the word lists, for progress checks
+    @Query("select s.segmentIndex from TranscriptSegment s where s.jobId = :jobId")
+    List<Integer> findIndexes(@Param("jobId") Long jobId);
+
+    @Query("select s.segmentIndex, s.startSec, s.durationSec from TranscriptSegment s where s.jobId = :jobId")
+    List<Object[]> findLayout(@Param("jobId") Long jobId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TranscriptSegment s where s.jobId = :jobId")
+    int deleteByJob(@Param("jobId") Long jobId);
+
+    // Segments kept for the retries of queued jobs of a backfill being cancelled
+    @Transactional
+    @Modifying
+    @Query("delete from TranscriptSegment s where s.jobId in "
+        + "(select j.id from TranscriptionJob j where j.backfillId = :backfill and j.status = 'QUEUED')")
+    int deleteQueuedOfBackfill(@Param("backfill") Long backfillId);
+}
@@ -0,0 +1,23 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.TranscriptionBackfill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TranscriptionBackfillRepository extends JpaRepository<TranscriptionBackfill, Long> {
+    // One node feeds a run at a time; the others pass over it
+    @Query(value = "select * from transcription_backfill where status = 'RUNNING' order by id limit 1 "
+        + "for update skip locked", nativeQuery = true)
+    Optional<TranscriptionBackfill> lockRunning();
+
+    @Query(value = "select * from transcription_backfill where id = :id for update", nativeQuery = true)
+    Optional<TranscriptionBackfill> lockById(@Param("id") Long id);
+
+    boolean existsByStatusIn(Collection<String> statuses);
+
+    List<TranscriptionBackfill> findTop20ByOrderByIdDesc();
+}
@@ -0,0 +1,57 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.TranscriptionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TranscriptionJobRepository extends JpaRepository<TranscriptionJob, Long> {
+    // Rows claimed by another node are passed over rather than waited for. Interactive jobs come
+    // before backfill jobs, and queued jobs of a paused backfill wait for it to resume
+    @Query(value = "select * from transcription_job where ((status = 'QUEUED' and next_attempt_at <= :now) "
+        + "or (status = 'RUNNING' and locked_until < :now)) "
+        + "and (backfill_id is null or status = 'RUNNING' or backfill_id in (select b.id from transcription_backfill b where b.status = 'RUNNING')) "
+        + "order by case when backfill_id is null then 0 else 1 end, next_attempt_at, id limit :limit "
+        + "for update skip locked", nativeQuery = true)
+    List<TranscriptionJob> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Query(value = "select * from transcription_job where id = :id for update", nativeQuery = true)
+    Optional<TranscriptionJob> lockById(@Param("id") Long id);
+
+    @Query("select j from TranscriptionJob j where j.targetType = :type and j.targetId = :id "
+        + "and j.status in ('QUEUED', 'RUNNING') order by j.id")
+    List<TranscriptionJob> findActive(@Param("type") String targetType, @Param("id") Long targetId);
+
+    @Query("select count(j) from TranscriptionJob j where j.backfillId = :backfill and j.status in ('QUEUED', 'RUNNING')")
+    long countActiveByBackfill(@Param("backfill") Long backfillId);
+
+    // Jobs of a backfill per status, with how many of them were answered from the transcript cache
+    @Query("select j.status, count(j), sum(case when j.reused = true then 1 else 0 end) from TranscriptionJob j "
+        + "where j.backfillId = :backfill group by j.status")
+    List<Object[]> countByBackfill(@Param("backfill") Long backfillId);
+
+    @Transactional
+    @Modifying
+    @Query("update TranscriptionJob j set j.status = 'FAILED', j.lastError = :error, j.finishedAt = :now, "
+        + "j.updatedAt = :now where j.backfillId = :backfill and j.status = 'QUEUED'")
+    int failQueuedOfBackfill(@Param("backfill") Long backfillId, @Param("error") String error, @Param("now") Instant now);
+
+    Optional<TranscriptionJob> findFirstByTargetTypeAndTargetIdOrderByIdDesc(String targetType, Long targetId);
+
+    @Transactional
+    @Modifying
+    @Query("update TranscriptionJob j set j.segments = :segments where j.id = :id")
+    int updateSegments(@Param("id") Long id, @Param("segments") int segments);
+
+    // Leases are only extended while this node still holds them
+    @Transactional
+    @Modifying
+    @Query("update TranscriptionJob j set j.lockedUntil = :until where j.id in :ids and j.lockedBy = :node and j.status = 'RUNNING'")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("node") String node, @Param("until") Instant until);
+}
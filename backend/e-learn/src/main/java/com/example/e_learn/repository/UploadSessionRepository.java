@@ -0,0 +1,28 @@
+package com.example.e_learn.repository;
+
+import com.example.e_learn.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByStatusAndUpdatedAtBefore(String status, Instant before);
+
+    // Only one finalize call moves a fully uploaded session on; the others find it finalizing
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update UploadSession s set s.status = 'FINALIZING', s.updatedAt = :now, s.version = s.version + 1 "
+        + "where s.id = :id and s.status = 'ACTIVE' and s.offsetBytes = s.totalBytes")
+    int startFinalizing(@Param("id") String id, @Param("now") Instant now);
+
+    // Takes over a finalization that was not saved within its lease; the version bump stops the previous owner
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update UploadSession s set s.updatedAt = :now, s.version = s.version + 1 "
+        + "where s.id = :id and s.status = 'FINALIZING' and s.updatedAt < :before")
+    int resumeFinalizing(@Param("id") String id, @Param("before") Instant before, @Param("now") Instant now);
+}
@@ -1,16 +1,58 @@
 package com.example.e_learn.repository;
 
 import com.example.e_learn.model.Video;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Optional;
 
 public interface VideoRepository extends JpaRepository<Video, Long> {
+    // Serializes the jobs queued for one video across nodes
+    @Query(value = "select id from video where id = :id for update", nativeQuery = true)
+    Optional<Long> lockId(@Param("id") Long id);
+
     List<Video> findByLessonIdOrderByOrderIndexAsc(Long lessonId);
     void deleteByLessonId(Long lessonId);
-}
-
-
-
-
-
 
+    @Modifying
+    @Query("update Video v set v.hlsStatus = :status, v.hlsPath = :path where v.id = :id")
+    int updateHls(@Param("id") Long id, @Param("status") String status, @Param("path") String path);
+
+    @Modifying
+    @Query("update Video v set v.thumbnailStatus = :status, v.thumbnailPath = :path where v.id = :id")
+    int updateThumbnails(@Param("id") Long id, @Param("status") String status, @Param("path") String path);
+
+    // Rows migrated to object-key addressing no longer keep the signed URL
+    @Transactional
+    @Modifying
+    @Query("update Video v set v.videoUrl = null where v.media.objectKey is not null and v.videoUrl is not null")
+    int clearUrlsOfKeyedMedia();
+
+    @Query("select v from Video v where v.media.objectKey is null and v.videoUrl is not null and v.id > :after order by v.id")
+    List<Video> findUnkeyedAfter(@Param("after") Long after, Pageable page);
+
+    // Stored videos whose container was never probed, in id order for keyset pagination
+    @Query("select v from Video v where v.media.objectKey is not null and v.videoCodec is null and v.id > :after order by v.id")
+    List<Video> findUnprobedAfter(@Param("after") Long after, Pageable page);
+
+    @Modifying
+    @Query("update Video v set v.transcript = :transcript where v.id = :id")
+    int updateTranscript(@Param("id") Long id, @Param("transcript") String transcript);
+
+    // Keyset page of videos for a transcription backfill: without a stored transcript, whose latest
+    // job failed, or recognized by another model version; videos with a job in progress are passed over
+    @Query("select v.id from Video v where v.id > :after and (v.media.objectKey is not null or v.videoUrl is not null) "
+        + "and not exists (select j.id from TranscriptionJob j where j.targetType = 'VIDEO' and j.targetId = v.id and j.status in ('QUEUED', 'RUNNING')) "
+        + "and ((:missing = true and not exists (select t.id from StoredTranscript t where t.targetType = 'VIDEO' and t.targetId = v.id)) "
+        + "or (:stale = true and exists (select t.id from StoredTranscript t where t.targetType = 'VIDEO' and t.targetId = v.id "
+        + "and (t.modelVersion is null or t.modelVersion <> :model))) "
+        + "or (:failed = true and exists (select j.id from TranscriptionJob j where j.targetType = 'VIDEO' and j.targetId = v.id and j.status = 'FAILED' "
+        + "and j.id = (select max(k.id) from TranscriptionJob k where k.targetType = 'VIDEO' and k.targetId = v.id)))) "
+        + "order by v.id")
+    List<Long> findTranscriptionCandidates(@Param("after") Long after, @Param("missing") boolean missing, @Param("failed") boolean failed,
+                                           @Param("stale") boolean stale, @Param("model") String modelVersion, Pageable page);
+}
@@ -0,0 +1,98 @@
+package com.example.e_learn.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A satisfiable byte range of an object, inclusive on both ends (RFC 7233).
+ */
+public record ByteRange(long start, long end) {
+
+    /**
+     * Upper bound on the number of ranges honoured in a single request;
+     * longer range sets are ignored and the full representation is served.
+     */
+    static final int MAX_RANGES = 16;
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     * Parse a Range header against an object of the given size.
+     * Returns null when the header is absent, malformed or cannot be applied
+     * (the full object should then be served with 200), and an empty list when
+     * the header is valid but none of its ranges is satisfiable (416).
+     * Supports first-last, open ended (N-) and suffix (-N) specs.
+     */
+    public static List<ByteRange> parse(String header, long size) {
+        if (header == null || size < 0 || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        try {
+            for (String raw : specs) {
+                String spec = raw.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // Suffix range: the final N bytes
+                    if (last.isEmpty()) {
+                        return null;
+                    }
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix == 0 || size == 0) {
+                        continue; // unsatisfiable
+                    }
+                    ranges.add(new ByteRange(Math.max(0, size - suffix), size - 1));
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start >= size) {
+                        continue; // unsatisfiable
+                    }
+                    ranges.add(new ByteRange(start, Math.min(end, size - 1)));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges;
+    }
+
+    /**
+     * Sort the ranges and merge any that overlap or touch, so no byte is sent twice.
+     */
+    public static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        List<ByteRange> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> Long.compare(a.start, b.start));
+        List<ByteRange> merged = new ArrayList<>(sorted.size());
+        for (ByteRange r : sorted) {
+            ByteRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && r.start <= last.end + 1) {
+                merged.set(merged.size() - 1, new ByteRange(last.start, Math.max(last.end, r.end)));
+            } else {
+                merged.add(r);
+            }
+        }
+        return merged;
+    }
+}
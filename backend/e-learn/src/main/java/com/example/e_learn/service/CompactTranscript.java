@@ -0,0 +1,316 @@
+package com.example.e_learn.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Word-level transcript held in primitive arrays: each word is an index into
+ * a dictionary of distinct words plus start and end times in milliseconds,
+ * ordered by start. The encoded form stores the dictionary once (most
+ * frequent words first, so their ids take one byte) and the times as varint
+ * deltas, a few bytes per word.
+ */
+public final class CompactTranscript {
+    private static final byte[] MAGIC = "TRS1".getBytes(StandardCharsets.US_ASCII);
+
+    public static final CompactTranscript EMPTY = new CompactTranscript(new String[0], new int[0], new int[0], new int[0]);
+
+    private final String[] dictionary;
+    private final int[] wordIds;
+    private final int[] startMs;
+    private final int[] endMs;
+
+    private CompactTranscript(String[] dictionary, int[] wordIds, int[] startMs, int[] endMs) {
+        this.dictionary = dictionary;
+        this.wordIds = wordIds;
+        this.startMs = startMs;
+        this.endMs = endMs;
+    }
+
+    public static CompactTranscript of(List<TranscriptService.Word> words) {
+        Builder builder = new Builder();
+        for (TranscriptService.Word w : words) {
+            builder.add(w.word(), w.start(), w.end());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects words straight into primitive arrays, so a transcript being
+     * read from the ASR never exists as a list of objects.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> words = new ArrayList<>();
+        private int[] wordIds = new int[256];
+        private int[] startMs = new int[256];
+        private int[] endMs = new int[256];
+        private int size;
+        private boolean ordered = true;
+
+        /**
+         * Append a word; times are in seconds.
+         */
+        public Builder add(String word, double start, double end) {
+            if (size == wordIds.length) {
+                wordIds = Arrays.copyOf(wordIds, size * 2);
+                startMs = Arrays.copyOf(startMs, size * 2);
+                endMs = Arrays.copyOf(endMs, size * 2);
+            }
+            Integer id = ids.get(word);
+            if (id == null) {
+                id = words.size();
+                ids.put(word, id);
+                words.add(word);
+            }
+            int s = (int) Math.max(0, Math.round(start * 1000));
+            wordIds[size] = id;
+            startMs[size] = s;
+            endMs[size] = (int) Math.max(s, Math.round(end * 1000));
+            if (size > 0 && s < startMs[size - 1]) {
+                ordered = false;
+            }
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public CompactTranscript build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            // Most frequent words get the smallest ids
+            int[] counts = new int[words.size()];
+            for (int i = 0; i < size; i++) {
+                counts[wordIds[i]]++;
+            }
+            Integer[] byFrequency = new Integer[words.size()];
+            for (int i = 0; i < byFrequency.length; i++) {
+                byFrequency[i] = i;
+            }
+            Arrays.sort(byFrequency, Comparator.comparingInt((Integer id) -> -counts[id]).thenComparing(words::get));
+            String[] dictionary = new String[byFrequency.length];
+            int[] remap = new int[byFrequency.length];
+            for (int i = 0; i < byFrequency.length; i++) {
+                dictionary[i] = words.get(byFrequency[i]);
+                remap[byFrequency[i]] = i;
+            }
+            int[] order = null;
+            if (!ordered) {
+                // Stable sort by start: the start in the high bits, the position in the low ones
+                long[] keys = new long[size];
+                for (int i = 0; i < size; i++) {
+                    keys[i] = ((long) startMs[i] << 32) | i;
+                }
+                Arrays.sort(keys);
+                order = new int[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = (int) keys[i];
+                }
+            }
+            int[] ids = new int[size];
+            int[] starts = new int[size];
+            int[] ends = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = order != null ? order[i] : i;
+                ids[i] = remap[wordIds[from]];
+                starts[i] = startMs[from];
+                ends[i] = endMs[from];
+            }
+            return new CompactTranscript(dictionary, ids, starts, ends);
+        }
+    }
+
+    public int size() {
+        return wordIds.length;
+    }
+
+    public boolean isEmpty() {
+        return wordIds.length == 0;
+    }
+
+    public String word(int i) {
+        return dictionary[wordIds[i]];
+    }
+
+    public int startMs(int i) {
+        return startMs[i];
+    }
+
+    public int endMs(int i) {
+        return endMs[i];
+    }
+
+    /**
+     * End of the last word, in milliseconds.
+     */
+    public int durationMs() {
+        int max = 0;
+        for (int end : endMs) {
+            max = Math.max(max, end);
+        }
+        return max;
+    }
+
+    /**
+     * Index of the first word starting at or after {@code timeMs}, or
+     * {@link #size()} when there is none.
+     */
+    public int ceiling(long timeMs) {
+        int lo = 0;
+        int hi = startMs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (startMs[mid] < timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Words heard between {@code fromMs} and {@code toMs}: those starting in
+     * the window, plus the word already being spoken at {@code fromMs}.
+     */
+    public List<TranscriptService.Word> window(long fromMs, long toMs) {
+        int from = ceiling(fromMs);
+        if (from > 0 && endMs[from - 1] > fromMs) {
+            from--;
+        }
+        int to = ceiling(toMs);
+        List<TranscriptService.Word> words = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            words.add(new TranscriptService.Word(word(i), startMs[i] / 1000.0, endMs[i] / 1000.0));
+        }
+        return words;
+    }
+
+    public String text() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordIds.length; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Approximate heap size, for the transcript cache.
+     */
+    public long footprintBytes() {
+        long bytes = 64 + wordIds.length * 12L;
+        for (String w : dictionary) {
+            bytes += 48 + w.length();
+        }
+        return bytes;
+    }
+
+    // Encoding: magic, dictionary size and entries (length, UTF-8), word count,
+    // then the word ids, the start deltas and the word durations as varints
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + dictionary.length * 8 + wordIds.length * 4);
+        out.writeBytes(MAGIC);
+        writeVarint(out, dictionary.length);
+        for (String w : dictionary) {
+            byte[] bytes = w.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+        writeVarint(out, wordIds.length);
+        for (int id : wordIds) {
+            writeVarint(out, id);
+        }
+        int last = 0;
+        for (int start : startMs) {
+            writeVarint(out, start - last);
+            last = start;
+        }
+        for (int i = 0; i < endMs.length; i++) {
+            writeVarint(out, endMs[i] - startMs[i]);
+        }
+        return out.toByteArray();
+    }
+
+    public static CompactTranscript decode(byte[] data) throws IOException {
+        if (data.length < MAGIC.length || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a compact transcript");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, MAGIC.length, data.length - MAGIC.length);
+        try {
+            int words = readVarint(in);
+            if (words > data.length) {
+                throw new IOException("Corrupt transcript");
+            }
+            String[] dictionary = new String[words];
+            for (int i = 0; i < words; i++) {
+                byte[] bytes = new byte[readVarint(in)];
+                in.get(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int count = readVarint(in);
+            if (count > data.length) {
+                throw new IOException("Corrupt transcript");
+            }
+            int[] wordIds = new int[count];
+            int[] startMs = new int[count];
+            int[] endMs = new int[count];
+            for (int i = 0; i < count; i++) {
+                wordIds[i] = readVarint(in);
+                if (wordIds[i] >= dictionary.length) {
+                    throw new IOException("Corrupt transcript");
+                }
+            }
+            int time = 0;
+            for (int i = 0; i < count; i++) {
+                time += readVarint(in);
+                startMs[i] = time;
+            }
+            for (int i = 0; i < count; i++) {
+                endMs[i] = startMs[i] + readVarint(in);
+            }
+            return count == 0 ? EMPTY : new CompactTranscript(dictionary, wordIds, startMs, endMs);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated transcript");
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get() & 0xff;
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Corrupt transcript");
+    }
+}
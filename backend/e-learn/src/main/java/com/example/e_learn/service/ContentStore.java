@@ -0,0 +1,156 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.StoredObject;
+import com.example.e_learn.repository.StoredObjectRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Reference counts for content-addressed objects ({@code sha256/<hex>}).
+ * Every upload that resolves to a key holds one reference; deleting or
+ * replacing the row releases it, and the object is removed from the bucket
+ * once no row uses it. Objects stored under other (legacy) keys are not
+ * tracked and never removed here.
+ */
+@Service
+public class ContentStore {
+    public static final String KEY_PREFIX = "sha256/";
+
+    // The bytes under a content-addressed key never change
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private StoredObjectRepository repository;
+
+    @Autowired
+    private MediaStorage storage;
+
+    private final TransactionTemplate releaseTransaction;
+
+    public ContentStore(PlatformTransactionManager transactionManager) {
+        releaseTransaction = new TransactionTemplate(transactionManager);
+        releaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public static String keyFor(String sha256) {
+        return KEY_PREFIX + sha256;
+    }
+
+    public static boolean isContentAddressed(String objectKey) {
+        return objectKey != null && objectKey.startsWith(KEY_PREFIX);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * SHA-256 of a stream, read to the end.
+     */
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        try (DigestInputStream hashing = new DigestInputStream(in, digest)) {
+            hashing.transferTo(OutputStream.nullOutputStream());
+        }
+        return hex(digest);
+    }
+
+    /**
+     * Take a reference on an object that is already stored. Returns null when
+     * the key is unknown and the bytes still have to be written.
+     */
+    public StoredObject reference(String objectKey) {
+        if (repository.addReference(objectKey) == 0) {
+            return null;
+        }
+        return repository.findById(objectKey).orElse(null);
+    }
+
+    /**
+     * Record a freshly written object with one reference. If another upload
+     * of the same bytes registered it in the meantime, join that row instead.
+     */
+    public void register(ObjectMetadata meta, String sha256) {
+        if (repository.addReference(meta.objectName()) == 1) {
+            return;
+        }
+        StoredObject stored = new StoredObject();
+        stored.setObjectKey(meta.objectName());
+        stored.setSha256(sha256);
+        stored.setSizeBytes(meta.size());
+        stored.setEtag(meta.etag());
+        stored.setContentType(meta.contentType());
+        stored.setRefCount(1);
+        stored.setCreatedAt(Instant.now());
+        try {
+            repository.saveAndFlush(stored);
+        } catch (DataIntegrityViolationException e) {
+            repository.addReference(meta.objectName());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMediaReleased(MediaReleasedEvent event) {
+        try {
+            release(event.objectKey());
+        } catch (Exception e) {
+            System.err.println("Failed to release " + event.objectKey() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop one reference and remove the object when it was the last. The row
+     * stays locked while the object is removed, so a concurrent upload of the
+     * same bytes waits and then writes it again.
+     */
+    public void release(String objectKey) {
+        if (!isContentAddressed(objectKey)) {
+            return;
+        }
+        releaseTransaction.executeWithoutResult(status -> {
+            StoredObject stored = repository.lockByKey(objectKey).orElse(null);
+            if (stored == null) {
+                return;
+            }
+            if (stored.getRefCount() > 1) {
+                stored.setRefCount(stored.getRefCount() - 1);
+                return;
+            }
+            try {
+                storage.delete(objectKey);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to remove " + objectKey, e);
+            }
+            try {
+                storage.delete(KeyframeIndex.sidecarKey(objectKey));
+            } catch (Exception e) {
+                System.err.println("Failed to remove keyframe index of " + objectKey + ": " + e.getMessage());
+            }
+            repository.delete(stored);
+            System.out.println("Removed unreferenced object " + objectKey);
+        });
+    }
+}
@@ -2,8 +2,10 @@ package com.example.e_learn.service;
 
 import com.example.e_learn.model.Lesson;
 import com.example.e_learn.model.Document;
+import com.example.e_learn.model.MediaObject;
 import com.example.e_learn.repository.DocumentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +20,9 @@ public class DocumentService {
     @Autowired
     private LessonService lessonService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Document> getDocumentsByLessonId(Long lessonId) {
         return documentRepository.findByLessonIdOrderByOrderIndexAsc(lessonId);
     }
@@ -33,11 +38,17 @@ public class DocumentService {
 
     @Transactional
     public void deleteDocument(Long id) {
-        documentRepository.deleteById(id);
+        documentRepository.findById(id).ifPresent(document -> {
+            if (document.getMedia() != null && document.getMedia().getObjectKey() != null) {
+                // The stored object is released once the deletion commits
+                eventPublisher.publishEvent(new MediaReleasedEvent(document.getMedia().getObjectKey()));
+            }
+            documentRepository.delete(document);
+        });
     }
 
     @Transactional
-    public Document createDocumentForLesson(Long lessonId, String title, String fileUrl, String description, int orderIndex) {
+    public Document createDocumentForLesson(Long lessonId, String title, String fileUrl, MediaObject media, String description, int orderIndex) {
         Optional<Lesson> lessonOpt = lessonService.getLesson(lessonId);
         if (lessonOpt.isEmpty()) {
             throw new IllegalArgumentException("Lesson not found: " + lessonId);
@@ -45,7 +56,9 @@ public class DocumentService {
         
         Document document = new Document();
         document.setTitle(title);
-        document.setFileUrl(fileUrl);
+        // Stored media is addressed by key; the URL is only kept for external links
+        document.setFileUrl(media != null && media.getObjectKey() != null ? null : fileUrl);
+        document.setMedia(media);
         document.setDescription(description);
         document.setOrderIndex(orderIndex);
         document.setLesson(lessonOpt.get());
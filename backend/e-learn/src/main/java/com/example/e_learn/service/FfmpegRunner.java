@@ -0,0 +1,58 @@
+package com.example.e_learn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the local ffmpeg binary for background media jobs.
+ */
+@Service
+public class FfmpegRunner {
+    @Value("${media.ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+
+    @Value("${media.ffmpeg.timeout-minutes:120}")
+    private long timeoutMinutes;
+
+    /**
+     * Run ffmpeg with the given arguments in {@code workDir}; output goes to
+     * ffmpeg.log there and its tail is included in the exception on failure.
+     */
+    public void run(Path workDir, List<String> args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpegPath);
+        command.add("-hide_banner");
+        command.add("-nostdin");
+        command.add("-y");
+        command.addAll(args);
+        Path log = workDir.resolve("ffmpeg.log");
+        Process process = new ProcessBuilder(command)
+            .directory(workDir.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+            .start();
+        if (!process.waitFor(timeoutMinutes, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IOException("ffmpeg timed out after " + timeoutMinutes + " minutes");
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("ffmpeg exited with " + process.exitValue() + ": " + tail(log));
+        }
+    }
+
+    private static String tail(Path log) {
+        try {
+            List<String> lines = Files.readAllLines(log);
+            return String.join("\n", lines.subList(Math.max(0, lines.size() - 5), lines.size()));
+        } catch (IOException e) {
+            return "(no ffmpeg output)";
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.e_learn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Media stored in a local directory, for single-node deployments, edge nodes
+ * and tests. Objects live under {@code data/<key>} with their content type and
+ * ETag (MD5, as S3 reports for single-part objects) in {@code meta/<key>}.
+ * Because objects are plain files, media responses can be sent with sendfile.
+ */
+@Service
+@ConditionalOnProperty(name = "media.storage.backend", havingValue = "filesystem")
+public class FileSystemMediaStorage implements MediaStorage {
+
+    private final Path data;
+    private final Path meta;
+    private final Path tmp;
+
+    public FileSystemMediaStorage(@Value("${media.storage.fs.root:./media-store}") String root) {
+        Path base = Path.of(root).toAbsolutePath().normalize();
+        this.data = base.resolve("data");
+        this.meta = base.resolve("meta");
+        this.tmp = base.resolve("tmp");
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        Files.createDirectories(data);
+        Files.createDirectories(meta);
+        Files.createDirectories(tmp);
+    }
+
+    @Override
+    public String put(String key, InputStream in, long size, String contentType, Map<String, String> headers) throws Exception {
+        prepare();
+        Path target = resolve(data, key);
+        Path staged = Files.createTempFile(tmp, "put", ".tmp");
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            try (InputStream hashing = new DigestInputStream(size < 0 ? in : boundedStream(in, size), md5);
+                 OutputStream out = Files.newOutputStream(staged)) {
+                long written = hashing.transferTo(out);
+                if (size >= 0 && written != size) {
+                    throw new IOException("Expected " + size + " bytes for " + key + ", got " + written);
+                }
+            }
+            String etag = HexFormat.of().formatHex(md5.digest());
+            writeMeta(key, contentType, etag);
+            Files.createDirectories(target.getParent());
+            Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return etag;
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(existing(key), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return length < 0 ? in : boundedStream(in, length);
+    }
+
+    @Override
+    public ObjectMetadata stat(String key) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(existing(key), BasicFileAttributes.class);
+        Properties properties = readMeta(key);
+        String etag = properties.getProperty("etag");
+        if (etag == null) {
+            // Files placed without going through put: size and mtime identify the version
+            etag = Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+        }
+        String contentType = properties.getProperty("contentType");
+        if (contentType == null) {
+            contentType = Files.probeContentType(existing(key));
+        }
+        return new ObjectMetadata(key, attributes.size(), etag, contentType, attributes.lastModifiedTime().toInstant());
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(data, key));
+        Files.deleteIfExists(resolve(meta, key));
+    }
+
+    @Override
+    public void deletePrefix(String prefix) throws IOException {
+        for (Path dir : new Path[] {data, meta}) {
+            Path root = resolve(dir, prefix);
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * A rename, so no bytes are copied.
+     */
+    @Override
+    public String move(String from, String to, String contentType, Map<String, String> headers) throws IOException {
+        String etag = stat(from).etag();
+        Path target = resolve(data, to);
+        Files.createDirectories(target.getParent());
+        writeMeta(to, contentType, etag);
+        Files.move(existing(from), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(resolve(meta, from));
+        return etag;
+    }
+
+    @Override
+    public Path localFile(String key) {
+        Path file = resolve(data, key);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private Path existing(String key) throws NoSuchFileException {
+        Path file = resolve(data, key);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(key);
+        }
+        return file;
+    }
+
+    // Keys come from requests (e.g. HLS paths), so they must not escape the store
+    private static Path resolve(Path dir, String key) {
+        Path file = dir.resolve(key).normalize();
+        if (!file.startsWith(dir) || file.equals(dir)) {
+            throw new IllegalArgumentException("Invalid object key: " + key);
+        }
+        return file;
+    }
+
+    private void writeMeta(String key, String contentType, String etag) throws IOException {
+        Properties properties = new Properties();
+        if (contentType != null) {
+            properties.setProperty("contentType", contentType);
+        }
+        properties.setProperty("etag", etag);
+        Path file = resolve(meta, key);
+        Files.createDirectories(file.getParent());
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(out, null);
+        }
+    }
+
+    private Properties readMeta(String key) throws IOException {
+        Properties properties = new Properties();
+        Path file = resolve(meta, key);
+        if (Files.isRegularFile(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+
+    private static InputStream boundedStream(InputStream in, long length) {
+        return new InputStream() {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(in.available(), remaining);
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+}
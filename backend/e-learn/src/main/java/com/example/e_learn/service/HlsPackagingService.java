@@ -0,0 +1,188 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Video;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Packages uploaded videos into multi-bitrate HLS with the local ffmpeg.
+ * Each run writes its playlists and segments under hls/{videoId}/{run}/, so
+ * everything below the master playlist is immutable and a re-package never
+ * changes bytes a client may already have cached. The previous run is removed
+ * once a new one is ready, and hls/{videoId}/ when the video is deleted.
+ */
+@Service
+public class HlsPackagingService {
+    public static final String PLAYLIST_TYPE = "application/vnd.apple.mpegurl";
+    public static final String SEGMENT_TYPE = "video/mp2t";
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private FfmpegRunner ffmpegRunner;
+
+    @Value("${media.hls.enabled:true}")
+    private boolean enabled;
+
+    // height:videoKbps pairs, highest first
+    @Value("${media.hls.renditions:720:2800,480:1400,360:800}")
+    private String renditionSpec;
+
+    @Value("${media.hls.segment-seconds:6}")
+    private int segmentSeconds;
+
+    @Value("${media.hls.audio-kbps:128}")
+    private int audioKbps;
+
+    @Value("${media.work-dir:${java.io.tmpdir}/elearn-media-work}")
+    private String workDir;
+
+    record Rendition(String name, int height, int videoKbps) {}
+
+    @Async("mediaTaskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVideoUploaded(VideoUploadedEvent event) {
+        if (enabled) {
+            packageVideo(event.videoId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVideoDeleted(VideoDeletedEvent event) {
+        deletePrefix("hls/" + event.videoId() + "/");
+    }
+
+    /**
+     * Re-package an existing video in the background.
+     */
+    @Async("mediaTaskExecutor")
+    public void packageAsync(Long videoId) {
+        packageVideo(videoId);
+    }
+
+    public void packageVideo(Long videoId) {
+        Video video = videoService.getVideo(videoId).orElse(null);
+        if (video == null || video.getVideoUrl() == null || video.getVideoUrl().isEmpty()) {
+            return;
+        }
+        String previousPath = video.getHlsPath();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        String prefix = "hls/" + videoId + "/" + run;
+        // The previous packaging keeps being served until this run is ready
+        videoService.updateHls(videoId, "PROCESSING", previousPath);
+        Path dir = null;
+        try {
+            dir = Files.createDirectories(Path.of(workDir, "hls-" + videoId + "-" + run));
+            ObjectMetadata source = minioService.metadataFor(video.getMedia(), video.getVideoUrl());
+            Path input = dir.resolve("source");
+            minioService.downloadTo(source.objectName(), input);
+
+            StringBuilder master = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-INDEPENDENT-SEGMENTS\n");
+            for (Rendition rendition : renditions()) {
+                Path out = Files.createDirectories(dir.resolve(rendition.name()));
+                ffmpegRunner.run(out, ffmpegArgs(rendition));
+                long bandwidth = (long) (rendition.videoKbps() * 1.07 + audioKbps) * 1000;
+                master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(bandwidth).append('\n')
+                    // Relative to /api/videos/{id}/master.m3u8
+                    .append("hls/").append(run).append('/').append(rendition.name()).append("/index.m3u8\n");
+            }
+            Files.writeString(dir.resolve("master.m3u8"), master, StandardCharsets.UTF_8);
+
+            // Segments and variant playlists first, so the master never points at missing objects
+            for (Rendition rendition : renditions()) {
+                try (Stream<Path> files = Files.list(dir.resolve(rendition.name()))) {
+                    for (Path file : files.sorted().toList()) {
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(".ts")) {
+                            minioService.putFile(prefix + "/" + rendition.name() + "/" + name, file, SEGMENT_TYPE);
+                        } else if (name.endsWith(".m3u8")) {
+                            minioService.putFile(prefix + "/" + rendition.name() + "/" + name, file, PLAYLIST_TYPE);
+                        }
+                    }
+                }
+            }
+            minioService.putFile(prefix + "/master.m3u8", dir.resolve("master.m3u8"), PLAYLIST_TYPE);
+            videoService.updateHls(videoId, "READY", prefix);
+            System.out.println("HLS packaging done for video " + videoId + " at " + prefix);
+            if (videoService.getVideo(videoId).isEmpty()) {
+                // Deleted while packaging: its cleanup ran before this run was uploaded
+                deletePrefix("hls/" + videoId + "/");
+            } else if (previousPath != null && !previousPath.equals(prefix)) {
+                deletePrefix(previousPath);
+            }
+        } catch (Exception e) {
+            System.err.println("HLS packaging failed for video " + videoId + ": " + e.getMessage());
+            videoService.updateHls(videoId, "FAILED", previousPath);
+            deletePrefix(prefix);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private List<String> ffmpegArgs(Rendition rendition) {
+        int kbps = rendition.videoKbps();
+        return List.of(
+            "-i", "../source",
+            "-map", "0:v:0", "-map", "0:a:0?",
+            // Never upscale; keep dimensions even for x264
+            "-vf", "scale=w=-2:h='trunc(min(" + rendition.height() + ",ih)/2)*2'",
+            "-c:v", "libx264", "-preset", "veryfast", "-profile:v", "main", "-pix_fmt", "yuv420p",
+            "-b:v", kbps + "k", "-maxrate", (int) (kbps * 1.07) + "k", "-bufsize", (int) (kbps * 1.5) + "k",
+            // Keyframes on segment boundaries so every segment starts independently
+            "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")",
+            "-c:a", "aac", "-b:a", audioKbps + "k", "-ac", "2",
+            "-f", "hls", "-hls_time", String.valueOf(segmentSeconds),
+            "-hls_playlist_type", "vod", "-hls_flags", "independent_segments",
+            "-hls_segment_filename", "seg_%05d.ts",
+            "index.m3u8");
+    }
+
+    List<Rendition> renditions() {
+        List<Rendition> renditions = new ArrayList<>();
+        for (String spec : renditionSpec.split(",")) {
+            String[] parts = spec.trim().split(":");
+            int height = Integer.parseInt(parts[0].trim());
+            renditions.add(new Rendition(height + "p", height, Integer.parseInt(parts[1].trim())));
+        }
+        return renditions;
+    }
+
+    private void deletePrefix(String prefix) {
+        try {
+            minioService.deletePrefix(prefix);
+        } catch (Exception e) {
+            System.err.println("Could not remove " + prefix + ": " + e.getMessage());
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not clean up " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.e_learn.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps presentation times to the byte offsets of the video keyframes of an
+ * MP4 file, so a seek can be served as one range starting at the nearest
+ * keyframe instead of the player guessing byte positions. Built from the
+ * sample tables of the first video track (stts, stss, stsc, stsz, stco/co64)
+ * and stored as a small sidecar object next to the media.
+ */
+public final class KeyframeIndex {
+
+    /** Suffix of the sidecar object holding the encoded index. */
+    public static final String SIDECAR_SUFFIX = ".keyframes";
+
+    /** Index of a file that has no usable video track (or is not MP4). */
+    public static final KeyframeIndex EMPTY = new KeyframeIndex(new long[0], new long[0]);
+
+    private static final byte[] MAGIC = "KFI1".getBytes(StandardCharsets.US_ASCII);
+
+    // Without a sync sample table every sample is a keyframe; keep one entry per interval
+    private static final long MIN_SPACING_MS = 1000;
+
+    private final long[] timesMs;
+    private final long[] offsets;
+
+    private KeyframeIndex(long[] timesMs, long[] offsets) {
+        this.timesMs = timesMs;
+        this.offsets = offsets;
+    }
+
+    public static String sidecarKey(String objectKey) {
+        return objectKey + SIDECAR_SUFFIX;
+    }
+
+    public int size() {
+        return timesMs.length;
+    }
+
+    public boolean isEmpty() {
+        return timesMs.length == 0;
+    }
+
+    public long timeMs(int i) {
+        return timesMs[i];
+    }
+
+    public long offset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * The last keyframe at or before {@code timeMs} (the first one for earlier
+     * times), or -1 when the index is empty.
+     */
+    public int floor(long timeMs) {
+        if (timesMs.length == 0) {
+            return -1;
+        }
+        int found = Arrays.binarySearch(timesMs, timeMs);
+        if (found >= 0) {
+            // Equal timestamps are possible; take the first of them
+            while (found > 0 && timesMs[found - 1] == timeMs) {
+                found--;
+            }
+            return found;
+        }
+        return Math.max(0, -found - 2);
+    }
+
+    /** Approximate heap footprint, for sizing the in-memory cache. */
+    public long footprintBytes() {
+        return 64 + timesMs.length * 16L;
+    }
+
+    // Encoding: magic, entry count, then varint deltas of time and offset per entry
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + timesMs.length * 4);
+        out.writeBytes(MAGIC);
+        writeVarint(out, timesMs.length);
+        long lastTime = 0;
+        long lastOffset = 0;
+        for (int i = 0; i < timesMs.length; i++) {
+            writeVarint(out, timesMs[i] - lastTime);
+            writeVarint(out, offsets[i] - lastOffset);
+            lastTime = timesMs[i];
+            lastOffset = offsets[i];
+        }
+        return out.toByteArray();
+    }
+
+    public static KeyframeIndex decode(byte[] data) throws IOException {
+        if (data.length < MAGIC.length || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a keyframe index");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, MAGIC.length, data.length - MAGIC.length);
+        try {
+            int count = (int) readVarint(in);
+            if (count < 0 || count > data.length) {
+                throw new IOException("Corrupt keyframe index");
+            }
+            long[] times = new long[count];
+            long[] offsets = new long[count];
+            long time = 0;
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                time += readVarint(in);
+                offset += readVarint(in);
+                times[i] = time;
+                offsets[i] = offset;
+            }
+            return count == 0 ? EMPTY : new KeyframeIndex(times, offsets);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated keyframe index");
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get() & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt keyframe index");
+    }
+
+    // Building from the MP4 sample tables
+
+    /**
+     * Build the index of an MP4 object read through {@code reader}. Only the
+     * top-level box headers and the moov box are fetched. Returns EMPTY when
+     * the file is not MP4, has no video track or its tables are inconsistent.
+     */
+    public static KeyframeIndex build(MediaProbe.RangeReader reader, long size) throws IOException {
+        long position = 0;
+        while (position + 8 <= size) {
+            ByteBuffer header = ByteBuffer.wrap(reader.read(position, 16));
+            if (header.limit() < 8) {
+                return EMPTY;
+            }
+            long boxSize = header.getInt(0) & 0xffffffffL;
+            String type = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+            if (boxSize == 1) {
+                if (header.limit() < 16) {
+                    return EMPTY;
+                }
+                boxSize = header.getLong(8);
+            } else if (boxSize == 0) {
+                boxSize = size - position;
+            }
+            if (boxSize < 8 || position + boxSize > size) {
+                return EMPTY;
+            }
+            if (type.equals("moov")) {
+                if (boxSize > Mp4FastStart.MAX_MOOV_BYTES) {
+                    System.err.println("moov box of " + boxSize + " bytes is too large to index");
+                    return EMPTY;
+                }
+                byte[] moov = reader.read(position, (int) boxSize);
+                if (moov.length != boxSize) {
+                    return EMPTY;
+                }
+                return fromMoov(ByteBuffer.wrap(moov));
+            }
+            position += boxSize;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Sample tables of one track, as slices of the moov buffer.
+     */
+    private static final class Tables {
+        String handler;
+        long timescale;
+        ByteBuffer stts;
+        ByteBuffer stss;
+        ByteBuffer stsc;
+        ByteBuffer stsz;
+        ByteBuffer stco;
+        boolean wideOffsets;
+
+        boolean complete() {
+            return "vide".equals(handler) && timescale > 0 && stts != null && stsc != null && stsz != null && stco != null;
+        }
+    }
+
+    static KeyframeIndex fromMoov(ByteBuffer moov) {
+        Tables[] video = new Tables[1];
+        try {
+            // The moov buffer starts with the moov header itself
+            int body = (moov.getInt(0) == 1) ? 16 : 8;
+            findTracks(moov, body, moov.limit(), null, video);
+            return video[0] != null ? fromTables(video[0]) : EMPTY;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Inconsistent sample tables; no keyframe index: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    private static void findTracks(ByteBuffer buf, int from, int to, Tables track, Tables[] video) {
+        int position = from;
+        while (position + 8 <= to && video[0] == null) {
+            long boxSize = buf.getInt(position) & 0xffffffffL;
+            String type = new String(new byte[] {
+                buf.get(position + 4), buf.get(position + 5), buf.get(position + 6), buf.get(position + 7)
+            }, StandardCharsets.ISO_8859_1);
+            int header = 8;
+            if (boxSize == 1) {
+                boxSize = buf.getLong(position + 8);
+                header = 16;
+            } else if (boxSize == 0) {
+                boxSize = to - position;
+            }
+            if (boxSize < header || position + boxSize > to) {
+                return;
+            }
+            int body = position + header;
+            int end = (int) (position + boxSize);
+            switch (type) {
+                case "trak" -> {
+                    Tables tables = new Tables();
+                    findTracks(buf, body, end, tables, video);
+                    if (tables.complete()) {
+                        video[0] = tables;
+                    }
+                }
+                case "mdia", "minf", "stbl" -> findTracks(buf, body, end, track, video);
+                default -> {
+                    if (track != null) {
+                        collect(track, type, buf.slice(body, end - body));
+                    }
+                }
+            }
+            position = end;
+        }
+    }
+
+    private static void collect(Tables track, String type, ByteBuffer body) {
+        switch (type) {
+            case "mdhd" -> track.timescale = body.get(0) == 1 ? body.getInt(20) & 0xffffffffL : body.getInt(12) & 0xffffffffL;
+            case "hdlr" -> track.handler = new String(new byte[] { body.get(8), body.get(9), body.get(10), body.get(11) },
+                StandardCharsets.ISO_8859_1);
+            case "stts" -> track.stts = body;
+            case "stss" -> track.stss = body;
+            case "stsc" -> track.stsc = body;
+            case "stsz" -> track.stsz = body;
+            case "stco" -> track.stco = body;
+            case "co64" -> {
+                track.stco = body;
+                track.wideOffsets = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Walk every sample in decode order, tracking its time (stts) and byte
+     * offset (chunk offset plus the sizes of the earlier samples in its chunk),
+     * and keep the sync samples.
+     */
+    private static KeyframeIndex fromTables(Tables t) {
+        // All full boxes: version and flags first, then the entry count
+        int sttsCount = t.stts.getInt(4);
+        int stscCount = t.stsc.getInt(4);
+        int uniformSize = t.stsz.getInt(4);
+        int sampleCount = t.stsz.getInt(8);
+        int chunkCount = t.stco.getInt(4);
+        int syncCount = t.stss != null ? t.stss.getInt(4) : -1;
+
+        int capacity = syncCount >= 0 ? syncCount : 64;
+        long[] times = new long[Math.max(capacity, 1)];
+        long[] offsets = new long[times.length];
+        int kept = 0;
+
+        int sample = 0; // 1-based number of the current sample once incremented
+        long time = 0;
+        int sttsEntry = 0;
+        long sttsLeft = sttsCount > 0 ? t.stts.getInt(8) & 0xffffffffL : 0;
+        int syncEntry = 0;
+        int stscEntry = 0;
+        long lastKeptMs = Long.MIN_VALUE;
+
+        for (int chunk = 1; chunk <= chunkCount && sample < sampleCount; chunk++) {
+            while (stscEntry + 1 < stscCount && (t.stsc.getInt(8 + (stscEntry + 1) * 12) & 0xffffffffL) <= chunk) {
+                stscEntry++;
+            }
+            long perChunk = t.stsc.getInt(8 + stscEntry * 12 + 4) & 0xffffffffL;
+            long offset = t.wideOffsets ? t.stco.getLong(8 + (chunk - 1) * 8) : t.stco.getInt(8 + (chunk - 1) * 4) & 0xffffffffL;
+            for (long i = 0; i < perChunk && sample < sampleCount; i++) {
+                sample++;
+                boolean sync;
+                if (syncCount < 0) {
+                    sync = true;
+                } else {
+                    while (syncEntry < syncCount && (t.stss.getInt(8 + syncEntry * 4) & 0xffffffffL) < sample) {
+                        syncEntry++;
+                    }
+                    sync = syncEntry < syncCount && (t.stss.getInt(8 + syncEntry * 4) & 0xffffffffL) == sample;
+                }
+                long timeMs = time / t.timescale * 1000 + time % t.timescale * 1000 / t.timescale;
+                if (sync && (syncCount >= 0 || lastKeptMs == Long.MIN_VALUE || timeMs - lastKeptMs >= MIN_SPACING_MS)) {
+                    if (kept == times.length) {
+                        times = Arrays.copyOf(times, kept * 2);
+                        offsets = Arrays.copyOf(offsets, kept * 2);
+                    }
+                    times[kept] = timeMs;
+                    offsets[kept] = offset;
+                    kept++;
+                    lastKeptMs = timeMs;
+                }
+                offset += uniformSize != 0 ? uniformSize : t.stsz.getInt(12 + (sample - 1) * 4) & 0xffffffffL;
+                // Advance the decode time by this sample's delta
+                while (sttsLeft == 0 && sttsEntry + 1 < sttsCount) {
+                    sttsEntry++;
+                    sttsLeft = t.stts.getInt(8 + sttsEntry * 8) & 0xffffffffL;
+                }
+                if (sttsLeft > 0) {
+                    time += t.stts.getInt(8 + sttsEntry * 8 + 4) & 0xffffffffL;
+                    sttsLeft--;
+                }
+            }
+        }
+        if (kept == 0) {
+            return EMPTY;
+        }
+        return new KeyframeIndex(Arrays.copyOf(times, kept), Arrays.copyOf(offsets, kept));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.Video;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the keyframe index of uploaded MP4 videos and keeps the indexes of
+ * recently watched videos in memory. The encoded index is stored as a sidecar
+ * next to the media object ({@code <key>.keyframes}); since media is content
+ * addressed, identical uploads share one index. Videos uploaded before indexes
+ * existed are indexed on their first seek.
+ */
+@Service
+public class KeyframeIndexService {
+    private static final String INDEX_TYPE = "application/octet-stream";
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Value("${media.keyframes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.keyframes.cache-bytes:67108864}")
+    private long cacheBytes;
+
+    // Access-ordered, so iteration starts at the least recently used index
+    private final LinkedHashMap<String, KeyframeIndex> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    @Async("mediaTaskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVideoUploaded(VideoUploadedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Video video = videoService.getVideo(event.videoId()).orElse(null);
+        if (video == null || video.getMedia() == null || video.getMedia().getObjectKey() == null) {
+            return;
+        }
+        try {
+            load(video.getMedia());
+        } catch (Exception e) {
+            System.err.println("Failed to index keyframes of video " + event.videoId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The keyframe index of stored media, or null when indexing is disabled,
+     * the media is an external link or the index cannot be read or built.
+     * An empty index means the file has no seekable video track.
+     */
+    public KeyframeIndex indexFor(MediaObject media) {
+        if (!enabled || media == null || media.getObjectKey() == null) {
+            return null;
+        }
+        synchronized (cache) {
+            KeyframeIndex cached = cache.get(media.getObjectKey());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try {
+            return load(media);
+        } catch (Exception e) {
+            System.err.println("Keyframe index of " + media.getObjectKey() + " unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read the sidecar, building and storing it first when there is none.
+     */
+    private KeyframeIndex load(MediaObject media) throws Exception {
+        String objectKey = media.getObjectKey();
+        String sidecar = KeyframeIndex.sidecarKey(objectKey);
+        KeyframeIndex index;
+        try {
+            index = KeyframeIndex.decode(minioService.readObject(sidecar));
+        } catch (IOException e) {
+            // Missing (NoSuchFileException) or unreadable: rebuild from the sample tables
+            ObjectMetadata meta = minioService.metadataFor(media, null);
+            long started = System.currentTimeMillis();
+            index = KeyframeIndex.build((offset, length) -> {
+                try {
+                    return minioService.readRange(objectKey, offset, length);
+                } catch (IOException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new IOException("Range read of " + objectKey + " failed", ex);
+                }
+            }, meta.size());
+            byte[] encoded = index.encode();
+            minioService.putBytes(sidecar, encoded, INDEX_TYPE);
+            System.out.println("Indexed " + index.size() + " keyframes of " + objectKey + " (" + encoded.length
+                + " bytes) in " + (System.currentTimeMillis() - started) + " ms");
+        }
+        remember(objectKey, index);
+        return index;
+    }
+
+    private void remember(String objectKey, KeyframeIndex index) {
+        synchronized (cache) {
+            KeyframeIndex previous = cache.put(objectKey, index);
+            if (previous != null) {
+                cachedBytes -= previous.footprintBytes();
+            }
+            cachedBytes += index.footprintBytes();
+            Iterator<Map.Entry<String, KeyframeIndex>> it = cache.entrySet().iterator();
+            while (cachedBytes > cacheBytes && it.hasNext()) {
+                Map.Entry<String, KeyframeIndex> eldest = it.next();
+                if (eldest.getKey().equals(objectKey)) {
+                    continue;
+                }
+                it.remove();
+                cachedBytes -= eldest.getValue().footprintBytes();
+            }
+        }
+    }
+}
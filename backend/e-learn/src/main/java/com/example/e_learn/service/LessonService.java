@@ -1,8 +1,10 @@
 package com.example.e_learn.service;
 
 import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
 import com.example.e_learn.repository.LessonRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
@@ -15,11 +17,30 @@ public class LessonService {
     @Autowired
     private LessonRepository lessonRepository;
 
+    @Autowired
+    private TranscriptStore transcriptStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PersistenceContext
     private EntityManager entityManager;
 
     public Lesson saveLesson(Lesson lesson) { return lessonRepository.save(lesson); }
 
+    /**
+     * Save edited lesson fields. A lesson with videos keeps the duration rolled
+     * up from them, whatever the client sent.
+     */
+    @Transactional
+    public Lesson updateLesson(Lesson lesson) {
+        Lesson saved = lessonRepository.saveAndFlush(lesson);
+        if (lessonRepository.rollUpDuration(saved.getId()) > 0) {
+            entityManager.refresh(saved);
+        }
+        return saved;
+    }
+
     public List<Lesson> getAllLessons() { return lessonRepository.findAll(); }
 
     public Optional<Lesson> getLesson(Long id) { return lessonRepository.findById(id); }
@@ -33,7 +54,36 @@ public class LessonService {
         entityManager.createNativeQuery("DELETE FROM user_watched_lessons WHERE lesson_id = :id")
             .setParameter("id", id)
             .executeUpdate();
-        lessonRepository.deleteById(id);
+        lessonRepository.findById(id).ifPresent(lesson -> {
+            // Videos and documents go with the lesson; their stored and derived objects are removed after commit
+            release(lesson.getVideoMedia());
+            lesson.getVideos().forEach(video -> {
+                release(video.getMedia());
+                eventPublisher.publishEvent(new VideoDeletedEvent(video.getId()));
+                transcriptStore.delete(TranscriptionJobService.VIDEO, video.getId());
+            });
+            transcriptStore.delete(TranscriptionJobService.LESSON, id);
+            lesson.getDocuments().forEach(document -> release(document.getMedia()));
+            lessonRepository.delete(lesson);
+        });
+    }
+
+    /**
+     * Point the lesson at a new video, releasing the object it used before.
+     */
+    @Transactional
+    public Lesson replaceVideo(Lesson lesson, String videoUrl, MediaObject videoMedia) {
+        // The new upload took its own reference, even if it resolved to the same object
+        release(lesson.getVideoMedia());
+        lesson.setVideoUrl(videoMedia != null && videoMedia.getObjectKey() != null ? null : videoUrl);
+        lesson.setVideoMedia(videoMedia);
+        return lessonRepository.save(lesson);
+    }
+
+    private void release(MediaObject media) {
+        if (media != null && media.getObjectKey() != null) {
+            eventPublisher.publishEvent(new MediaReleasedEvent(media.getObjectKey()));
+        }
     }
 }
 
@@ -0,0 +1,409 @@
+package com.example.e_learn.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-node cache of fixed-size object blocks kept in local files (served
+ * through the page cache with positional reads). Blocks are keyed by object name, ETag and block index, so a replaced object
+ * never serves stale bytes. Range reads are assembled from cached blocks and
+ * only missing blocks are fetched from the origin; least recently used blocks
+ * are evicted once the cache exceeds its size limit. Sequential readers can
+ * have the following blocks fetched in the background (read-ahead); prefetch
+ * work is bounded by a small pool and dropped rather than queued without limit.
+ */
+@Service
+public class MediaBlockCache {
+
+    /**
+     * Fetches a byte range from the origin store.
+     */
+    @FunctionalInterface
+    public interface RangeLoader {
+        InputStream load(String objectName, long offset, long length) throws Exception;
+    }
+
+    @Value("${media.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.cache.dir:${java.io.tmpdir}/elearn-media-cache}")
+    private String cacheDir;
+
+    @Value("${media.cache.block-size:2097152}")
+    private int blockSize;
+
+    // Capped at half the free space of the cache directory's volume
+    @Value("${media.cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Autowired
+    @Qualifier("mediaPrefetchExecutor")
+    private TaskExecutor prefetchExecutor;
+
+    private Path root;
+
+    // Access-ordered, so iteration starts at the least recently used block
+    private final LinkedHashMap<String, Block> blocks = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Block>> inFlight = new ConcurrentHashMap<>();
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong(); // waited on another reader's origin fetch
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong originBytes = new AtomicLong();
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong prefetchDropped = new AtomicLong();
+
+    private record Block(Path path, int length) {}
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        // Blocks live in their own subdirectory, so clearing them never touches other files under media.cache.dir
+        root = Path.of(cacheDir).resolve("blocks");
+        Files.createDirectories(root);
+        // The index is not persisted, so blocks left by a previous run are unreachable
+        try (Stream<Path> stale = Files.list(root)) {
+            stale.forEach(p -> p.toFile().delete());
+        }
+        long usable = Files.getFileStore(root).getUsableSpace();
+        if (usable > 0 && maxBytes > usable / 2) {
+            System.err.println("Media block cache limited to " + usable / 2 + " bytes, half the free space under " + root);
+            maxBytes = usable / 2;
+        }
+        System.out.println("Media block cache at " + root + " (block=" + blockSize + " bytes, max=" + maxBytes + " bytes)");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Stream {@code length} bytes of the object starting at {@code offset}.
+     * Blocks are resolved lazily as the stream is consumed, so time to first
+     * byte only depends on the first block.
+     */
+    public InputStream open(ObjectMetadata meta, long offset, long length, RangeLoader loader) {
+        return open(meta, offset, length, null, loader);
+    }
+
+    /**
+     * As above; whenever the stream enters a block it tells {@code readAhead}
+     * how far it has got, and fetches as many following blocks of the object
+     * in the background as the answer asks for.
+     */
+    public InputStream open(ObjectMetadata meta, long offset, long length, ReadAhead readAhead, RangeLoader loader) {
+        return new BlockInputStream(meta, offset, length, readAhead, loader);
+    }
+
+    /**
+     * Follows a stream as it is read: called with the offset of the next byte
+     * to serve whenever the stream enters a block, and once more when it is
+     * closed. Returns how many blocks past that point to prefetch.
+     */
+    @FunctionalInterface
+    public interface ReadAhead {
+        int reached(long position);
+    }
+
+    private void prefetch(ObjectMetadata meta, long fromIndex, int count, RangeLoader loader) {
+        long lastIndex = (meta.size() - 1) / blockSize;
+        for (long index = fromIndex; index <= lastIndex && index < fromIndex + count; index++) {
+            String key = blockKey(meta, index);
+            if (inFlight.containsKey(key)) {
+                continue;
+            }
+            synchronized (blocks) {
+                // Plain containsKey does not touch the access order
+                if (blocks.containsKey(key)) {
+                    continue;
+                }
+            }
+            long blockIndex = index;
+            try {
+                prefetchExecutor.execute(() -> {
+                    try {
+                        if (getBlock(meta, blockIndex, loader, true) != null) {
+                            prefetched.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Prefetch of block " + blockIndex + " of " + meta.objectName() + " failed: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                prefetchDropped.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (blocks) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("hits", hits.get());
+            stats.put("misses", misses.get());
+            stats.put("joined", joined.get());
+            stats.put("evictions", evictions.get());
+            stats.put("originBytes", originBytes.get());
+            stats.put("prefetched", prefetched.get());
+            stats.put("prefetchDropped", prefetchDropped.get());
+            stats.put("blocks", blocks.size());
+            stats.put("cachedBytes", cachedBytes);
+            stats.put("maxBytes", maxBytes);
+            stats.put("blockSize", blockSize);
+            return stats;
+        }
+    }
+
+    /**
+     * Resolve a block from the cache or the origin. A prefetch returns null
+     * instead of waiting when the block is already cached or being fetched,
+     * and is not counted. A reader waiting on another reader's fetch of the
+     * same block is counted as joined, neither hit nor miss.
+     */
+    private Block getBlock(ObjectMetadata meta, long index, RangeLoader loader, boolean prefetch) throws Exception {
+        String key = blockKey(meta, index);
+        synchronized (blocks) {
+            if (prefetch && blocks.containsKey(key)) {
+                return null;
+            }
+            Block cached = blocks.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        // Concurrent readers of the same missing block share one origin fetch
+        CompletableFuture<Block> mine = new CompletableFuture<>();
+        CompletableFuture<Block> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            if (prefetch) {
+                return null;
+            }
+            joined.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (java.util.concurrent.CompletionException e) {
+                throw e.getCause() instanceof Exception ex ? ex : e;
+            }
+        }
+        if (!prefetch) {
+            misses.incrementAndGet();
+        }
+        try {
+            Block block = load(meta, index, key, loader);
+            insert(key, block);
+            mine.complete(block);
+            return block;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private Block load(ObjectMetadata meta, long index, String key, RangeLoader loader) throws Exception {
+        long offset = index * blockSize;
+        int length = (int) Math.min(blockSize, meta.size() - offset);
+        Path target = root.resolve(key);
+        Path tmp = Files.createTempFile(root, "fetch", ".tmp");
+        try {
+            try (InputStream in = loader.load(meta.objectName(), offset, length);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                long copied = in.transferTo(out);
+                if (copied != length) {
+                    throw new IOException("Short read for " + meta.objectName() + " block " + index
+                        + ": expected " + length + " bytes, got " + copied);
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        originBytes.addAndGet(length);
+        return new Block(target, length);
+    }
+
+    private void insert(String key, Block block) {
+        synchronized (blocks) {
+            Block previous = blocks.put(key, block);
+            if (previous != null) {
+                cachedBytes -= previous.length();
+            }
+            cachedBytes += block.length();
+            Iterator<Map.Entry<String, Block>> it = blocks.entrySet().iterator();
+            while (cachedBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Block> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                it.remove();
+                cachedBytes -= eldest.getValue().length();
+                evictions.incrementAndGet();
+                // Readers with the file open keep reading it; its space is freed when they close it
+                eldest.getValue().path().toFile().delete();
+            }
+        }
+    }
+
+    private static String blockKey(ObjectMetadata meta, long index) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(meta.objectName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(meta.etag()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16) + "_" + index + ".blk";
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads a range across consecutive cached blocks, holding at most one
+     * block file open.
+     */
+    private class BlockInputStream extends InputStream {
+        private final ObjectMetadata meta;
+        private final RangeLoader loader;
+        private final ReadAhead readAhead;
+        private long position;
+        private long remaining;
+        private FileChannel channel;
+        private long channelPosition;
+        private long channelLimit;
+
+        BlockInputStream(ObjectMetadata meta, long offset, long length, ReadAhead readAhead, RangeLoader loader) {
+            this.meta = meta;
+            this.loader = loader;
+            this.readAhead = readAhead;
+            this.position = offset;
+            this.remaining = length;
+        }
+
+        private boolean advance() throws IOException {
+            if (channel != null && channelPosition < channelLimit) {
+                return true;
+            }
+            closeChannel();
+            if (remaining <= 0) {
+                return false;
+            }
+            long index = position / blockSize;
+            Block block = null;
+            FileChannel opened = null;
+            // An evicted block's file may be gone by the time it is opened; it is then fetched again
+            for (int attempt = 0; opened == null; attempt++) {
+                try {
+                    block = getBlock(meta, index, loader, false);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Failed to load block " + index + " of " + meta.objectName(), e);
+                }
+                try {
+                    opened = FileChannel.open(block.path(), StandardOpenOption.READ);
+                } catch (NoSuchFileException e) {
+                    if (attempt > 0) {
+                        throw e;
+                    }
+                }
+            }
+            int readAheadBlocks = readAhead != null ? readAhead.reached(position) : 0;
+            if (readAheadBlocks > 0) {
+                prefetch(meta, index + 1, readAheadBlocks, loader);
+            }
+            int within = (int) (position - index * blockSize);
+            int take = (int) Math.min(block.length() - within, remaining);
+            if (take <= 0) {
+                opened.close();
+                throw new IOException("Block " + index + " of " + meta.objectName() + " is shorter than expected");
+            }
+            channel = opened;
+            channelPosition = within;
+            channelLimit = within + take;
+            position += take;
+            remaining -= take;
+            return true;
+        }
+
+        private void closeChannel() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == 1 ? one[0] & 0xff : -1;
+        }
+
+        /**
+         * Bytes left in the current block, which can be read without touching the origin.
+         */
+        @Override
+        public int available() {
+            return channel != null ? (int) (channelLimit - channelPosition) : 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            ByteBuffer target = ByteBuffer.wrap(b, off, (int) Math.min(len, channelLimit - channelPosition));
+            int n = channel.read(target, channelPosition);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of a cached block of " + meta.objectName());
+            }
+            channelPosition += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (readAhead != null) {
+                readAhead.reached(position - available());
+            }
+            closeChannel();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.e_learn.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Body of a media response: {@code length} bytes read from a stream, copied
+ * through a pooled buffer. Media endpoints write it with non-blocking servlet
+ * I/O (see {@link MediaBodyWriter}); as a {@link StreamingResponseBody} it can
+ * also be written with plain blocking I/O.
+ */
+public class MediaBody implements StreamingResponseBody {
+    private final InputStream stream;
+    private final long length;
+    private final Supplier<byte[]> bufferSupplier;
+    private final Consumer<byte[]> bufferRecycler;
+
+    public MediaBody(InputStream stream, long length, Supplier<byte[]> bufferSupplier, Consumer<byte[]> bufferRecycler) {
+        this.stream = stream;
+        this.length = length;
+        this.bufferSupplier = bufferSupplier;
+        this.bufferRecycler = bufferRecycler;
+    }
+
+    public InputStream getStream() { return stream; }
+    public long getLength() { return length; }
+
+    byte[] borrowBuffer() {
+        return bufferSupplier.get();
+    }
+
+    void releaseBuffer(byte[] buffer) {
+        bufferRecycler.accept(buffer);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer = borrowBuffer();
+        try (InputStream source = stream) {
+            copy(source, out, buffer, length);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    static long copy(InputStream in, OutputStream out, byte[] buffer, long length) throws IOException {
+        long remaining = length;
+        long copied = 0;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) {
+                break;
+            }
+            out.write(buffer, 0, n);
+            remaining -= n;
+            copied += n;
+        }
+        out.flush();
+        return copied;
+    }
+}
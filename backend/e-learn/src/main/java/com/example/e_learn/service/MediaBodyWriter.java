@@ -0,0 +1,163 @@
+package com.example.e_learn.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a {@link MediaBody} with non-blocking servlet I/O. No thread waits
+ * on a slow client: the container calls back when the socket can take more.
+ * Bytes the stream already holds in memory (e.g. cached blocks) are copied
+ * inline; reads that may block on the origin run on {@code readExecutor}.
+ * The response must already be in async mode.
+ */
+public class MediaBodyWriter implements WriteListener {
+    private final MediaBody body;
+    private final ServletOutputStream out;
+    private final Executor readExecutor;
+    private final Consumer<Throwable> onComplete;
+    private final byte[] buffer;
+
+    // Guarded by this; the buffer belongs to the reader while reading is set
+    private long remaining;
+    private int pending;
+    private boolean reading;
+    private boolean finished;
+    private boolean released;
+    private long lastProgress;
+
+    /**
+     * @param onComplete called once, with null on success or the failure (e.g. client gone)
+     */
+    public MediaBodyWriter(MediaBody body, ServletOutputStream out, Executor readExecutor, Consumer<Throwable> onComplete) {
+        this.body = body;
+        this.out = out;
+        this.readExecutor = readExecutor;
+        this.onComplete = onComplete;
+        this.buffer = body.borrowBuffer();
+        this.remaining = body.getLength();
+        this.lastProgress = System.nanoTime();
+    }
+
+    public void start() {
+        out.setWriteListener(this);
+    }
+
+    @Override
+    public void onWritePossible() {
+        pump();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        synchronized (this) {
+            finish(t);
+        }
+    }
+
+    private synchronized void pump() {
+        if (finished) {
+            return;
+        }
+        try {
+            // isReady() returning false guarantees another onWritePossible call
+            while (out.isReady()) {
+                if (pending > 0) {
+                    out.write(buffer, 0, pending);
+                    pending = 0;
+                    lastProgress = System.nanoTime();
+                } else if (remaining == 0) {
+                    finish(null);
+                    return;
+                } else if (reading) {
+                    return;
+                } else if (body.getStream().available() > 0) {
+                    accept(body.getStream().read(buffer, 0, chunk()));
+                } else {
+                    reading = true;
+                    try {
+                        readExecutor.execute(this::readAhead);
+                    } catch (RuntimeException e) {
+                        reading = false;
+                        throw e;
+                    }
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            finish(e);
+        }
+    }
+
+    /**
+     * Fails the write when no bytes went out for {@code idleMs}, e.g. a client
+     * that stopped reading without closing, so its buffer and stream are released.
+     */
+    public synchronized void expireIfIdle(long idleMs) {
+        if (!finished && System.nanoTime() - lastProgress > TimeUnit.MILLISECONDS.toNanos(idleMs)) {
+            finish(new TimeoutException("No media bytes written for " + idleMs + " ms"));
+        }
+    }
+
+    private void readAhead() {
+        int n;
+        try {
+            n = body.getStream().read(buffer, 0, chunk());
+        } catch (Throwable e) {
+            synchronized (this) {
+                reading = false;
+                finish(e);
+            }
+            return;
+        }
+        synchronized (this) {
+            reading = false;
+            if (finished) {
+                finish(null); // failed while reading; release what was deferred
+                return;
+            }
+            try {
+                accept(n);
+            } catch (IOException e) {
+                finish(e);
+                return;
+            }
+        }
+        pump();
+    }
+
+    private int chunk() {
+        return (int) Math.min(buffer.length, remaining);
+    }
+
+    private void accept(int n) throws IOException {
+        if (n < 0) {
+            throw new EOFException("Media stream ended " + remaining + " bytes early");
+        }
+        remaining -= n;
+        pending = n;
+    }
+
+    private void finish(Throwable failure) {
+        if (!finished) {
+            finished = true;
+            onComplete.accept(failure);
+        }
+        // The reader still owns the stream and buffer until its read returns
+        if (!reading && !released) {
+            released = true;
+            try {
+                body.getStream().close();
+            } catch (IOException ignored) {
+            }
+            body.releaseBuffer(buffer);
+        }
+    }
+}
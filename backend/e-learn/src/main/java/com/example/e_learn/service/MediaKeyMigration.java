@@ -0,0 +1,142 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Document;
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.DocumentRepository;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+/**
+ * Moves rows written before media was addressed by key over to it: the object
+ * key is recovered from the stored URL (once, here, instead of on every
+ * request), the metadata is filled in with a stat, and the signed URL is
+ * dropped. External links are left alone. Safe to run on every start.
+ */
+@Component
+public class MediaKeyMigration implements ApplicationRunner {
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Value("${media.migration.object-keys:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int cleared = videoRepository.clearUrlsOfKeyedMedia()
+                + documentRepository.clearUrlsOfKeyedMedia()
+                + lessonRepository.clearUrlsOfKeyedMedia();
+            int keyed = migrateVideos() + migrateDocuments() + migrateLessons();
+            if (cleared + keyed > 0) {
+                System.out.println("Media key migration: " + keyed + " rows keyed, " + cleared + " stored URLs dropped");
+            }
+        } catch (Exception e) {
+            System.err.println("Media key migration failed: " + e.getMessage());
+        }
+    }
+
+    private int migrateVideos() {
+        int migrated = 0;
+        long after = 0;
+        List<Video> batch;
+        while (!(batch = videoRepository.findUnkeyedAfter(after, PageRequest.of(0, BATCH_SIZE))).isEmpty()) {
+            for (Video video : batch) {
+                after = video.getId();
+                MediaObject media = keyed(video.getVideoUrl());
+                if (media != null) {
+                    video.setMedia(media);
+                    video.setVideoUrl(null);
+                    videoRepository.save(video);
+                    migrated++;
+                }
+            }
+        }
+        return migrated;
+    }
+
+    private int migrateDocuments() {
+        int migrated = 0;
+        long after = 0;
+        List<Document> batch;
+        while (!(batch = documentRepository.findUnkeyedAfter(after, PageRequest.of(0, BATCH_SIZE))).isEmpty()) {
+            for (Document document : batch) {
+                after = document.getId();
+                MediaObject media = keyed(document.getFileUrl());
+                if (media != null) {
+                    document.setMedia(media);
+                    document.setFileUrl(null);
+                    documentRepository.save(document);
+                    migrated++;
+                }
+            }
+        }
+        return migrated;
+    }
+
+    private int migrateLessons() {
+        int migrated = 0;
+        long after = 0;
+        List<Lesson> batch;
+        while (!(batch = lessonRepository.findUnkeyedAfter(after, PageRequest.of(0, BATCH_SIZE))).isEmpty()) {
+            for (Lesson lesson : batch) {
+                after = lesson.getId();
+                MediaObject media = keyed(lesson.getVideoUrl());
+                if (media != null) {
+                    lesson.setVideoMedia(media);
+                    lesson.setVideoUrl(null);
+                    lessonRepository.save(lesson);
+                    migrated++;
+                }
+            }
+        }
+        return migrated;
+    }
+
+    /**
+     * Media for a URL into the bucket, or null for external links and objects
+     * that no longer exist (those rows keep their URL so nothing is lost).
+     */
+    private MediaObject keyed(String url) {
+        String objectKey = minioService.objectKeyFor(url);
+        if (objectKey == null) {
+            return null;
+        }
+        try {
+            ObjectMetadata meta = minioService.metadataForKey(objectKey);
+            MediaObject media = new MediaObject(objectKey, meta.size(), meta.etag(), meta.contentType(), meta.lastModified());
+            media.setBucket(minioService.getBucketName());
+            return media;
+        } catch (NoSuchFileException e) {
+            System.err.println("Media key migration: " + objectKey + " no longer exists; keeping its URL");
+            return null;
+        } catch (Exception e) {
+            System.err.println("Media key migration: failed to stat " + objectKey + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
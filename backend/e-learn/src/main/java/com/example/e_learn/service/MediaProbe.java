@@ -0,0 +1,431 @@
+package com.example.e_learn.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads duration, resolution, codecs and bitrate from the container headers
+ * of an MP4/MOV or Matroska/WebM file through small range reads. Only box and
+ * element headers and the handful of metadata boxes are fetched; media data
+ * and sample tables are skipped by offset, so a probe costs a few KB no matter
+ * how large the file is or whether its moov box sits at the end.
+ */
+public final class MediaProbe {
+
+    /**
+     * Reads a byte range of the object being probed.
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        /** Up to {@code length} bytes at {@code offset}; fewer only at the end of the object. */
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    /**
+     * What was found; fields that could not be determined are null (duration 0).
+     */
+    public record MediaInfo(long durationMs, Integer width, Integer height,
+                            String videoCodec, String audioCodec, Long bitrate) {
+        public int durationSec() {
+            return (int) Math.round(durationMs / 1000.0);
+        }
+    }
+
+    /** Bytes fetched per range read; consecutive headers are usually served from one window. */
+    static final int WINDOW_BYTES = 4096;
+
+    // Upper bound on boxes/elements visited, so a malformed file cannot loop for long
+    private static final int MAX_ELEMENTS = 4096;
+
+    private static final long EBML_MAGIC = 0x1A45DFA3L;
+    private static final long MKV_SEGMENT = 0x18538067L;
+    private static final long MKV_INFO = 0x1549A966L;
+    private static final long MKV_TRACKS = 0x1654AE6BL;
+    private static final long MKV_CLUSTER = 0x1F43B675L;
+    private static final long MKV_TIMECODE_SCALE = 0x2AD7B1L;
+    private static final long MKV_DURATION = 0x4489L;
+    private static final long MKV_TRACK_ENTRY = 0xAEL;
+    private static final long MKV_TRACK_TYPE = 0x83L;
+    private static final long MKV_CODEC_ID = 0x86L;
+    private static final long MKV_VIDEO = 0xE0L;
+    private static final long MKV_PIXEL_WIDTH = 0xB0L;
+    private static final long MKV_PIXEL_HEIGHT = 0xBAL;
+
+    private MediaProbe() {
+    }
+
+    /**
+     * Probe an object of the given size. Returns null when it is not a
+     * recognised container or none of its metadata could be found.
+     */
+    public static MediaInfo probe(RangeReader reader, long size) throws IOException {
+        if (size < 8) {
+            return null;
+        }
+        Window window = new Window(reader, size);
+        ByteBuffer head = window.bytes(0, 8);
+        Found found = new Found();
+        if ((head.getInt(0) & 0xffffffffL) == EBML_MAGIC) {
+            walkMatroska(window, 0, size, found, 0);
+        } else if (isMp4Start(fourcc(head, 4))) {
+            walkMp4(window, 0, size, found, true);
+        } else {
+            return null;
+        }
+        return found.toInfo(size);
+    }
+
+    private static boolean isMp4Start(String type) {
+        return switch (type) {
+            case "ftyp", "moov", "mdat", "wide", "free", "skip" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Metadata collected while walking; per-track values are staged until the track ends.
+     */
+    private static final class Found {
+        long durationMs;
+        long trackDurationMs;
+        Integer width;
+        Integer height;
+        String videoCodec;
+        String audioCodec;
+        int elements;
+        boolean sawInfo;
+        boolean sawTracks;
+
+        // Current track
+        String handler;
+        String codec;
+        Integer trackWidth;
+        Integer trackHeight;
+        long trackType;
+
+        // Movie (MP4) or segment (Matroska) timing
+        long timescale;
+        long timecodeScale = 1_000_000;
+        double matroskaDuration = -1;
+
+        void startTrack() {
+            handler = null;
+            codec = null;
+            trackWidth = null;
+            trackHeight = null;
+            trackType = 0;
+        }
+
+        void endTrack(boolean video, boolean audio) {
+            if (video && videoCodec == null) {
+                videoCodec = codec;
+                if (trackWidth != null && trackWidth > 0 && trackHeight != null && trackHeight > 0) {
+                    width = trackWidth;
+                    height = trackHeight;
+                }
+            } else if (audio && audioCodec == null) {
+                audioCodec = codec;
+            }
+        }
+
+        void count() throws IOException {
+            if (++elements > MAX_ELEMENTS) {
+                throw new IOException("Too many container elements");
+            }
+        }
+
+        MediaInfo toInfo(long size) {
+            if (matroskaDuration > 0) {
+                durationMs = Math.round(matroskaDuration * timecodeScale / 1_000_000.0);
+            }
+            long duration = durationMs > 0 ? durationMs : trackDurationMs;
+            if (duration <= 0 && videoCodec == null && audioCodec == null) {
+                return null;
+            }
+            Long bitrate = duration > 0 ? size * 8 * 1000 / duration : null;
+            return new MediaInfo(Math.max(0, duration), width, height, videoCodec, audioCodec, bitrate);
+        }
+    }
+
+    // MP4 / QuickTime (ISO-BMFF)
+
+    private static void walkMp4(Window w, long from, long to, Found found, boolean topLevel) throws IOException {
+        long position = from;
+        while (position + 8 <= to) {
+            found.count();
+            ByteBuffer header = w.bytes(position, 8);
+            long boxSize = header.getInt(0) & 0xffffffffL;
+            String type = fourcc(header, 4);
+            int headerSize = 8;
+            if (boxSize == 1) {
+                if (position + 16 > to) {
+                    return;
+                }
+                boxSize = w.bytes(position + 8, 8).getLong(0);
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = to - position; // box runs to the end of its parent
+            }
+            if (boxSize < headerSize || position + boxSize > to) {
+                return; // malformed, keep what was found so far
+            }
+            long body = position + headerSize;
+            long end = position + boxSize;
+            int bodySize = (int) Math.min(end - body, Integer.MAX_VALUE);
+            switch (type) {
+                case "moov", "mdia", "minf", "stbl", "mvex" -> walkMp4(w, body, end, found, false);
+                case "trak" -> {
+                    found.startTrack();
+                    walkMp4(w, body, end, found, false);
+                    found.endTrack("vide".equals(found.handler), "soun".equals(found.handler));
+                }
+                case "mvhd" -> readMovieHeader(w, body, bodySize, found);
+                case "mehd" -> readFragmentDuration(w, body, bodySize, found);
+                case "mdhd" -> readMediaHeader(w, body, bodySize, found);
+                case "tkhd" -> readTrackHeader(w, body, bodySize, found);
+                case "hdlr" -> {
+                    if (bodySize >= 12) {
+                        found.handler = fourcc(w.bytes(body, 12), 8);
+                    }
+                }
+                case "stsd" -> {
+                    // version/flags, entry count, then the first sample entry's size and format
+                    if (bodySize >= 16) {
+                        found.codec = fourcc(w.bytes(body, 16), 12).trim();
+                    }
+                }
+                default -> {
+                }
+            }
+            if (topLevel && type.equals("moov")) {
+                return; // everything needed is in the movie box
+            }
+            position = end;
+        }
+    }
+
+    private static void readMovieHeader(Window w, long body, int bodySize, Found found) throws IOException {
+        long[] timing = timing(w, body, bodySize);
+        if (timing != null) {
+            found.timescale = timing[0];
+            found.durationMs = toMillis(timing[1], timing[0]);
+        }
+    }
+
+    // Fragmented files carry the overall duration in mvex/mehd, in the movie timescale
+    private static void readFragmentDuration(Window w, long body, int bodySize, Found found) throws IOException {
+        if (bodySize < 8 || found.timescale <= 0 || found.durationMs > 0) {
+            return;
+        }
+        ByteBuffer b = w.bytes(body, Math.min(bodySize, 12));
+        long duration = b.get(0) == 1 && bodySize >= 12 ? b.getLong(4) : b.getInt(4) & 0xffffffffL;
+        found.durationMs = toMillis(duration, found.timescale);
+    }
+
+    private static void readMediaHeader(Window w, long body, int bodySize, Found found) throws IOException {
+        long[] timing = timing(w, body, bodySize);
+        if (timing != null) {
+            found.trackDurationMs = Math.max(found.trackDurationMs, toMillis(timing[1], timing[0]));
+        }
+    }
+
+    /**
+     * Timescale and duration of an mvhd/mdhd body, or null if it is truncated.
+     */
+    private static long[] timing(Window w, long body, int bodySize) throws IOException {
+        if (bodySize < 20) {
+            return null;
+        }
+        ByteBuffer b = w.bytes(body, Math.min(bodySize, 32));
+        if (b.get(0) == 1) {
+            if (bodySize < 32) {
+                return null;
+            }
+            return new long[] { b.getInt(20) & 0xffffffffL, b.getLong(24) };
+        }
+        long duration = b.getInt(16) & 0xffffffffL;
+        return new long[] { b.getInt(12) & 0xffffffffL, duration == 0xffffffffL ? 0 : duration };
+    }
+
+    // Width and height are the last two 16.16 fixed-point fields of tkhd
+    private static void readTrackHeader(Window w, long body, int bodySize, Found found) throws IOException {
+        if (bodySize < 84) {
+            return;
+        }
+        int dimensions = w.bytes(body, 1).get(0) == 1 ? 88 : 76;
+        if (bodySize < dimensions + 8) {
+            return;
+        }
+        ByteBuffer b = w.bytes(body + dimensions, 8);
+        found.trackWidth = b.getInt(0) >>> 16;
+        found.trackHeight = b.getInt(4) >>> 16;
+    }
+
+    private static long toMillis(long duration, long timescale) {
+        if (timescale <= 0 || duration <= 0) {
+            return 0;
+        }
+        return duration / timescale * 1000 + duration % timescale * 1000 / timescale;
+    }
+
+    // Matroska / WebM (EBML)
+
+    private record Element(long id, long dataOffset, long dataSize) {
+        boolean unknownSize() {
+            return dataSize < 0;
+        }
+    }
+
+    private static void walkMatroska(Window w, long from, long to, Found found, int depth) throws IOException {
+        long position = from;
+        while (position < to) {
+            found.count();
+            Element e = element(w, position, to);
+            if (e == null) {
+                return;
+            }
+            long end = e.unknownSize() ? to : Math.min(to, e.dataOffset() + e.dataSize());
+            long id = e.id();
+            if (id == MKV_CLUSTER) {
+                return; // media data starts; Info and Tracks come before it
+            } else if (id == MKV_SEGMENT || id == MKV_INFO || id == MKV_TRACKS || id == MKV_VIDEO) {
+                walkMatroska(w, e.dataOffset(), end, found, depth + 1);
+                if (id == MKV_INFO) {
+                    found.sawInfo = true;
+                } else if (id == MKV_TRACKS) {
+                    found.sawTracks = true;
+                }
+            } else if (id == MKV_TRACK_ENTRY) {
+                found.startTrack();
+                walkMatroska(w, e.dataOffset(), end, found, depth + 1);
+                found.endTrack(found.trackType == 1, found.trackType == 2);
+            } else if (e.unknownSize()) {
+                return; // cannot skip an element of unknown size
+            } else if (id == MKV_TIMECODE_SCALE) {
+                found.timecodeScale = Math.max(1, readUnsigned(w, e));
+            } else if (id == MKV_DURATION) {
+                found.matroskaDuration = readFloat(w, e);
+            } else if (id == MKV_TRACK_TYPE) {
+                found.trackType = readUnsigned(w, e);
+            } else if (id == MKV_CODEC_ID) {
+                found.codec = codecName(readString(w, e));
+            } else if (id == MKV_PIXEL_WIDTH) {
+                found.trackWidth = (int) readUnsigned(w, e);
+            } else if (id == MKV_PIXEL_HEIGHT) {
+                found.trackHeight = (int) readUnsigned(w, e);
+            }
+            if (id == MKV_SEGMENT || e.unknownSize() || (found.sawInfo && found.sawTracks)) {
+                return; // the rest of the file is clusters, cues and tags
+            }
+            position = end;
+        }
+    }
+
+    /**
+     * The element header at {@code position}, or null when it is malformed.
+     * IDs keep their length marker, as in the Matroska specification.
+     */
+    private static Element element(Window w, long position, long limit) throws IOException {
+        ByteBuffer b = w.bytes(position, (int) Math.min(12, limit - position));
+        int first = b.get(0) & 0xff;
+        int idLength = Integer.numberOfLeadingZeros(first) - 23;
+        if (first == 0 || idLength > 4 || idLength >= b.limit()) {
+            return null;
+        }
+        long id = 0;
+        for (int i = 0; i < idLength; i++) {
+            id = id << 8 | (b.get(i) & 0xff);
+        }
+        int sizeFirst = b.get(idLength) & 0xff;
+        int sizeLength = Integer.numberOfLeadingZeros(sizeFirst) - 23;
+        if (sizeFirst == 0 || idLength + sizeLength > b.limit()) {
+            return null;
+        }
+        long size = sizeFirst & (0xff >> sizeLength);
+        boolean allOnes = size == (0xff >> sizeLength);
+        for (int i = 1; i < sizeLength; i++) {
+            int next = b.get(idLength + i) & 0xff;
+            size = size << 8 | next;
+            allOnes &= next == 0xff;
+        }
+        return new Element(id, position + idLength + sizeLength, allOnes ? -1 : size);
+    }
+
+    private static long readUnsigned(Window w, Element e) throws IOException {
+        if (e.dataSize() < 1 || e.dataSize() > 8) {
+            return 0;
+        }
+        ByteBuffer b = w.bytes(e.dataOffset(), (int) e.dataSize());
+        long value = 0;
+        for (int i = 0; i < e.dataSize(); i++) {
+            value = value << 8 | (b.get(i) & 0xff);
+        }
+        return value;
+    }
+
+    private static double readFloat(Window w, Element e) throws IOException {
+        if (e.dataSize() == 4) {
+            return w.bytes(e.dataOffset(), 4).getFloat(0);
+        } else if (e.dataSize() == 8) {
+            return w.bytes(e.dataOffset(), 8).getDouble(0);
+        }
+        return -1;
+    }
+
+    private static String readString(Window w, Element e) throws IOException {
+        if (e.dataSize() < 1 || e.dataSize() > 64) {
+            return null;
+        }
+        ByteBuffer b = w.bytes(e.dataOffset(), (int) e.dataSize());
+        byte[] text = new byte[b.remaining()];
+        b.get(text);
+        return new String(text, StandardCharsets.US_ASCII).trim();
+    }
+
+    // "V_VP9" -> "vp9", "A_OPUS" -> "opus", "V_MPEG4/ISO/AVC" -> "mpeg4/iso/avc"
+    private static String codecName(String codecId) {
+        if (codecId == null || codecId.isEmpty()) {
+            return null;
+        }
+        String name = codecId.length() > 2 && codecId.charAt(1) == '_' ? codecId.substring(2) : codecId;
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static String fourcc(ByteBuffer b, int at) {
+        return new String(new byte[] { b.get(at), b.get(at + 1), b.get(at + 2), b.get(at + 3) }, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Serves reads from the last fetched window and fetches a new one when a
+     * read falls outside it.
+     */
+    private static final class Window {
+        private final RangeReader reader;
+        private final long size;
+        private long start = -1;
+        private byte[] data = new byte[0];
+
+        Window(RangeReader reader, long size) {
+            this.reader = reader;
+            this.size = size;
+        }
+
+        ByteBuffer bytes(long offset, int length) throws IOException {
+            if (offset < 0 || length < 0 || offset + length > size) {
+                throw new EOFException("Read of " + length + " bytes at " + offset + " is past the end");
+            }
+            if (start < 0 || offset < start || offset + length > start + data.length) {
+                int want = (int) Math.min(Math.max(length, WINDOW_BYTES), size - offset);
+                data = reader.read(offset, want);
+                start = offset;
+                if (data.length < length) {
+                    throw new EOFException("Object ended " + (length - data.length) + " bytes early");
+                }
+            }
+            return ByteBuffer.wrap(data, (int) (offset - start), length).slice();
+        }
+    }
+}
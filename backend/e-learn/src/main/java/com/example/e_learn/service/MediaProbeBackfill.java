@@ -0,0 +1,74 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Probes stored videos uploaded before container metadata was recorded (they
+ * carry a placeholder duration) and rolls the real durations up into their
+ * lessons. Each probe costs a few KB of range reads; runs in the background
+ * on start and only touches rows that were never probed.
+ */
+@Component
+public class MediaProbeBackfill implements ApplicationRunner {
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private MediaProbeService mediaProbeService;
+
+    @Autowired
+    @Qualifier("mediaTaskExecutor")
+    private TaskExecutor executor;
+
+    @Value("${media.probe.backfill:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            executor.execute(this::backfill);
+        }
+    }
+
+    void backfill() {
+        int probed = 0;
+        int failed = 0;
+        long after = 0;
+        try {
+            List<Video> batch;
+            while (!(batch = videoRepository.findUnprobedAfter(after, PageRequest.of(0, BATCH_SIZE))).isEmpty()) {
+                for (Video video : batch) {
+                    after = video.getId();
+                    MediaProbe.MediaInfo info = mediaProbeService.probe(video.getMedia());
+                    if (info != null) {
+                        videoService.applyProbe(video.getId(), info);
+                        probed++;
+                    } else {
+                        failed++; // left as is and retried on the next start
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Media probe backfill stopped after video " + after + ": " + e.getMessage());
+        }
+        if (probed + failed > 0) {
+            System.out.println("Media probe backfill: " + probed + " videos probed, " + failed + " could not be probed");
+        }
+    }
+}
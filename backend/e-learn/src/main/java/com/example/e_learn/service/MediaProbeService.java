@@ -0,0 +1,51 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.MediaObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Probes stored videos for duration, resolution, codecs and bitrate by reading
+ * their container headers with small range requests (see {@link MediaProbe}).
+ */
+@Service
+public class MediaProbeService {
+    @Autowired
+    private MinioService minioService;
+
+    /**
+     * Probe stored media; null when it is not a recognised container or cannot be read.
+     */
+    public MediaProbe.MediaInfo probe(MediaObject media) {
+        if (media == null || media.getObjectKey() == null) {
+            return null;
+        }
+        String objectKey = media.getObjectKey();
+        try {
+            ObjectMetadata meta = minioService.metadataFor(media, null);
+            long[] fetched = new long[1];
+            MediaProbe.MediaInfo info = MediaProbe.probe((offset, length) -> {
+                try {
+                    byte[] bytes = minioService.readRange(objectKey, offset, length);
+                    fetched[0] += bytes.length;
+                    return bytes;
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Range read of " + objectKey + " failed", e);
+                }
+            }, meta.size());
+            if (info == null) {
+                System.err.println("Media probe: " + objectKey + " is not a recognised MP4/WebM container");
+            } else {
+                System.out.println("Probed " + objectKey + " (" + fetched[0] + " bytes read): " + info);
+            }
+            return info;
+        } catch (Exception e) {
+            System.err.println("Media probe of " + objectKey + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+}
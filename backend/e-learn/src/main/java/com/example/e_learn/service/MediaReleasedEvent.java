@@ -0,0 +1,7 @@
+package com.example.e_learn.service;
+
+/**
+ * Published when a row stops referencing a stored object (deleted or replaced).
+ */
+public record MediaReleasedEvent(String objectKey) {
+}
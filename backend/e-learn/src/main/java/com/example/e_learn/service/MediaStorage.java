@@ -0,0 +1,79 @@
+package com.example.e_learn.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Object store behind {@link MinioService}. Keys are bucket-relative object
+ * names; a missing object is reported as {@link java.nio.file.NoSuchFileException}.
+ * Selected with {@code media.storage.backend} (minio or filesystem).
+ */
+public interface MediaStorage {
+
+    /**
+     * Create the bucket or directory on first use.
+     */
+    void prepare() throws Exception;
+
+    /**
+     * Store {@code size} bytes (or the whole stream when size is -1) and return the ETag.
+     * Headers such as Cache-Control are kept where the backend serves objects itself.
+     */
+    String put(String key, InputStream in, long size, String contentType, Map<String, String> headers) throws Exception;
+
+    /**
+     * Stream {@code length} bytes from {@code offset}; a negative length reads to the end.
+     */
+    InputStream get(String key, long offset, long length) throws Exception;
+
+    ObjectMetadata stat(String key) throws Exception;
+
+    void delete(String key) throws Exception;
+
+    /**
+     * Remove every object whose key starts with {@code prefix} (a directory
+     * such as {@code hls/42/}, ending with a slash).
+     */
+    void deletePrefix(String prefix) throws Exception;
+
+    /**
+     * Move an object to a new key with a new content type, returning its ETag there.
+     */
+    String move(String from, String to, String contentType, Map<String, String> headers) throws Exception;
+
+    /**
+     * The file holding the object when it lives on this node, so it can be sent
+     * with zero-copy I/O; null for remote stores.
+     */
+    default Path localFile(String key) {
+        return null;
+    }
+
+    /**
+     * Signed URL clients can fetch the object from directly, or null when the
+     * store cannot be reached by clients.
+     */
+    default String presignedUrl(String key, int expirySeconds, Map<String, String> responseParams) throws Exception {
+        return null;
+    }
+
+    /**
+     * Signed URL services on the backend network (e.g. the speech recognizer)
+     * can fetch the object from, or null when the store has none.
+     */
+    default String internalUrl(String key, int expirySeconds) throws Exception {
+        return null;
+    }
+
+    default boolean supportsPresignedUrls() {
+        return false;
+    }
+
+    /**
+     * Whether S3 multipart uploads (streamed and resumable uploads) are available.
+     */
+    default boolean supportsMultipart() {
+        return false;
+    }
+}
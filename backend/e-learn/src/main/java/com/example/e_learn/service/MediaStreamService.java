@@ -0,0 +1,440 @@
+package com.example.e_learn.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Shared byte-range streaming for video, lesson and document endpoints.
+ * Bytes are copied from storage to the servlet output stream through a pool of
+ * fixed-size buffers, so steady-state streaming allocates nothing per chunk.
+ * Bodies are {@link MediaBody} instances, written with non-blocking I/O;
+ * objects on local disk are sent with sendfile instead.
+ */
+@Service
+public class MediaStreamService {
+    // Request attributes of Tomcat's sendfile support
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private ReadAheadTracker readAheadTracker;
+
+    @Value("${media.stream.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${media.stream.buffer-pool-size:256}")
+    private int bufferPoolSize;
+
+    /**
+     * proxy: bytes flow through the backend; redirect: clients are sent to a
+     * short-lived presigned MinIO URL. Overridable per request with ?delivery=.
+     */
+    @Value("${media.delivery.mode:proxy}")
+    private String deliveryMode;
+
+    // Zero-copy responses for objects kept on local disk
+    @Value("${media.stream.sendfile:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${media.delivery.url-cache.refresh-margin-seconds:120}")
+    private long urlRefreshMarginSeconds;
+
+    private BlockingQueue<byte[]> bufferPool;
+
+    @PostConstruct
+    void initBufferPool() {
+        bufferPool = new ArrayBlockingQueue<>(bufferPoolSize);
+    }
+
+    /**
+     * Response headers common to every media response (content type, CORS, caching).
+     */
+    public HttpHeaders mediaHeaders(MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, OPTIONS");
+        headers.set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "Range, If-Range, If-None-Match, If-Modified-Since, Content-Type, Authorization");
+        headers.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Content-Length, Accept-Ranges, ETag, Last-Modified, X-Keyframe-Time");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.set(HttpHeaders.CACHE_CONTROL, "public, max-age=3600");
+        return headers;
+    }
+
+    /**
+     * Video content type recorded for the object, or guessed from the URL
+     * (defaulting to mp4) when none was recorded.
+     */
+    public static MediaType videoContentType(ObjectMetadata meta, String url) {
+        if (meta.contentType() != null && meta.contentType().startsWith("video/")) {
+            return MediaType.parseMediaType(meta.contentType());
+        }
+        String lower = url.toLowerCase();
+        int query = lower.indexOf('?');
+        if (query >= 0) {
+            lower = lower.substring(0, query);
+        }
+        if (lower.endsWith(".webm")) {
+            return MediaType.parseMediaType("video/webm");
+        } else if (lower.endsWith(".ogg")) {
+            return MediaType.parseMediaType("video/ogg");
+        }
+        return MediaType.parseMediaType("video/mp4");
+    }
+
+    /**
+     * Build the response for a GET or HEAD of the object. Conditional headers are
+     * evaluated against the object's ETag and modification time before any
+     * object stream is opened (304 / 412); the Range header then yields a
+     * single-part 206, a multipart/byteranges 206, a 416 or the full 200.
+     * In redirect delivery mode the client is sent to MinIO instead.
+     */
+    public ResponseEntity<?> stream(ObjectMetadata meta, HttpHeaders headers, HttpServletRequest request) throws Exception {
+        return stream(meta, headers, request, true);
+    }
+
+    /**
+     * As {@link #stream(ObjectMetadata, HttpHeaders, HttpServletRequest)}; responses
+     * that must stay on this origin (e.g. playlists with relative URIs) pass
+     * {@code allowRedirect=false}.
+     */
+    public ResponseEntity<?> stream(ObjectMetadata meta, HttpHeaders headers, HttpServletRequest request,
+                                    boolean allowRedirect) throws Exception {
+        return stream(meta, headers, request, allowRedirect, request.getHeader(HttpHeaders.RANGE));
+    }
+
+    /**
+     * Serve the object from {@code offset} to the end as if the client had sent
+     * {@code Range: bytes=offset-} (a seek resolved on the server, e.g. to a
+     * keyframe). Always proxied, since a redirect would lose the offset.
+     */
+    public ResponseEntity<?> streamFrom(ObjectMetadata meta, HttpHeaders headers, HttpServletRequest request,
+                                        long offset) throws Exception {
+        return stream(meta, headers, request, false, "bytes=" + offset + "-");
+    }
+
+    private ResponseEntity<?> stream(ObjectMetadata meta, HttpHeaders headers, HttpServletRequest request,
+                                     boolean allowRedirect, String rangeHeader) throws Exception {
+        if (allowRedirect && isRedirect(request)) {
+            ResponseEntity<?> redirect = redirect(meta, headers);
+            if (redirect != null) {
+                return redirect;
+            }
+        }
+        long size = meta.size();
+        String etag = meta.etag() != null ? "\"" + meta.etag() + "\"" : null;
+        long lastModified = meta.lastModified() != null
+            ? meta.lastModified().truncatedTo(ChronoUnit.SECONDS).toEpochMilli() : -1;
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        if (lastModified >= 0) {
+            headers.setLastModified(lastModified);
+        }
+
+        HttpStatus precondition = evaluatePreconditions(request, etag, lastModified);
+        if (precondition != null) {
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return ResponseEntity.status(precondition).headers(headers).build();
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        List<ByteRange> ranges = rangeApplies(request, etag, lastModified)
+            ? ByteRange.parse(rangeHeader, size) : null;
+        if (ranges != null && ranges.isEmpty()) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            headers.setContentLength(0);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+
+        if (ranges != null) {
+            ranges = ByteRange.coalesce(ranges);
+            if (ranges.size() > 1) {
+                return multipartRanges(meta, headers, ranges, head);
+            }
+            ByteRange range = ranges.get(0);
+            headers.set(HttpHeaders.CONTENT_RANGE, range.contentRange(size));
+            headers.setContentLength(range.length());
+            if (head) {
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+            }
+            if (sendfile(request, meta, range.start(), range.length())) {
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+            }
+            MediaBlockCache.ReadAhead readAhead = readAheadTracker.record(request, meta, range.start());
+            InputStream in = minioService.getObjectStream(meta, range.start(), range.length(), readAhead);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(copyBody(in, range.length()));
+        }
+
+        headers.setContentLength(size);
+        if (size == 0 || head) {
+            return ResponseEntity.ok().headers(headers).build();
+        }
+        if (sendfile(request, meta, 0, size)) {
+            return ResponseEntity.ok().headers(headers).build();
+        }
+        MediaBlockCache.ReadAhead readAhead = readAheadTracker.record(request, meta, 0);
+        InputStream in = minioService.getObjectStream(meta, 0, size, readAhead);
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(copyBody(in, size));
+    }
+
+    /**
+     * Hand a range of a local file to Tomcat's sendfile support, which writes it
+     * with FileChannel.transferTo after the headers, so the kernel copies the
+     * bytes straight to the socket. False when the object is not a local file
+     * or the connector cannot send files (e.g. TLS).
+     */
+    private boolean sendfile(HttpServletRequest request, ObjectMetadata meta, long start, long length) {
+        if (!sendfileEnabled || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        Path file = minioService.localFile(meta);
+        if (file == null) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME, file.toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, start + length);
+        return true;
+    }
+
+    private boolean isRedirect(HttpServletRequest request) {
+        String requested = request.getParameter("delivery");
+        String mode = requested != null ? requested : deliveryMode;
+        return "redirect".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 302 to a presigned MinIO URL carrying the same content type and
+     * disposition the proxied response would have had. The redirect may be
+     * cached by the client only while the signed URL stays valid. Null when
+     * the storage backend has no client-facing URLs.
+     */
+    private ResponseEntity<?> redirect(ObjectMetadata meta, HttpHeaders headers) throws Exception {
+        MediaType contentType = headers.getContentType();
+        PresignedUrlCache.PresignedUrl signed = minioService.deliveryUrl(meta.objectName(),
+            contentType != null ? contentType.toString() : null,
+            headers.getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        if (signed == null) {
+            return null;
+        }
+        long maxAge = Math.max(0, Duration.between(Instant.now(), signed.expiresAt()).getSeconds()
+            - urlRefreshMarginSeconds);
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .location(URI.create(signed.url()))
+            .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+            .header(HttpHeaders.CACHE_CONTROL, "private, max-age=" + maxAge)
+            .build();
+    }
+
+    /**
+     * RFC 7232 section 6: If-Match / If-Unmodified-Since may fail with 412,
+     * then If-None-Match / If-Modified-Since may answer 304. Returns null when
+     * the request should proceed.
+     */
+    private static HttpStatus evaluatePreconditions(HttpServletRequest request, String etag, long lastModified) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch != null) {
+            if (!etagMatches(ifMatch, etag, false)) {
+                return HttpStatus.PRECONDITION_FAILED;
+            }
+        } else {
+            long ifUnmodifiedSince = dateHeader(request, HttpHeaders.IF_UNMODIFIED_SINCE);
+            if (ifUnmodifiedSince >= 0 && lastModified >= 0 && lastModified > ifUnmodifiedSince) {
+                return HttpStatus.PRECONDITION_FAILED;
+            }
+        }
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return etagMatches(ifNoneMatch, etag, true) ? HttpStatus.NOT_MODIFIED : null;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince >= 0 && lastModified >= 0 && lastModified <= ifModifiedSince) {
+            return HttpStatus.NOT_MODIFIED;
+        }
+        return null;
+    }
+
+    /**
+     * If-Range: the Range header is only honoured when the client's validator
+     * still identifies the current representation, so stale partial content is
+     * never spliced onto a newer object.
+     */
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return etag != null && ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && date == lastModified;
+    }
+
+    private static boolean etagMatches(String header, String etag, boolean weak) {
+        if (header.trim().equals("*")) {
+            return etag != null;
+        }
+        if (etag == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                if (!weak) {
+                    continue; // weak tags never match strongly
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1; // unparseable dates are ignored
+        }
+    }
+
+    /**
+     * 206 multipart/byteranges response; each part is read from storage only
+     * when the body is written.
+     */
+    private ResponseEntity<?> multipartRanges(ObjectMetadata meta, HttpHeaders headers, List<ByteRange> ranges, boolean head) {
+        String boundary = "MEDIA_" + UUID.randomUUID().toString().replace("-", "");
+        MediaType partType = headers.getContentType();
+        String[] partHeaders = new String[ranges.size()];
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            partHeaders[i] = "\r\n--" + boundary + "\r\n"
+                + (partType != null ? HttpHeaders.CONTENT_TYPE + ": " + partType + "\r\n" : "")
+                + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(meta.size()) + "\r\n\r\n";
+            contentLength += partHeaders[i].length() + range.length();
+        }
+        String trailer = "\r\n--" + boundary + "--\r\n";
+        contentLength += trailer.length();
+
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        headers.setContentLength(contentLength);
+        if (head) {
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+        }
+        List<InputStream> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            parts.add(new ByteArrayInputStream(partHeaders[i].getBytes(StandardCharsets.US_ASCII)));
+            parts.add(new LazyRangeStream(meta, range));
+        }
+        parts.add(new ByteArrayInputStream(trailer.getBytes(StandardCharsets.US_ASCII)));
+        InputStream in = new SequenceInputStream(Collections.enumeration(parts));
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(copyBody(in, contentLength));
+    }
+
+    /**
+     * One part of a multipart response; the object range is only opened once the part is reached.
+     */
+    private class LazyRangeStream extends InputStream {
+        private final ObjectMetadata meta;
+        private final ByteRange range;
+        private InputStream in;
+
+        LazyRangeStream(ObjectMetadata meta, ByteRange range) {
+            this.meta = meta;
+            this.range = range;
+        }
+
+        private InputStream in() throws IOException {
+            if (in == null) {
+                try {
+                    in = minioService.getObjectStream(meta, range.start(), range.length());
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Failed to read range " + range.contentRange(meta.size()), e);
+                }
+            }
+            return in;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in != null ? in.available() : 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return in().read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Body that copies {@code length} bytes from the stream with a pooled buffer, closing the stream when done.
+     */
+    private MediaBody copyBody(InputStream in, long length) {
+        return new MediaBody(in, length, this::borrowBuffer, this::releaseBuffer);
+    }
+
+    private byte[] borrowBuffer() {
+        byte[] buffer = bufferPool.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    private void releaseBuffer(byte[] buffer) {
+        // When the pool is full the buffer is simply dropped
+        bufferPool.offer(buffer);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.MediaUrlResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolves the URL getters of videos, documents and lessons from their object
+ * key, reusing signed URLs per key until shortly before they expire.
+ */
+@Service
+public class MediaUrlService implements MediaUrlResolver {
+    @Autowired
+    private MinioService minioService;
+
+    @Override
+    public String urlFor(MediaObject media, String storedUrl) {
+        if (media == null || media.getObjectKey() == null) {
+            return storedUrl;
+        }
+        try {
+            return minioService.objectUrl(media.getObjectKey());
+        } catch (Exception e) {
+            System.err.println("Failed to sign URL for " + media.getObjectKey() + ": " + e.getMessage());
+            return storedUrl;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.e_learn.service;
+
+import io.minio.BucketExistsArgs;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Media stored in a MinIO (S3) bucket.
+ */
+@Service
+@ConditionalOnProperty(name = "media.storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MinioMediaStorage implements MediaStorage {
+    // Parts used when the size of a stream is not known up front
+    private static final long UNKNOWN_SIZE_PART_BYTES = 16L * 1024 * 1024;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    @Qualifier("publicMinioClient")
+    private MinioClient publicMinioClient;
+
+    @Value("${data.mediaBucket}")
+    private String bucketName;
+
+    @Override
+    public void prepare() throws Exception {
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+        }
+    }
+
+    @Override
+    public String put(String key, InputStream in, long size, String contentType, Map<String, String> headers) throws Exception {
+        return minioClient.putObject(PutObjectArgs.builder()
+            .bucket(bucketName)
+            .object(key)
+            .stream(in, size, size < 0 ? UNKNOWN_SIZE_PART_BYTES : -1)
+            .contentType(contentType)
+            .headers(headers)
+            .build()).etag();
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws Exception {
+        GetObjectArgs.Builder args = GetObjectArgs.builder()
+            .bucket(bucketName)
+            .object(key);
+        if (offset > 0 || length >= 0) {
+            args.offset(offset);
+        }
+        if (length >= 0) {
+            args.length(length);
+        }
+        try {
+            return minioClient.getObject(args.build());
+        } catch (ErrorResponseException e) {
+            throw notFound(e, key);
+        }
+    }
+
+    @Override
+    public ObjectMetadata stat(String key) throws Exception {
+        try {
+            StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder()
+                .bucket(bucketName)
+                .object(key)
+                .build());
+            return new ObjectMetadata(key, stat.size(), stat.etag(), stat.contentType(),
+                stat.lastModified() != null ? stat.lastModified().toInstant() : null);
+        } catch (ErrorResponseException e) {
+            throw notFound(e, key);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws Exception {
+        minioClient.removeObject(RemoveObjectArgs.builder()
+            .bucket(bucketName)
+            .object(key)
+            .build());
+    }
+
+    /**
+     * Listed and removed in batches of up to 1000 keys (one DeleteObjects request each).
+     */
+    @Override
+    public void deletePrefix(String prefix) throws Exception {
+        List<DeleteObject> batch = new ArrayList<>();
+        for (Result<Item> item : minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .recursive(true)
+                .build())) {
+            batch.add(new DeleteObject(item.get().objectName()));
+            if (batch.size() == 1000) {
+                removeAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            removeAll(batch);
+        }
+    }
+
+    private void removeAll(List<DeleteObject> objects) throws Exception {
+        // Removal happens as the results are consumed
+        for (Result<DeleteError> result : minioClient.removeObjects(RemoveObjectsArgs.builder()
+                .bucket(bucketName)
+                .objects(objects)
+                .build())) {
+            DeleteError error = result.get();
+            System.err.println("Failed to remove " + error.objectName() + ": " + error.message());
+        }
+    }
+
+    /**
+     * Server-side copy (multipart above 5 GiB), then removal of the source.
+     */
+    @Override
+    public String move(String from, String to, String contentType, Map<String, String> headers) throws Exception {
+        Map<String, String> copyHeaders = new HashMap<>(headers);
+        copyHeaders.put("Content-Type", contentType);
+        String etag = minioClient.composeObject(ComposeObjectArgs.builder()
+            .bucket(bucketName)
+            .object(to)
+            .sources(List.of(ComposeSource.builder().bucket(bucketName).object(from).build()))
+            .headers(copyHeaders)
+            .build()).etag();
+        delete(from);
+        return etag;
+    }
+
+    /**
+     * Presigned GET URL valid on the public MinIO host.
+     * Response parameters (e.g. response-content-disposition) are signed in.
+     */
+    @Override
+    public String presignedUrl(String key, int expirySeconds, Map<String, String> responseParams) throws Exception {
+        return publicMinioClient.getPresignedObjectUrl(
+            GetPresignedObjectUrlArgs.builder()
+                .bucket(bucketName)
+                .object(key)
+                .method(Method.GET)
+                .expiry(expirySeconds)
+                .extraQueryParams(responseParams)
+                .build());
+    }
+
+    /**
+     * Presigned GET URL valid on the internal MinIO host.
+     */
+    @Override
+    public String internalUrl(String key, int expirySeconds) throws Exception {
+        return minioClient.getPresignedObjectUrl(
+            GetPresignedObjectUrlArgs.builder()
+                .bucket(bucketName)
+                .object(key)
+                .method(Method.GET)
+                .expiry(expirySeconds)
+                .build());
+    }
+
+    @Override
+    public boolean supportsPresignedUrls() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsMultipart() {
+        return true;
+    }
+
+    private static Exception notFound(ErrorResponseException e, String key) {
+        String code = e.errorResponse() != null ? e.errorResponse().code() : null;
+        if ("NoSuchKey".equals(code) || "NoSuchObject".equals(code)) {
+            return new NoSuchFileException(key);
+        }
+        return e;
+    }
+}
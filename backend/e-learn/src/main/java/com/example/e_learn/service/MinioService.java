@@ -1,245 +1,506 @@
 package com.example.e_learn.service;
 
-import io.minio.BucketExistsArgs;
-import io.minio.GetObjectArgs;
-import io.minio.MakeBucketArgs;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
-import io.minio.StatObjectArgs;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.StoredObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Media uploads and reads. Bytes go through the configured {@link MediaStorage}
+ * (MinIO unless {@code media.storage.backend=filesystem}).
+ */
 @Service
 public class MinioService {
     @Autowired
-    private MinioClient minioClient;
+    private MediaStorage storage;
+
+    @Autowired
+    private MediaBlockCache blockCache;
+
+    @Autowired
+    private PresignedUrlCache urlCache;
+
+    @Autowired
+    private ObjectMetadataCache metadataCache;
+
+    @Autowired
+    private StreamingUploadService streamingUploadService;
+
+    @Autowired
+    private ContentStore contentStore;
 
     @Value("${data.mediaBucket}")
     private String bucketName;
 
-    @Value("${minio.publicUrl:http://localhost:9000}")
-    private String publicUrl;
+    @Value("${media.delivery.presign-ttl-seconds:900}")
+    private int deliveryTtlSeconds;
 
-    public String uploadVideo(MultipartFile file) throws Exception {
-        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
-            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+    // Lifetime of the URLs returned in API responses
+    @Value("${media.url.presign-ttl-seconds:86400}")
+    private int urlTtlSeconds;
+
+    public UploadedObject uploadVideo(MultipartFile file) throws Exception {
+        String contentType = videoContentType(file.getContentType());
+        // Store MP4/MOV with the moov box first so playback starts without a tail fetch
+        Mp4FastStart.Rewrite fastStart = Mp4FastStart.plan(file::getInputStream, file.getSize());
+        if (fastStart != null) {
+            System.out.println("Relocating moov box to the front of " + file.getOriginalFilename());
+            return upload(file.getOriginalFilename(), fastStart::open, fastStart.size(), contentType);
+        }
+        return upload(file.getOriginalFilename(), file::getInputStream, file.getSize(), contentType);
+    }
+
+    /**
+     * Store a video read straight from the request body as a parallel multipart
+     * upload, without spooling it to local disk first. The stream is stored as is
+     * (no fast-start rewrite, which would need the whole file).
+     */
+    public UploadedObject uploadVideoStream(InputStream in, String originalName, String contentType) throws Exception {
+        ensureBucket();
+        contentType = videoContentType(contentType);
+        // The hash is only known at the end, so the bytes land under a staging key first
+        String staging = stagingObjectName(originalName);
+        MessageDigest digest = ContentStore.newDigest();
+        InputStream hashing = new DigestInputStream(in, digest);
+        if (!storage.supportsMultipart()) {
+            // Local files need no parallel parts
+            streamingUploadService.acquireSlot();
+            try {
+                storage.put(staging, hashing, -1, contentType, Map.of());
+            } finally {
+                streamingUploadService.releaseSlot();
+            }
+            return adopt(staging, ContentStore.hex(digest), storage.stat(staging).size(), contentType);
         }
-        String filename = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        String contentType = file.getContentType();
+        StreamingUploadService.Result result = streamingUploadService.upload(staging, contentType, hashing);
+        return adopt(staging, ContentStore.hex(digest), result.size(), contentType);
+    }
+
+    private static String videoContentType(String contentType) {
         if (contentType == null || contentType.equals("application/octet-stream")) {
-            contentType = "video/mp4"; // sensible default for browser playback
-        }
-        try (InputStream is = file.getInputStream()) {
-            minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName)
-                .object(filename)
-                .stream(is, file.getSize(), -1)
-                .contentType(contentType)
-                .build());
-        }
-        // direct URL (HTTP, for dev)
-        String url = minioClient.getPresignedObjectUrl(
-            io.minio.GetPresignedObjectUrlArgs.builder()
-                .bucket(bucketName)
-                .object(filename)
-                .method(io.minio.http.Method.GET)
-                .build());
-        // Rewrite internal hostname to public one for the browser
-        try {
-            java.net.URI u = new java.net.URI(url);
-            java.net.URI pub = new java.net.URI(publicUrl);
-            url = new java.net.URI(pub.getScheme(), u.getUserInfo(), pub.getHost(), pub.getPort(), u.getPath(), u.getQuery(), u.getFragment()).toString();
-        } catch (Exception ignore) {}
-        return url;
+            return "video/mp4"; // sensible default for browser playback
+        }
+        return contentType;
+    }
+
+    /**
+     * Store the bytes under their SHA-256. The source is hashed first (it is a
+     * local file), so a duplicate is detected before anything is written and
+     * only gains a reference.
+     */
+    private UploadedObject upload(String originalName, Mp4FastStart.Source source, long size, String contentType) throws Exception {
+        ensureBucket();
+        String sha256;
+        try (InputStream is = source.open()) {
+            sha256 = ContentStore.sha256(is);
+        }
+        String objectKey = ContentStore.keyFor(sha256);
+        StoredObject existing = contentStore.reference(objectKey);
+        if (existing != null) {
+            System.out.println(originalName + " is already stored as " + objectKey);
+            return uploaded(objectKey, existing.getSizeBytes(), existing.getEtag(), existing.getContentType());
+        }
+        String etag;
+        try (InputStream is = source.open()) {
+            etag = storage.put(objectKey, is, size, contentType,
+                Map.of("Cache-Control", ContentStore.IMMUTABLE_CACHE_CONTROL));
+        }
+        UploadedObject uploaded = uploaded(objectKey, size, etag, contentType);
+        contentStore.register(uploaded.metadata(), sha256);
+        return uploaded;
+    }
+
+    /**
+     * Move an object written under a staging key to its content-addressed key,
+     * or drop it if the same bytes are already stored.
+     */
+    UploadedObject adopt(String stagingKey, String sha256, long size, String contentType) throws Exception {
+        String objectKey = ContentStore.keyFor(sha256);
+        StoredObject existing = contentStore.reference(objectKey);
+        if (existing != null) {
+            storage.delete(stagingKey);
+            System.out.println("Upload " + stagingKey + " is already stored as " + objectKey);
+            return uploaded(objectKey, existing.getSizeBytes(), existing.getEtag(), existing.getContentType());
+        }
+        String etag = storage.move(stagingKey, objectKey, contentType,
+            Map.of("Cache-Control", ContentStore.IMMUTABLE_CACHE_CONTROL));
+        UploadedObject uploaded = uploaded(objectKey, size, etag, contentType);
+        contentStore.register(uploaded.metadata(), sha256);
+        return uploaded;
     }
 
     /**
-     * Extract object name from a MinIO URL.
-     * Handles both direct URLs and presigned URLs with query parameters.
-     * URL formats:
-     *   - http://host:port/bucket/object-name
-     *   - http://host:port/bucket/object-name?X-Amz-Algorithm=...
+     * Give back the reference an upload took when no row ended up owning it
+     * (e.g. saving the video failed), so the object does not leak.
      */
-    private String extractObjectName(String videoUrl) {
-        System.out.println("Extracting object name from URL: " + videoUrl);
+    public void discard(UploadedObject uploaded) {
         try {
-            java.net.URI uri = new java.net.URI(videoUrl);
-            String path = uri.getPath();
-            System.out.println("Parsed path: " + path);
-            
-            // Remove leading slash
-            if (path.startsWith("/")) {
-                path = path.substring(1);
-            }
-            
-            // Remove bucket name if present
-            if (path.startsWith(bucketName + "/")) {
-                path = path.substring(bucketName.length() + 1);
-            }
-            
-            System.out.println("Extracted object name: " + path);
-            return path;
+            contentStore.release(uploaded.metadata().objectName());
         } catch (Exception e) {
-            System.err.println("Error parsing URI, trying fallback: " + e.getMessage());
-            // Fallback: extract from path after last slash, before query params
-            try {
-                int queryIndex = videoUrl.indexOf('?');
-                String urlWithoutQuery = queryIndex > 0 ? videoUrl.substring(0, queryIndex) : videoUrl;
-                
-                int lastSlash = urlWithoutQuery.lastIndexOf('/');
-                if (lastSlash >= 0 && lastSlash < urlWithoutQuery.length() - 1) {
-                    String filename = urlWithoutQuery.substring(lastSlash + 1);
-                    // Remove bucket name if it's the first part
-                    if (filename.startsWith(bucketName + "/")) {
-                        filename = filename.substring(bucketName.length() + 1);
+            System.err.println("Failed to release " + uploaded.metadata().objectName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A staging object ready to be adopted: its key and the SHA-256 of its bytes.
+     */
+    record Staged(String key, String sha256) {}
+
+    /**
+     * Give a staging object written part by part the same fast-start layout
+     * that {@link #uploadVideo} gives multipart files: an MP4/MOV with its moov
+     * box at the end is rewritten to a new staging key (hashed while it is
+     * written), leaving the original for the caller to drop. Anything else is
+     * only hashed.
+     */
+    Staged fastStart(String stagingKey, long size, String contentType) throws Exception {
+        Mp4FastStart.Rewrite rewrite = Mp4FastStart.plan(storedSource(stagingKey), size);
+        if (rewrite == null) {
+            return new Staged(stagingKey, sha256Of(stagingKey));
+        }
+        System.out.println("Relocating moov box to the front of " + stagingKey);
+        String rewritten = stagingObjectName(stagingKey.substring(stagingKey.lastIndexOf('/') + 1));
+        MessageDigest digest = ContentStore.newDigest();
+        try (InputStream in = new DigestInputStream(rewrite.open(), digest)) {
+            storage.put(rewritten, in, rewrite.size(), contentType, Map.of());
+        }
+        return new Staged(rewritten, ContentStore.hex(digest));
+    }
+
+    // Reads of a stored object where a skip starts a new ranged read instead of downloading the skipped bytes
+    private Mp4FastStart.Source storedSource(String key) {
+        return () -> new InputStream() {
+            private InputStream in;
+            private long position;
+
+            private InputStream in() throws IOException {
+                if (in == null) {
+                    try {
+                        in = storage.get(key, position, -1);
+                    } catch (IOException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException("Cannot read " + key, e);
                     }
-                    System.out.println("Fallback extracted object name: " + filename);
-                    return filename;
                 }
-            } catch (Exception e2) {
-                System.err.println("Fallback extraction also failed: " + e2.getMessage());
+                return in;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = in().read();
+                if (b >= 0) {
+                    position++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in().read(b, off, len);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                if (n <= 0) {
+                    return 0;
+                }
+                close();
+                position += n;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (in != null) {
+                    in.close();
+                    in = null;
+                }
             }
-            System.err.println("Could not extract object name, using full URL as fallback");
-            return videoUrl;
+        };
+    }
+
+    /**
+     * Metadata and playback URL of an object adopted earlier, read back from storage.
+     */
+    UploadedObject adopted(String objectKey) throws Exception {
+        ObjectMetadata meta = storage.stat(objectKey);
+        return uploaded(objectKey, meta.size(), meta.etag(), meta.contentType());
+    }
+
+    boolean exists(String objectName) throws Exception {
+        try {
+            storage.stat(objectName);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    void deleteObject(String objectName) throws Exception {
+        storage.delete(objectName);
+    }
+
+    /**
+     * SHA-256 of a stored object, read back from the bucket.
+     */
+    String sha256Of(String objectName) throws Exception {
+        try (InputStream in = storage.get(objectName, 0, -1)) {
+            return ContentStore.sha256(in);
         }
     }
 
     /**
-     * Get video stream directly from MinIO.
-     * Supports range requests for video seeking.
+     * Temporary object name for an upload whose hash is not known yet,
+     * keeping its original name readable.
      */
-    public InputStream getVideoStream(String videoUrl) throws Exception {
-        String objectName = extractObjectName(videoUrl);
-        return minioClient.getObject(GetObjectArgs.builder()
-            .bucket(bucketName)
-            .object(objectName)
-            .build());
+    String stagingObjectName(String originalName) {
+        return "incoming/" + UUID.randomUUID() + "_" + String.valueOf(originalName).replaceAll("[/\\\\]", "_");
     }
 
     /**
-     * Get video stream with range support.
+     * Metadata and playback URL for an object that was just written.
      */
-    public InputStream getVideoStream(String videoUrl, long offset, long length) throws Exception {
-        String objectName = extractObjectName(videoUrl);
-        return minioClient.getObject(GetObjectArgs.builder()
-            .bucket(bucketName)
-            .object(objectName)
-            .offset(offset)
-            .length(length)
-            .build());
+    UploadedObject uploaded(String filename, long size, String etag, String contentType) throws Exception {
+        ObjectMetadata metadata = new ObjectMetadata(filename, size, etag, contentType,
+            Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        return new UploadedObject(objectUrl(filename), metadata, bucketName);
+    }
+
+    void ensureBucket() throws Exception {
+        storage.prepare();
     }
 
     /**
-     * Get object size for Content-Length header.
+     * Whether resumable and streamed uploads can use S3 multipart uploads.
      */
-    public long getObjectSize(String videoUrl) throws Exception {
-        String objectName = extractObjectName(videoUrl);
-        try {
-            io.minio.StatObjectResponse stat = minioClient.statObject(
-                io.minio.StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .build());
-            return stat.size();
-        } catch (Exception e) {
-            return -1; // Unknown size
+    public boolean supportsMultipart() {
+        return storage.supportsMultipart();
+    }
+
+    /**
+     * Store a local file (e.g. a generated HLS segment) under the given object name.
+     */
+    public void putFile(String objectName, Path file, String contentType) throws Exception {
+        ensureBucket();
+        try (InputStream is = Files.newInputStream(file)) {
+            storage.put(objectName, is, Files.size(file), contentType, Map.of());
         }
     }
 
     /**
-     * Upload a PDF document to MinIO.
+     * Remove all generated objects under a prefix (e.g. one HLS packaging run).
      */
-    public String uploadDocument(MultipartFile file) throws Exception {
-        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
-            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
-        }
-        String filename = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        try (InputStream is = file.getInputStream()) {
-            minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName)
-                .object(filename)
-                .stream(is, file.getSize(), -1)
-                .contentType("application/pdf")
-                .build());
-        }
-        // Return presigned URL for direct access
-        String url = minioClient.getPresignedObjectUrl(
-            io.minio.GetPresignedObjectUrlArgs.builder()
-                .bucket(bucketName)
-                .object(filename)
-                .method(io.minio.http.Method.GET)
-                .build());
-        // Rewrite internal hostname to public one for the browser
-        try {
-            java.net.URI u = new java.net.URI(url);
-            java.net.URI pub = new java.net.URI(publicUrl);
-            url = new java.net.URI(pub.getScheme(), u.getUserInfo(), pub.getHost(), pub.getPort(), u.getPath(), u.getQuery(), u.getFragment()).toString();
-        } catch (Exception ignore) {}
-        return url;
+    public void deletePrefix(String prefix) throws Exception {
+        if (prefix == null || prefix.isEmpty()) {
+            return;
+        }
+        storage.deletePrefix(prefix.endsWith("/") ? prefix : prefix + "/");
     }
 
     /**
-     * Get PDF document stream from MinIO.
+     * Store a small generated object (e.g. a keyframe index) from memory.
      */
-    public InputStream getDocumentStream(String fileUrl) throws Exception {
-        String objectName = extractObjectName(fileUrl);
-        System.out.println("Getting document stream for object: " + objectName + " in bucket: " + bucketName);
-        try {
-            return minioClient.getObject(GetObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .build());
-        } catch (Exception e) {
-            System.err.println("Error getting document stream from MinIO: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+    public void putBytes(String objectName, byte[] data, String contentType) throws Exception {
+        ensureBucket();
+        storage.put(objectName, new ByteArrayInputStream(data), data.length, contentType, Map.of());
+    }
+
+    /**
+     * Read a whole small object into memory, bypassing the block cache.
+     */
+    public byte[] readObject(String objectName) throws Exception {
+        try (InputStream in = storage.get(objectName, 0, -1)) {
+            return in.readAllBytes();
         }
     }
 
     /**
-     * Get PDF document stream with range support.
+     * Copy a whole object to a local file, bypassing the block cache.
      */
-    public InputStream getDocumentStream(String fileUrl, long offset, long length) throws Exception {
-        String objectName = extractObjectName(fileUrl);
-        System.out.println("Getting document stream with range: offset=" + offset + ", length=" + length + ", object=" + objectName);
-        try {
-            return minioClient.getObject(GetObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .offset(offset)
-                .length(length)
-                .build());
-        } catch (Exception e) {
-            System.err.println("Error getting document stream with range from MinIO: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+    public void downloadTo(String objectName, Path target) throws Exception {
+        Path local = storage.localFile(objectName);
+        if (local != null) {
+            Files.copy(local, target, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        try (InputStream in = storage.get(objectName, 0, -1)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Short-lived presigned URL for redirecting a client straight to MinIO,
+     * reused from the cache until shortly before it expires. Null when the
+     * storage backend cannot be reached by clients.
+     */
+    public PresignedUrlCache.PresignedUrl deliveryUrl(String objectName, String contentType, String contentDisposition) throws Exception {
+        if (!storage.supportsPresignedUrls()) {
+            return null;
+        }
+        Map<String, String> params = new java.util.TreeMap<>();
+        if (contentType != null) {
+            params.put("response-content-type", contentType);
+        }
+        if (contentDisposition != null) {
+            params.put("response-content-disposition", contentDisposition);
         }
+        String key = objectName + "?" + params;
+        return urlCache.get(key, deliveryTtlSeconds, ttl -> storage.presignedUrl(objectName, ttl, params));
     }
 
     /**
-     * Get PDF document size for Content-Length header.
+     * Object key of a URL pointing into the media bucket (direct or presigned,
+     * e.g. http://host:port/bucket/object-name?X-Amz-Algorithm=...), or null
+     * for any other URL. Only used for rows stored before media was addressed
+     * by key.
      */
-    public long getDocumentSize(String fileUrl) throws Exception {
-        String objectName = extractObjectName(fileUrl);
-        System.out.println("Getting document size for object: " + objectName + " in bucket: " + bucketName);
+    public String objectKeyFor(String url) {
+        if (url == null) {
+            return null;
+        }
         try {
-            io.minio.StatObjectResponse stat = minioClient.statObject(
-                io.minio.StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .build());
-            long size = stat.size();
-            System.out.println("Document size retrieved: " + size);
-            return size;
-        } catch (Exception e) {
-            System.err.println("Error getting document size: " + e.getMessage());
-            e.printStackTrace();
-            return -1; // Unknown size
+            String path = new java.net.URI(url).getPath();
+            String prefix = "/" + bucketName + "/";
+            if (path == null || !path.startsWith(prefix) || path.length() == prefix.length()) {
+                return null;
+            }
+            return path.substring(prefix.length());
+        } catch (java.net.URISyntaxException e) {
+            return null;
         }
     }
-}
 
+    /**
+     * Client URL for a stored object: presigned for the public host and reused
+     * until shortly before it expires. Backends without client-facing URLs get
+     * a bucket path; their media is served through the stream endpoints.
+     */
+    public String objectUrl(String objectKey) throws Exception {
+        if (!storage.supportsPresignedUrls()) {
+            return "/" + bucketName + "/" + objectKey;
+        }
+        return urlCache.get("url:" + objectKey, urlTtlSeconds,
+            ttl -> storage.presignedUrl(objectKey, ttl, Map.of())).url();
+    }
+
+    /**
+     * URL backend services fetch a stored object from, signed for the internal
+     * host: a client URL's signature no longer matches once its host is
+     * rewritten. Stores without internal URLs fall back to the client URL.
+     */
+    public String internalUrl(String objectKey) throws Exception {
+        String url = storage.internalUrl(objectKey, urlTtlSeconds);
+        return url != null ? url : objectUrl(objectKey);
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Get a byte range of an object whose metadata is known, going through the
+     * local block cache when it is enabled.
+     */
+    public InputStream getObjectStream(ObjectMetadata meta, long offset, long length) throws Exception {
+        return getObjectStream(meta, offset, length, null);
+    }
+
+    /**
+     * As above, additionally prefetching the cache blocks that
+     * {@code readAhead} asks for as the stream reaches each block.
+     */
+    public InputStream getObjectStream(ObjectMetadata meta, long offset, long length, MediaBlockCache.ReadAhead readAhead) throws Exception {
+        // Local files are already in the page cache; only remote reads go through the block cache
+        if (blockCache.isEnabled() && storage.localFile(meta.objectName()) == null) {
+            return blockCache.open(meta, offset, length, readAhead, this::fetchRange);
+        }
+        return fetchRange(meta.objectName(), offset, length);
+    }
+
+    /**
+     * Read a small byte range straight from storage. Header probes bypass the
+     * block cache so they do not pull in whole cache blocks.
+     */
+    public byte[] readRange(String objectName, long offset, int length) throws Exception {
+        try (InputStream in = storage.get(objectName, offset, length)) {
+            return in.readNBytes(length);
+        }
+    }
+
+    private InputStream fetchRange(String objectName, long offset, long length) throws Exception {
+        return storage.get(objectName, offset, length);
+    }
+
+    /**
+     * The local file holding the object, when the storage backend keeps media on this node.
+     */
+    public Path localFile(ObjectMetadata meta) {
+        return storage.localFile(meta.objectName());
+    }
+
+    /**
+     * Metadata for streaming an object: taken from the row when it was captured
+     * at upload, otherwise from a bounded cache in front of statObject, keyed
+     * by the object key (or, for rows never migrated, the stored URL).
+     */
+    public ObjectMetadata metadataFor(MediaObject media, String url) throws Exception {
+        if (media != null && media.isComplete()) {
+            return new ObjectMetadata(media.getObjectKey(), media.getSizeBytes(), media.getEtag(),
+                media.getContentType(), media.getLastModified());
+        }
+        if (media != null && media.getObjectKey() != null) {
+            return metadataForKey(media.getObjectKey());
+        }
+        return metadataCache.get(url, () -> statObject(url));
+    }
+
+    /**
+     * Metadata for an object addressed by key (derived assets such as HLS
+     * segments), cached like legacy rows.
+     */
+    public ObjectMetadata metadataForKey(String objectName) throws Exception {
+        return metadataCache.get(objectName, () -> statKey(objectName));
+    }
+
+    /**
+     * Stat an object: size, ETag, content type and modification time.
+     */
+    public ObjectMetadata statObject(String url) throws Exception {
+        String objectName = objectKeyFor(url);
+        if (objectName == null) {
+            throw new IllegalArgumentException("Not a media bucket URL: " + url);
+        }
+        return statKey(objectName);
+    }
+
+    private ObjectMetadata statKey(String objectName) throws Exception {
+        return storage.stat(objectName);
+    }
+
+    /**
+     * Upload a PDF document to MinIO.
+     */
+    public UploadedObject uploadDocument(MultipartFile file) throws Exception {
+        return upload(file.getOriginalFilename(), file::getInputStream, file.getSize(), "application/pdf");
+    }
+}
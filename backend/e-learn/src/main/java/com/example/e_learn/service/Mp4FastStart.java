@@ -0,0 +1,275 @@
+package com.example.e_learn.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves the {@code moov} box of an MP4/MOV file in front of its media data
+ * ("fast start"), so players can begin decoding without first fetching the
+ * tail of the file. Only the top-level box headers and the {@code moov} box
+ * itself are read; the media data is streamed straight from the source, and
+ * chunk offsets (stco/co64) are shifted by the size of the moved box.
+ */
+public final class Mp4FastStart {
+
+    /**
+     * Re-openable source of the original bytes, e.g. {@code MultipartFile::getInputStream}.
+     */
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /** Largest moov box that is buffered for rewriting. */
+    static final int MAX_MOOV_BYTES = 64 * 1024 * 1024;
+
+    // Boxes whose children can contain a chunk offset table
+    private static final Set<String> CONTAINERS = Set.of("moov", "trak", "mdia", "minf", "stbl");
+
+    private Mp4FastStart() {
+    }
+
+    private record Box(String type, long offset, long size) {}
+
+    /**
+     * The rewritten layout of a file. The output has the same length as the input.
+     */
+    public static final class Rewrite {
+        private final Source source;
+        private final long size;
+        private final long insertAt;
+        private final long moovOffset;
+        private final byte[] moov;
+
+        private Rewrite(Source source, long size, long insertAt, long moovOffset, byte[] moov) {
+            this.source = source;
+            this.size = size;
+            this.insertAt = insertAt;
+            this.moovOffset = moovOffset;
+            this.moov = moov;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Stream the fast-start file: header boxes, patched moov, media data, trailing boxes.
+         */
+        public InputStream open() throws IOException {
+            List<InputStream> parts = new ArrayList<>(4);
+            parts.add(slice(0, insertAt));
+            parts.add(new ByteArrayInputStream(moov));
+            parts.add(slice(insertAt, moovOffset - insertAt));
+            long tail = moovOffset + moov.length;
+            parts.add(slice(tail, size - tail));
+            return new SequenceInputStream(Collections.enumeration(parts));
+        }
+
+        // Sources are opened lazily so only one underlying stream is open at a time
+        private InputStream slice(long offset, long length) {
+            return new InputStream() {
+                private InputStream in;
+                private long remaining = length;
+
+                private boolean ready() throws IOException {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    if (in == null) {
+                        in = source.open();
+                        in.skipNBytes(offset);
+                    }
+                    return true;
+                }
+
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    if (!ready()) {
+                        return -1;
+                    }
+                    int n = in.read(b, off, (int) Math.min(len, remaining));
+                    if (n < 0) {
+                        throw new EOFException("Source ended " + remaining + " bytes early");
+                    }
+                    remaining -= n;
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (in != null) {
+                        in.close();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Inspect the top-level boxes and plan a rewrite. Returns null when the
+     * file should be stored unchanged: it is not ISO-BMFF, already fast-start,
+     * has no moov/mdat, or cannot be rewritten safely.
+     */
+    public static Rewrite plan(Source source, long size) throws IOException {
+        List<Box> boxes = topLevelBoxes(source, size);
+        if (boxes == null) {
+            return null;
+        }
+        Box moov = null;
+        Box firstMdat = null;
+        for (Box box : boxes) {
+            if (box.type().equals("moov") && moov == null) {
+                moov = box;
+            } else if (box.type().equals("mdat") && firstMdat == null) {
+                firstMdat = box;
+            }
+        }
+        if (moov == null || firstMdat == null || moov.offset() < firstMdat.offset()) {
+            return null;
+        }
+        if (moov.size() > MAX_MOOV_BYTES) {
+            System.err.println("moov box of " + moov.size() + " bytes is too large to relocate; storing as is");
+            return null;
+        }
+        byte[] moovBytes = new byte[(int) moov.size()];
+        try (InputStream in = source.open()) {
+            in.skipNBytes(moov.offset());
+            new DataInputStream(in).readFully(moovBytes);
+        }
+        ByteBuffer moovBuffer = ByteBuffer.wrap(moovBytes);
+        if (moovBuffer.getInt(0) == 0) {
+            // "Extends to end of file" is no longer true once the box moves up front
+            moovBuffer.putInt(0, moovBytes.length);
+        }
+        // Media data between the insertion point and the old moov position moves down by the moov size
+        long insertAt = firstMdat.offset();
+        if (!patchChunkOffsets(moovBuffer, 0, moovBytes.length, insertAt, moov.offset(), moov.size())) {
+            return null;
+        }
+        return new Rewrite(source, size, insertAt, moov.offset(), moovBytes);
+    }
+
+    /**
+     * Header-only scan of the top-level boxes; null when the layout is not valid ISO-BMFF.
+     */
+    private static List<Box> topLevelBoxes(Source source, long size) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        try (InputStream raw = source.open()) {
+            DataInputStream in = new DataInputStream(raw);
+            long position = 0;
+            while (position < size) {
+                if (size - position < 8) {
+                    return null;
+                }
+                long boxSize = in.readInt() & 0xffffffffL;
+                byte[] type = new byte[4];
+                in.readFully(type);
+                long header = 8;
+                if (boxSize == 1) {
+                    if (size - position < 16) {
+                        return null;
+                    }
+                    boxSize = in.readLong();
+                    header = 16;
+                } else if (boxSize == 0) {
+                    boxSize = size - position; // box runs to the end of the file
+                }
+                String name = new String(type, StandardCharsets.ISO_8859_1);
+                if (boxSize < header || position + boxSize > size || !isPrintable(type)) {
+                    return null;
+                }
+                if (boxes.isEmpty() && !name.equals("ftyp")) {
+                    return null;
+                }
+                boxes.add(new Box(name, position, boxSize));
+                in.skipNBytes(boxSize - header);
+                position += boxSize;
+            }
+        } catch (EOFException e) {
+            return null; // shorter than its declared size
+        }
+        return boxes;
+    }
+
+    /**
+     * Walk the boxes in {@code [from, to)} of the buffer and shift every chunk
+     * offset that falls in {@code [shiftFrom, shiftTo)} by {@code delta}.
+     * Returns false if a 32-bit offset would overflow.
+     */
+    private static boolean patchChunkOffsets(ByteBuffer buf, int from, int to, long shiftFrom, long shiftTo, long delta) {
+        int position = from;
+        while (position + 8 <= to) {
+            long boxSize = buf.getInt(position) & 0xffffffffL;
+            String type = new String(new byte[] {
+                buf.get(position + 4), buf.get(position + 5), buf.get(position + 6), buf.get(position + 7)
+            }, StandardCharsets.ISO_8859_1);
+            int header = 8;
+            if (boxSize == 1) {
+                boxSize = buf.getLong(position + 8);
+                header = 16;
+            } else if (boxSize == 0) {
+                boxSize = to - position;
+            }
+            if (boxSize < header || position + boxSize > to) {
+                return true; // malformed child, leave the rest untouched
+            }
+            int body = position + header;
+            int end = (int) (position + boxSize);
+            if (CONTAINERS.contains(type)) {
+                if (!patchChunkOffsets(buf, body, end, shiftFrom, shiftTo, delta)) {
+                    return false;
+                }
+            } else if (type.equals("stco") || type.equals("co64")) {
+                boolean wide = type.equals("co64");
+                int count = buf.getInt(body + 4); // after version and flags
+                int entry = body + 8;
+                for (int i = 0; i < count && entry + (wide ? 8 : 4) <= end; i++) {
+                    long offset = wide ? buf.getLong(entry) : buf.getInt(entry) & 0xffffffffL;
+                    if (offset >= shiftFrom && offset < shiftTo) {
+                        offset += delta;
+                        if (wide) {
+                            buf.putLong(entry, offset);
+                        } else if (offset > 0xffffffffL) {
+                            System.err.println("Chunk offset overflows stco; storing as is");
+                            return false;
+                        } else {
+                            buf.putInt(entry, (int) offset);
+                        }
+                    }
+                    entry += wide ? 8 : 4;
+                }
+            }
+            position = end;
+        }
+        return true;
+    }
+
+    private static boolean isPrintable(byte[] type) {
+        for (byte b : type) {
+            if (b < 0x20 || b > 0x7e) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
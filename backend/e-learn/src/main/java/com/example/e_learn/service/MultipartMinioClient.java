@@ -0,0 +1,66 @@
+package com.example.e_learn.service;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Async MinIO client exposing the low-level multipart calls (create, upload
+ * part, complete, abort) that the SDK keeps protected, so uploads can be
+ * streamed part by part without knowing the total size up front.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public CompletableFuture<String> createUpload(String bucket, String objectName, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", contentType);
+        return createMultipartUploadAsync(bucket, null, objectName, headers, null)
+            .thenApply(response -> response.result().uploadId());
+    }
+
+    /**
+     * Upload one part from {@code length} bytes of {@code data}; the array must
+     * not be modified until the returned future completes.
+     */
+    public CompletableFuture<Part> uploadPart(String bucket, String objectName, String uploadId,
+                                              int partNumber, byte[] data, int length) throws Exception {
+        return uploadPartAsync(bucket, null, objectName, data, length, uploadId, partNumber, null, null)
+            .thenApply(response -> new Part(partNumber, response.etag()));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> completeUpload(String bucket, String objectName, String uploadId,
+                                                                 Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucket, null, objectName, uploadId, parts, null, null);
+    }
+
+    /**
+     * All parts uploaded so far, in part number order.
+     */
+    public List<Part> listUploadedParts(String bucket, String objectName, String uploadId) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        Integer marker = null;
+        while (true) {
+            ListPartsResult page = listPartsAsync(bucket, null, objectName, 1000, marker, uploadId, null, null).get().result();
+            parts.addAll(page.partList());
+            if (!page.isTruncated()) {
+                return parts;
+            }
+            marker = page.nextPartNumberMarker();
+        }
+    }
+
+    public CompletableFuture<?> abortUpload(String bucket, String objectName, String uploadId) throws Exception {
+        return abortMultipartUploadAsync(bucket, null, objectName, uploadId, null, null);
+    }
+}
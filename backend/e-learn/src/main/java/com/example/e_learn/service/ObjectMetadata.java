@@ -0,0 +1,9 @@
+package com.example.e_learn.service;
+
+import java.time.Instant;
+
+/**
+ * What the streaming path needs to know about a stored object.
+ */
+public record ObjectMetadata(String objectName, long size, String etag, String contentType, Instant lastModified) {
+}
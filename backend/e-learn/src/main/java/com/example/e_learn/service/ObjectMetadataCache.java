@@ -0,0 +1,59 @@
+package com.example.e_learn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small bounded LRU of object metadata for rows uploaded before metadata was
+ * persisted, so their stream requests stat the object once instead of per range.
+ */
+@Service
+public class ObjectMetadataCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        ObjectMetadata load() throws Exception;
+    }
+
+    private record Entry(ObjectMetadata metadata, long expiresAt) {}
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public ObjectMetadataCache(@Value("${media.metadata-cache.max-entries:10000}") int maxEntries,
+                               @Value("${media.metadata-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ObjectMetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    public ObjectMetadata get(String key, Loader loader) throws Exception {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                return entry.metadata();
+            }
+        }
+        ObjectMetadata metadata = loader.load();
+        synchronized (entries) {
+            entries.put(key, new Entry(metadata, now + ttlMillis));
+        }
+        return metadata;
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.e_learn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reuses presigned URLs until shortly before they expire, so redirecting a
+ * player's many range requests does not re-sign the URL each time.
+ */
+@Service
+public class PresignedUrlCache {
+
+    /**
+     * A signed URL and the instant it stops being valid.
+     */
+    public record PresignedUrl(String url, Instant expiresAt) {}
+
+    @FunctionalInterface
+    public interface Signer {
+        String sign(int expirySeconds) throws Exception;
+    }
+
+    private final int maxEntries;
+    private final long refreshMarginSeconds;
+    private final LinkedHashMap<String, PresignedUrl> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PresignedUrlCache(@Value("${media.delivery.url-cache.max-entries:10000}") int maxEntries,
+                             @Value("${media.delivery.url-cache.refresh-margin-seconds:120}") long refreshMarginSeconds) {
+        this.maxEntries = maxEntries;
+        this.refreshMarginSeconds = refreshMarginSeconds;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PresignedUrl> eldest) {
+                return size() > PresignedUrlCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cached URL for the key, or a freshly signed one valid for {@code ttlSeconds}
+     * once the cached URL is within the refresh margin of expiring.
+     */
+    public PresignedUrl get(String key, int ttlSeconds, Signer signer) throws Exception {
+        Instant freshUntil = Instant.now().plusSeconds(refreshMarginSeconds);
+        synchronized (entries) {
+            PresignedUrl cached = entries.get(key);
+            if (cached != null && cached.expiresAt().isAfter(freshUntil)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        Instant expiresAt = Instant.now().plusSeconds(ttlSeconds);
+        PresignedUrl signed = new PresignedUrl(signer.sign(ttlSeconds), expiresAt);
+        synchronized (entries) {
+            entries.put(key, signed);
+        }
+        return signed;
+    }
+
+    public long getRefreshMarginSeconds() {
+        return refreshMarginSeconds;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        return stats;
+    }
+}
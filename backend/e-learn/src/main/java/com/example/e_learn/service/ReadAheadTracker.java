@@ -0,0 +1,75 @@
+package com.example.e_learn.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers where each (client, object) pair's last stream got to, so the
+ * streaming path can tell a player reading forward from random seeks and only
+ * prefetch ahead of sequential readers. A stream that keeps reading past its
+ * first block counts as sequential by itself, so a single open-ended request
+ * like {@code bytes=0-} gets read-ahead too.
+ */
+@Service
+public class ReadAheadTracker {
+
+    private static final class Session {
+        private final long start;
+        private volatile long reached; // offset of the next byte not yet served
+
+        private Session(long start) {
+            this.start = start;
+            this.reached = start;
+        }
+    }
+
+    private final int depthBlocks;
+    private final long slackBytes;
+    private final int maxSessions;
+    private final LinkedHashMap<String, Session> sessions;
+
+    public ReadAheadTracker(@Value("${media.readahead.blocks:4}") int depthBlocks,
+                            @Value("${media.cache.block-size:2097152}") long slackBytes,
+                            @Value("${media.readahead.max-sessions:10000}") int maxSessions) {
+        this.depthBlocks = depthBlocks;
+        this.slackBytes = slackBytes;
+        this.maxSessions = maxSessions;
+        this.sessions = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > ReadAheadTracker.this.maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Record a stream starting at {@code start} and return what follows it.
+     * It reads ahead by the configured depth from its first block when it
+     * continues what the previous stream of the same client and object
+     * actually served (starts inside it or just past it), otherwise once it
+     * has itself been read for more than a block.
+     */
+    public MediaBlockCache.ReadAhead record(HttpServletRequest request, ObjectMetadata meta, long start) {
+        if (depthBlocks <= 0) {
+            return position -> 0;
+        }
+        String key = request.getRemoteAddr() + '|' + request.getHeader(HttpHeaders.USER_AGENT) + '|' + meta.objectName();
+        Session session = new Session(start);
+        Session previous;
+        synchronized (sessions) {
+            previous = sessions.put(key, session);
+        }
+        boolean continues = previous != null && start >= previous.start && start <= previous.reached + slackBytes;
+        return position -> {
+            if (position > session.reached) {
+                session.reached = position;
+            }
+            return continues || position - start >= slackBytes ? depthBlocks : 0;
+        };
+    }
+}
@@ -33,7 +33,9 @@ public class RecommendationService {
             if (t.contains(spec)) s += 10;
         }
         // Future: add popularity, recency, user history similarity, etc.
-        s += Math.max(0, 120 - lesson.getDurationSec()); // prefer shorter micro-lessons
+        if (lesson.getDurationSec() > 0) { // 0 until the videos have been probed
+            s += Math.max(0, 120 - lesson.getDurationSec()); // prefer shorter micro-lessons
+        }
         return s;
     }
 }
@@ -0,0 +1,337 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.TranscriptPassage;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.TranscriptPassageRepository;
+import com.example.e_learn.repository.VideoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Ranked search over lesson titles and descriptions and over transcripts.
+ * Transcripts are indexed as passages of a few seconds of speech, rewritten
+ * in the transaction that stores the transcript, so a transcript hit can send
+ * the viewer to the moment the words are spoken. On PostgreSQL both sources
+ * are matched through GIN indexes on their tsvector; other databases (the
+ * tests' H2) fall back to substring matching with a coarse ranking.
+ */
+@Service
+public class SearchService {
+    public static final String LESSON_HIT = "LESSON";
+    public static final String TRANSCRIPT_HIT = "TRANSCRIPT";
+
+    private static final Pattern TEXT_CONFIG = Pattern.compile("[a-z_]+");
+    private static final Pattern NOT_WORD = Pattern.compile("[^\\p{L}\\p{N}']+");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TranscriptPassageRepository passageRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private TranscriptStore transcriptStore;
+
+    @Value("${search.text-config:simple}")
+    private String textConfig;
+
+    @Value("${search.passage-seconds:20}")
+    private int passageSeconds;
+
+    private final TransactionTemplate transaction;
+
+    private boolean fullText;
+
+    /**
+     * A search result: a lesson, or a passage of one of its transcripts
+     * starting at {@code second}.
+     */
+    public record Hit(String type, Long lessonId, String lessonTitle, Long videoId, String videoTitle,
+                      Integer second, String snippet, double score) {}
+
+    public record Page(String query, int page, int size, boolean hasMore, List<Hit> hits) {}
+
+    public SearchService(PlatformTransactionManager transactionManager) {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void init() {
+        if (!TEXT_CONFIG.matcher(textConfig).matches()) {
+            throw new IllegalStateException("Invalid search.text-config: " + textConfig);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                System.out.println("Search falls back to substring matching on " + connection.getMetaData().getDatabaseProductName());
+                return;
+            }
+        } catch (Exception e) {
+            System.err.println("Could not detect the database for search: " + e.getMessage());
+            return;
+        }
+        try {
+            // The tables are Hibernate's; only the expression indexes are created here. The
+            // configuration is part of the index name, so changing it builds a matching index.
+            transaction.executeWithoutResult(status -> {
+                entityManager.createNativeQuery("create index if not exists idx_lesson_search_" + textConfig
+                    + " on lesson using gin (" + lessonVector("") + ")").executeUpdate();
+                entityManager.createNativeQuery("create index if not exists idx_transcript_passage_search_" + textConfig
+                    + " on transcript_passage using gin (" + passageVector("") + ")").executeUpdate();
+            });
+            fullText = true;
+        } catch (Exception e) {
+            System.err.println("Full-text search indexes unavailable, falling back to substring matching: " + e.getMessage());
+        }
+    }
+
+    // Queries must use the same expressions as the indexes for the planner to pick them
+
+    private String lessonVector(String alias) {
+        return "to_tsvector('" + textConfig + "', coalesce(" + alias + "title, '') || ' ' || coalesce(" + alias + "description, ''))";
+    }
+
+    private String passageVector(String alias) {
+        return "to_tsvector('" + textConfig + "', " + alias + "content)";
+    }
+
+    /**
+     * Rewrite the passages of a transcript that was stored or removed.
+     */
+    @EventListener
+    public void onTranscriptChanged(TranscriptChangedEvent event) {
+        passageRepository.deleteByTarget(event.targetType(), event.targetId());
+        CompactTranscript transcript = event.transcript();
+        if (transcript == null || transcript.isEmpty()) {
+            return;
+        }
+        Long lessonId;
+        Long videoId = null;
+        if (TranscriptionJobService.VIDEO.equals(event.targetType())) {
+            Video video = videoRepository.findById(event.targetId()).orElse(null);
+            if (video == null || video.getLesson() == null) {
+                return;
+            }
+            lessonId = video.getLesson().getId();
+            videoId = video.getId();
+        } else {
+            lessonId = event.targetId();
+        }
+        List<TranscriptPassage> passages = new ArrayList<>();
+        long span = passageSeconds * 1000L;
+        int first = 0;
+        while (first < transcript.size()) {
+            int last = first;
+            while (last + 1 < transcript.size() && transcript.startMs(last + 1) < transcript.startMs(first) + span) {
+                last++;
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = first; i <= last; i++) {
+                if (i > first) {
+                    text.append(' ');
+                }
+                text.append(transcript.word(i));
+            }
+            TranscriptPassage passage = new TranscriptPassage();
+            passage.setTargetType(event.targetType());
+            passage.setTargetId(event.targetId());
+            passage.setLessonId(lessonId);
+            passage.setVideoId(videoId);
+            passage.setStartMs(transcript.startMs(first));
+            passage.setEndMs(transcript.endMs(last));
+            passage.setContent(text.toString());
+            passages.add(passage);
+            first = last + 1;
+        }
+        passageRepository.saveAll(passages);
+    }
+
+    public Page search(String query, int page, int size) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return new Page(query, page, size, false, List.of());
+        }
+        // One row more than the page tells whether there is a next one
+        List<Object[]> rows = fullText ? fullTextRows(query, page * size, size + 1) : substringRows(terms, page * size, size + 1);
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+
+        Set<Long> lessonIds = rows.stream().map(r -> ((Number) r[1]).longValue()).collect(Collectors.toSet());
+        Set<Long> videoIds = rows.stream().filter(r -> r[2] != null).map(r -> ((Number) r[2]).longValue()).collect(Collectors.toSet());
+        Map<Long, Lesson> lessons = lessonRepository.findAllById(lessonIds).stream()
+            .collect(Collectors.toMap(Lesson::getId, Function.identity()));
+        Map<Long, Video> videos = videoRepository.findAllById(videoIds).stream()
+            .collect(Collectors.toMap(Video::getId, Function.identity()));
+
+        List<Hit> hits = new ArrayList<>();
+        for (Object[] row : rows) {
+            String kind = (String) row[0];
+            Long lessonId = ((Number) row[1]).longValue();
+            Lesson lesson = lessons.get(lessonId);
+            String lessonTitle = lesson != null ? lesson.getTitle() : null;
+            double score = ((Number) row[6]).doubleValue();
+            if (LESSON_HIT.equals(kind)) {
+                hits.add(new Hit(LESSON_HIT, lessonId, lessonTitle, null, null, null,
+                    snippet(lesson != null ? lesson.getDescription() : null, terms), score));
+                continue;
+            }
+            Long videoId = row[2] != null ? ((Number) row[2]).longValue() : null;
+            Video video = videoId != null ? videos.get(videoId) : null;
+            int startMs = ((Number) row[3]).intValue();
+            int endMs = ((Number) row[4]).intValue();
+            int second = (videoId != null
+                ? firstMatchMs(TranscriptionJobService.VIDEO, videoId, startMs, endMs, terms)
+                : firstMatchMs(TranscriptionJobService.LESSON, lessonId, startMs, endMs, terms)) / 1000;
+            hits.add(new Hit(TRANSCRIPT_HIT, lessonId, lessonTitle, videoId, video != null ? video.getTitle() : null,
+                second, snippet((String) row[5], terms), score));
+        }
+        return new Page(query, page, size, hasMore, hits);
+    }
+
+    // Rows: kind, lesson id, video id, start ms, end ms, text, score
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> fullTextRows(String query, int offset, int limit) {
+        String cfg = "'" + textConfig + "'";
+        Query q = entityManager.createNativeQuery(
+            "select kind, lesson_id, video_id, start_ms, end_ms, body, score from ("
+                + " select 'LESSON' as kind, l.id as lesson_id, cast(null as bigint) as video_id,"
+                + " cast(null as integer) as start_ms, cast(null as integer) as end_ms, cast(null as text) as body,"
+                + " ts_rank(setweight(to_tsvector(" + cfg + ", coalesce(l.title, '')), 'A')"
+                + " || setweight(to_tsvector(" + cfg + ", coalesce(l.description, '')), 'B'), query) as score"
+                + " from lesson l cross join plainto_tsquery(" + cfg + ", :q) as query"
+                + " where " + lessonVector("l.") + " @@ query"
+                + " union all"
+                + " select 'TRANSCRIPT', p.lesson_id, p.video_id, p.start_ms, p.end_ms, p.content,"
+                + " ts_rank(to_tsvector(" + cfg + ", p.content), query)"
+                + " from transcript_passage p cross join plainto_tsquery(" + cfg + ", :q) as query"
+                + " where " + passageVector("p.") + " @@ query"
+                + ") hits order by score desc, lesson_id, start_ms nulls first limit :limit offset :offset");
+        q.setParameter("q", query);
+        q.setParameter("limit", limit);
+        q.setParameter("offset", offset);
+        return q.getResultList();
+    }
+
+    /**
+     * Every term must appear; title matches rank above description matches,
+     * which rank above transcript passages.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> substringRows(List<String> terms, int offset, int limit) {
+        StringBuilder lessonMatch = new StringBuilder();
+        StringBuilder passageMatch = new StringBuilder();
+        for (int i = 0; i < terms.size(); i++) {
+            String and = i > 0 ? " and " : "";
+            lessonMatch.append(and).append("lower(coalesce(l.title, '') || ' ' || coalesce(l.description, '')) like :t").append(i).append(" escape '\\'");
+            passageMatch.append(and).append("lower(p.content) like :t").append(i).append(" escape '\\'");
+        }
+        Query q = entityManager.createNativeQuery(
+            "select kind, lesson_id, video_id, start_ms, end_ms, body, score from ("
+                + " select 'LESSON' as kind, l.id as lesson_id, cast(null as bigint) as video_id,"
+                + " cast(null as integer) as start_ms, cast(null as integer) as end_ms, cast(null as varchar) as body,"
+                + " case when lower(coalesce(l.title, '')) like :t0 escape '\\' then 1.0 else 0.4 end as score"
+                + " from lesson l where " + lessonMatch
+                + " union all"
+                + " select 'TRANSCRIPT', p.lesson_id, p.video_id, p.start_ms, p.end_ms, p.content, 0.1"
+                + " from transcript_passage p where " + passageMatch
+                + ") hits order by score desc, lesson_id, start_ms nulls first limit :limit offset :offset");
+        for (int i = 0; i < terms.size(); i++) {
+            q.setParameter("t" + i, "%" + terms.get(i).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        q.setParameter("limit", limit);
+        q.setParameter("offset", offset);
+        return q.getResultList();
+    }
+
+    /**
+     * Start of the first word of the passage matching a query term, so the
+     * player lands on the words rather than the start of the passage.
+     */
+    private int firstMatchMs(String targetType, Long targetId, int startMs, int endMs, List<String> terms) {
+        CompactTranscript transcript = transcriptStore.load(targetType, targetId);
+        if (transcript == null) {
+            return startMs;
+        }
+        for (int i = transcript.ceiling(startMs); i < transcript.size() && transcript.startMs(i) <= endMs; i++) {
+            String word = transcript.word(i).toLowerCase(Locale.ROOT);
+            for (String term : terms) {
+                if (word.startsWith(term)) {
+                    return transcript.startMs(i);
+                }
+            }
+        }
+        return startMs;
+    }
+
+    static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String token : NOT_WORD.split(query.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && !terms.contains(token) && terms.size() < 16) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * About 160 characters of the text around the first term found in it.
+     */
+    static String snippet(String text, List<String> terms) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int at = -1;
+        for (String term : terms) {
+            int i = lower.indexOf(term);
+            if (i >= 0 && (at < 0 || i < at)) {
+                at = i;
+            }
+        }
+        int from = Math.max(0, at - 60);
+        if (from > 0) {
+            // Start on a word boundary
+            int space = text.indexOf(' ', from);
+            if (space >= 0 && space < at) {
+                from = space + 1;
+            }
+        }
+        int to = Math.min(text.length(), from + 160);
+        return (from > 0 ? "…" : "") + text.substring(from, to).trim() + (to < text.length() ? "…" : "");
+    }
+}
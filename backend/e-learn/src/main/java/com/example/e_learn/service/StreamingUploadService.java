@@ -0,0 +1,150 @@
+package com.example.e_learn.service;
+
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams an upload of unknown length straight into a MinIO multipart upload.
+ * The body is cut into fixed-size parts that are uploaded while the next part
+ * is read; each upload holds at most {@code parallel-parts} part buffers, and
+ * the number of concurrent uploads is capped, so memory use is bounded and
+ * nothing is spooled to local disk.
+ */
+@Service
+public class StreamingUploadService {
+
+    public record Result(String etag, long size) {}
+
+    @Autowired
+    private MultipartMinioClient client;
+
+    @Value("${data.mediaBucket}")
+    private String bucketName;
+
+    // S3 requires at least 5 MiB for every part but the last
+    @Value("${media.upload.part-size:8388608}")
+    private int partSize;
+
+    @Value("${media.upload.parallel-parts:4}")
+    private int parallelParts;
+
+    @Value("${media.upload.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${media.upload.slot-wait-seconds:10}")
+    private long slotWaitSeconds;
+
+    private final Semaphore uploadSlots;
+
+    public StreamingUploadService(@Value("${media.upload.max-concurrent:4}") int maxConcurrent) {
+        this.uploadSlots = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Upload everything readable from {@code in} as {@code objectName}. The
+     * bucket must exist. Fails with 503 when all upload slots stay busy, 413
+     * past the size limit and 400 for an empty body.
+     */
+    public Result upload(String objectName, String contentType, InputStream in) throws Exception {
+        acquireSlot();
+        try {
+            String uploadId = client.createUpload(bucketName, objectName, contentType).get();
+            try {
+                return uploadParts(objectName, uploadId, in);
+            } catch (Exception e) {
+                try {
+                    client.abortUpload(bucketName, objectName, uploadId).get();
+                } catch (Exception abortFailure) {
+                    System.err.println("Failed to abort multipart upload " + uploadId + ": " + abortFailure.getMessage());
+                }
+                throw unwrap(e);
+            }
+        } finally {
+            releaseSlot();
+        }
+    }
+
+    /**
+     * Take one of the upload slots shared by streamed and resumable uploads,
+     * failing with 503 when none frees up in time.
+     */
+    public void acquireSlot() throws InterruptedException {
+        if (!uploadSlots.tryAcquire(slotWaitSeconds, TimeUnit.SECONDS)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many uploads in progress, retry later");
+        }
+    }
+
+    public void releaseSlot() {
+        uploadSlots.release();
+    }
+
+    private Result uploadParts(String objectName, String uploadId, InputStream in) throws Exception {
+        // Buffers come back as their parts finish, which throttles reading to the upload speed
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(parallelParts);
+        int allocated = 0;
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        long total = 0;
+        while (true) {
+            byte[] buffer = freeBuffers.poll();
+            if (buffer == null && allocated < parallelParts) {
+                buffer = new byte[partSize];
+                allocated++;
+            } else if (buffer == null) {
+                buffer = freeBuffers.take();
+            }
+            // A part finished while we waited may have failed; stop reading then
+            for (CompletableFuture<Part> part : parts) {
+                if (part.isCompletedExceptionally()) {
+                    part.join();
+                }
+            }
+            int n = in.readNBytes(buffer, 0, partSize);
+            if (n == 0) {
+                if (parts.isEmpty()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty upload");
+                }
+                break;
+            }
+            total += n;
+            if (total > maxBytes) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds " + maxBytes + " bytes");
+            }
+            byte[] partBuffer = buffer;
+            parts.add(client.uploadPart(bucketName, objectName, uploadId, parts.size() + 1, partBuffer, n)
+                .whenComplete((part, failure) -> freeBuffers.offer(partBuffer)));
+            if (n < partSize) {
+                break;
+            }
+        }
+        Part[] completed = new Part[parts.size()];
+        for (int i = 0; i < completed.length; i++) {
+            completed[i] = parts.get(i).join();
+        }
+        ObjectWriteResponse written = client.completeUpload(bucketName, objectName, uploadId, completed).get();
+        return new Result(written.etag(), total);
+    }
+
+    private static Exception unwrap(Exception e) {
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ex ? ex : e;
+    }
+}
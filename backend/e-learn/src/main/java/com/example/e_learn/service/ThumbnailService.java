@@ -0,0 +1,215 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Video;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generates a poster frame and seek-preview sprite sheets with a WebVTT
+ * thumbnail track for uploaded videos, using the local ffmpeg. Like HLS
+ * packaging, every run writes under its own prefix (thumbs/{videoId}/{run}/),
+ * so the files are immutable and only the manifest endpoint changes. The
+ * previous run is removed once a new one is ready, and thumbs/{videoId}/ when
+ * the video is deleted.
+ */
+@Service
+public class ThumbnailService {
+    public static final String IMAGE_TYPE = "image/jpeg";
+    public static final String VTT_TYPE = "text/vtt";
+    public static final String POSTER = "poster.jpg";
+    public static final String TRACK = "thumbnails.vtt";
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private FfmpegRunner ffmpegRunner;
+
+    @Value("${media.thumbnails.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.thumbnails.interval-seconds:5}")
+    private int intervalSeconds;
+
+    @Value("${media.thumbnails.tile-width:160}")
+    private int tileWidth;
+
+    @Value("${media.thumbnails.tile-height:90}")
+    private int tileHeight;
+
+    @Value("${media.thumbnails.columns:10}")
+    private int columns;
+
+    @Value("${media.thumbnails.rows:10}")
+    private int rows;
+
+    @Value("${media.thumbnails.poster-width:1280}")
+    private int posterWidth;
+
+    @Value("${media.work-dir:${java.io.tmpdir}/elearn-media-work}")
+    private String workDir;
+
+    @Async("mediaTaskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVideoUploaded(VideoUploadedEvent event) {
+        if (enabled) {
+            generate(event.videoId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVideoDeleted(VideoDeletedEvent event) {
+        deletePrefix("thumbs/" + event.videoId() + "/");
+    }
+
+    /**
+     * Regenerate the thumbnails of an existing video in the background.
+     */
+    @Async("mediaTaskExecutor")
+    public void generateAsync(Long videoId) {
+        generate(videoId);
+    }
+
+    public void generate(Long videoId) {
+        Video video = videoService.getVideo(videoId).orElse(null);
+        if (video == null || video.getVideoUrl() == null || video.getVideoUrl().isEmpty()) {
+            return;
+        }
+        String previousPath = video.getThumbnailPath();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        String prefix = "thumbs/" + videoId + "/" + run;
+        videoService.updateThumbnails(videoId, "PROCESSING", previousPath);
+        Path dir = null;
+        try {
+            dir = Files.createDirectories(Path.of(workDir, "thumbs-" + videoId + "-" + run));
+            ObjectMetadata source = minioService.metadataFor(video.getMedia(), video.getVideoUrl());
+            minioService.downloadTo(source.objectName(), dir.resolve("source"));
+
+            // Most representative of the first frames, which skips black fade-ins
+            ffmpegRunner.run(dir, List.of(
+                "-i", "source",
+                "-vf", "thumbnail=120,scale=w='min(" + posterWidth + ",iw)':h=-2",
+                "-frames:v", "1", "-q:v", "3", POSTER));
+
+            // One letterboxed tile every interval, then packed into sheets of columns x rows
+            Path frames = Files.createDirectories(dir.resolve("frames"));
+            ffmpegRunner.run(dir, List.of(
+                "-i", "source",
+                "-vf", "fps=1/" + intervalSeconds + "," + fitTile(),
+                "-q:v", "5", "frames/tile_%05d.jpg"));
+            int tiles;
+            try (Stream<Path> files = Files.list(frames)) {
+                tiles = (int) files.count();
+            }
+            if (tiles == 0) {
+                throw new IOException("ffmpeg produced no preview frames");
+            }
+            int perSheet = columns * rows;
+            int sheets = (tiles + perSheet - 1) / perSheet;
+            for (int sheet = 0; sheet < sheets; sheet++) {
+                ffmpegRunner.run(dir, List.of(
+                    "-start_number", String.valueOf(sheet * perSheet + 1),
+                    "-i", "frames/tile_%05d.jpg",
+                    "-vf", "tile=" + columns + "x" + rows,
+                    "-frames:v", "1", "-q:v", "5", sheetName(sheet)));
+            }
+            Files.writeString(dir.resolve(TRACK), thumbnailTrack(tiles), StandardCharsets.UTF_8);
+
+            // Images first, so the track never points at missing sheets
+            minioService.putFile(prefix + "/" + POSTER, dir.resolve(POSTER), IMAGE_TYPE);
+            for (int sheet = 0; sheet < sheets; sheet++) {
+                minioService.putFile(prefix + "/" + sheetName(sheet), dir.resolve(sheetName(sheet)), IMAGE_TYPE);
+            }
+            minioService.putFile(prefix + "/" + TRACK, dir.resolve(TRACK), VTT_TYPE);
+            videoService.updateThumbnails(videoId, "READY", prefix);
+            System.out.println("Thumbnails done for video " + videoId + " at " + prefix + " (" + tiles + " tiles)");
+            if (videoService.getVideo(videoId).isEmpty()) {
+                // Deleted while generating: its cleanup ran before this run was uploaded
+                deletePrefix("thumbs/" + videoId + "/");
+            } else if (previousPath != null && !previousPath.equals(prefix)) {
+                deletePrefix(previousPath);
+            }
+        } catch (Exception e) {
+            System.err.println("Thumbnail generation failed for video " + videoId + ": " + e.getMessage());
+            videoService.updateThumbnails(videoId, "FAILED", previousPath);
+            deletePrefix(prefix);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private void deletePrefix(String prefix) {
+        try {
+            minioService.deletePrefix(prefix);
+        } catch (Exception e) {
+            System.err.println("Could not remove " + prefix + ": " + e.getMessage());
+        }
+    }
+
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    private String fitTile() {
+        return "scale=" + tileWidth + ":" + tileHeight + ":force_original_aspect_ratio=decrease,"
+            + "pad=" + tileWidth + ":" + tileHeight + ":(ow-iw)/2:(oh-ih)/2";
+    }
+
+    static String sheetName(int sheet) {
+        return String.format("sprite_%03d.jpg", sheet);
+    }
+
+    /**
+     * WebVTT track with one cue per tile, pointing into the sheet with a media
+     * fragment; sheet URLs are relative to the track.
+     */
+    String thumbnailTrack(int tiles) {
+        StringBuilder vtt = new StringBuilder("WEBVTT\n");
+        int perSheet = columns * rows;
+        for (int i = 0; i < tiles; i++) {
+            int within = i % perSheet;
+            int x = (within % columns) * tileWidth;
+            int y = (within / columns) * tileHeight;
+            vtt.append('\n')
+                .append(timestamp((long) i * intervalSeconds)).append(" --> ")
+                .append(timestamp((long) (i + 1) * intervalSeconds)).append('\n')
+                .append(sheetName(i / perSheet))
+                .append("#xywh=").append(x).append(',').append(y).append(',')
+                .append(tileWidth).append(',').append(tileHeight).append('\n');
+        }
+        return vtt.toString();
+    }
+
+    private static String timestamp(long seconds) {
+        return String.format("%02d:%02d:%02d.000", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not clean up " + dir + ": " + e.getMessage());
+        }
+    }
+}
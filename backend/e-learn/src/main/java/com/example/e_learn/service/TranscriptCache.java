@@ -0,0 +1,124 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.CachedTranscript;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.repository.CachedTranscriptRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finished transcripts keyed by the content of the media they were recognized
+ * from and the ASR model version, so re-transcribing a video or attaching the
+ * same recording elsewhere is answered without calling the ASR. Entries of an
+ * older model are only dropped on request (after asr.model-version is bumped).
+ */
+@Service
+public class TranscriptCache {
+    private static final String ETAG_PREFIX = "etag/";
+
+    @Autowired
+    private CachedTranscriptRepository repository;
+
+    @Value("${asr.model-version:default}")
+    private String modelVersion;
+
+    @Value("${transcription.cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Identity of the media's bytes: the object key of content-addressed media
+     * (sha256/...), otherwise its ETag with its size. Media without either, like
+     * external links, has none and is never cached.
+     */
+    public static String contentKey(MediaObject media) {
+        if (media == null || media.getObjectKey() == null) {
+            return null;
+        }
+        if (ContentStore.isContentAddressed(media.getObjectKey())) {
+            return media.getObjectKey();
+        }
+        if (media.getEtag() == null || media.getEtag().isBlank() || media.getSizeBytes() == null) {
+            return null;
+        }
+        return ETAG_PREFIX + media.getEtag().replace("\"", "") + ":" + media.getSizeBytes();
+    }
+
+    public String modelVersion() {
+        return modelVersion;
+    }
+
+    /**
+     * Transcript of identical media from the current model, or null.
+     */
+    public CompactTranscript lookup(MediaObject media) {
+        String key = contentKey(media);
+        if (!enabled || key == null) {
+            return null;
+        }
+        CachedTranscript entry = repository.findByContentKeyAndModelVersion(key, modelVersion).orElse(null);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return CompactTranscript.decode(entry.getData());
+        } catch (Exception e) {
+            System.err.println("Dropping unreadable cached transcript " + key + ": " + e.getMessage());
+            repository.delete(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Remember the transcript of the media for the current model, replacing
+     * an earlier one (a forced re-transcription).
+     */
+    public void put(MediaObject media, CompactTranscript transcript) {
+        String key = contentKey(media);
+        if (!enabled || key == null || transcript == null || transcript.isEmpty()) {
+            return;
+        }
+        CachedTranscript entry = repository.findByContentKeyAndModelVersion(key, modelVersion).orElseGet(CachedTranscript::new);
+        entry.setContentKey(key);
+        entry.setModelVersion(modelVersion);
+        entry.setData(transcript.encode());
+        entry.setWordCount(transcript.size());
+        entry.setCreatedAt(Instant.now());
+        try {
+            repository.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // Stored concurrently by another job for the same media
+        }
+    }
+
+    /**
+     * Drop the entries of one model version, or of every version but the
+     * current one when {@code model} is null.
+     */
+    public int invalidate(String model) {
+        return model != null ? repository.deleteByModel(model) : repository.deleteOtherModels(modelVersion);
+    }
+
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> models = new ArrayList<>();
+        for (Object[] row : repository.countByModel()) {
+            Map<String, Object> model = new LinkedHashMap<>();
+            model.put("modelVersion", row[0]);
+            model.put("entries", row[1]);
+            model.put("words", row[2]);
+            models.add(model);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("modelVersion", modelVersion);
+        stats.put("models", models);
+        return stats;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.e_learn.service;
+
+/**
+ * Published in the transaction that stores or removes the transcript of a
+ * video or lesson; {@code transcript} is null when it was removed.
+ */
+public record TranscriptChangedEvent(String targetType, Long targetId, CompactTranscript transcript) {
+}
@@ -0,0 +1,227 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.TranscriptSegment;
+import com.example.e_learn.model.TranscriptionJob;
+import com.example.e_learn.repository.TranscriptSegmentRepository;
+import com.example.e_learn.repository.TranscriptionJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-Sent Events for running transcriptions. Subscribers get the segments
+ * recognized so far, then each new segment and every status change of the
+ * latest job of the video or lesson. Everything is read back from the
+ * database, so a subscriber follows jobs running on any node: changes made
+ * on this node are pushed right away, the rest on the next poll.
+ * <p>
+ * Events: {@code progress} (job status and segments done), {@code words}
+ * (one segment's words in media time) and {@code completed} (the job
+ * succeeded or failed; the stream then ends).
+ * <p>
+ * A job's segments are deleted when it succeeds, so a subscriber polling
+ * from another node can miss the last ones. Before {@code completed}, the
+ * words of the stored transcript outside the segments it was sent arrive as
+ * one more {@code words} event marked {@code final}. Lessons are transcribed
+ * in a single unsegmented request, so for them that final event carries the
+ * whole transcript and nothing comes before it.
+ */
+@Service
+public class TranscriptEventService {
+
+    @Autowired
+    private TranscriptionJobRepository jobRepository;
+
+    @Autowired
+    private TranscriptSegmentRepository segmentRepository;
+
+    @Autowired
+    private TranscriptStore transcriptStore;
+
+    @Value("${transcription.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private static class Subscription {
+        final SseEmitter emitter;
+        Long jobId;
+        final Set<Integer> sent = new HashSet<>();
+        final List<double[]> windows = new ArrayList<>(); // start and end of each segment sent, in seconds
+        String lastProgress;
+        boolean closed;
+
+        Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public SseEmitter subscribe(String targetType, Long targetId) {
+        String key = key(targetType, targetId);
+        Subscription subscription = new Subscription(new SseEmitter(timeoutMs));
+        Runnable remove = () -> {
+            List<Subscription> list = subscriptions.get(key);
+            if (list != null) {
+                list.remove(subscription);
+            }
+        };
+        subscription.emitter.onCompletion(remove);
+        subscription.emitter.onTimeout(remove);
+        subscription.emitter.onError(e -> remove.run());
+        subscriptions.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(subscription);
+        refresh(targetType, targetId, subscription);
+        return subscription.emitter;
+    }
+
+    /**
+     * The latest job of the target changed on this node; push it to subscribers now.
+     */
+    public void changed(String targetType, Long targetId) {
+        List<Subscription> list = subscriptions.get(key(targetType, targetId));
+        if (list == null) {
+            return;
+        }
+        for (Subscription subscription : list) {
+            refresh(targetType, targetId, subscription);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transcription.events.poll-interval-ms:2000}")
+    public void poll() {
+        for (Map.Entry<String, List<Subscription>> entry : subscriptions.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                subscriptions.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            String[] target = entry.getKey().split(":");
+            for (Subscription subscription : entry.getValue()) {
+                refresh(target[0], Long.valueOf(target[1]), subscription);
+            }
+        }
+    }
+
+    private void refresh(String targetType, Long targetId, Subscription subscription) {
+        synchronized (subscription) {
+            if (subscription.closed) {
+                return;
+            }
+            try {
+                TranscriptionJob job = jobRepository.findFirstByTargetTypeAndTargetIdOrderByIdDesc(targetType, targetId).orElse(null);
+                if (job == null) {
+                    send(subscription, "completed", Map.of("status", "NONE"));
+                    close(subscription);
+                    return;
+                }
+                if (!job.getId().equals(subscription.jobId)) {
+                    subscription.jobId = job.getId();
+                    subscription.sent.clear();
+                    subscription.windows.clear();
+                }
+                List<Integer> fresh = new ArrayList<>(segmentRepository.findIndexes(job.getId()));
+                fresh.removeAll(subscription.sent);
+                if (!fresh.isEmpty()) {
+                    for (TranscriptSegment segment : segmentRepository.findByJobIdAndSegmentIndexInOrderBySegmentIndex(job.getId(), fresh)) {
+                        Map<String, Object> words = new LinkedHashMap<>();
+                        words.put("jobId", job.getId());
+                        words.put("segment", segment.getSegmentIndex());
+                        words.put("start", segment.getStartSec());
+                        words.put("end", segment.getStartSec() + segment.getDurationSec());
+                        words.put("words", mapper.readTree(segment.getWords()));
+                        send(subscription, "words", words);
+                        subscription.sent.add(segment.getSegmentIndex());
+                        subscription.windows.add(new double[] {segment.getStartSec(), segment.getStartSec() + segment.getDurationSec()});
+                    }
+                }
+                Map<String, Object> progress = progress(job, subscription.sent.size());
+                String fingerprint = progress.toString();
+                if (!fingerprint.equals(subscription.lastProgress)) {
+                    send(subscription, "progress", progress);
+                    subscription.lastProgress = fingerprint;
+                }
+                if (TranscriptionJobService.SUCCEEDED.equals(job.getStatus())) {
+                    List<TranscriptService.Word> rest = unsent(transcriptStore.load(targetType, targetId), subscription.windows);
+                    if (!rest.isEmpty()) {
+                        Map<String, Object> words = new LinkedHashMap<>();
+                        words.put("jobId", job.getId());
+                        words.put("final", true);
+                        words.put("start", rest.get(0).start());
+                        words.put("end", rest.get(rest.size() - 1).end());
+                        words.put("words", rest);
+                        send(subscription, "words", words);
+                    }
+                }
+                if (TranscriptionJobService.SUCCEEDED.equals(job.getStatus())
+                        || TranscriptionJobService.FAILED.equals(job.getStatus())) {
+                    send(subscription, "completed", progress);
+                    close(subscription);
+                }
+            } catch (Exception e) {
+                // Usually the client went away
+                close(subscription);
+            }
+        }
+    }
+
+    /**
+     * Words of the transcript that start outside every segment window already sent.
+     */
+    static List<TranscriptService.Word> unsent(CompactTranscript transcript, List<double[]> windows) {
+        List<TranscriptService.Word> rest = new ArrayList<>();
+        if (transcript == null) {
+            return rest;
+        }
+        for (TranscriptService.Word word : transcript.window(0, Long.MAX_VALUE)) {
+            boolean sent = false;
+            for (double[] window : windows) {
+                if (word.start() >= window[0] && word.start() < window[1]) {
+                    sent = true;
+                    break;
+                }
+            }
+            if (!sent) {
+                rest.add(word);
+            }
+        }
+        return rest;
+    }
+
+    private static Map<String, Object> progress(TranscriptionJob job, int segmentsDone) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", job.getId());
+        progress.put("status", job.getStatus());
+        progress.put("attempts", job.getAttempts());
+        progress.put("segments", job.getSegments());
+        progress.put("segmentsDone", segmentsDone);
+        if (job.getLastError() != null) {
+            progress.put("lastError", job.getLastError());
+        }
+        return progress;
+    }
+
+    private void send(Subscription subscription, String name, Object data) throws Exception {
+        subscription.emitter.send(SseEmitter.event().name(name).data(data));
+    }
+
+    private void close(Subscription subscription) {
+        subscription.closed = true;
+        subscription.emitter.complete();
+    }
+
+    private static String key(String targetType, Long targetId) {
+        return targetType + ":" + targetId;
+    }
+}
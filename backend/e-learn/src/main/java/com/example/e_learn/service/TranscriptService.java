@@ -1,59 +1,325 @@
 package com.example.e_learn.service;
 
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Service
 public class TranscriptService {
 
+    /**
+     * A recognized word with its start and end in seconds from the start of the media.
+     */
+    public record Word(String word, double start, double end) {}
+
+    /**
+     * A slice of the media sent to the ASR service as one request.
+     */
+    public record Segment(double start, double duration) {}
+
+    /**
+     * Follows a transcription segment by segment, so recognized words can be
+     * persisted (and picked up again by a later attempt) while the rest of the
+     * media is still being recognized.
+     */
+    public interface SegmentListener {
+        default void planned(List<Segment> segments) {}
+
+        /** Words of the segment kept from an earlier attempt, or null to recognize it. */
+        default List<Word> resume(int index, Segment segment) { return null; }
+
+        /**
+         * Words of a recognized segment in media time, clipped to the segment's
+         * share of the overlaps. Called on the thread that recognized it.
+         */
+        default void recognized(int index, Segment segment, List<Word> words) throws Exception {}
+    }
+
     @Value("${asr.url}")
     private String asrUrl;
 
-    public String transcribeVideo(String videoUrl) {
+    @Value("${asr.segment-seconds:120}")
+    private double segmentSeconds;
+
+    @Value("${asr.segment-overlap-seconds:4}")
+    private double overlapSeconds;
+
+    @Value("${asr.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    // Until the response starts: the proxy answers once the whole request is recognized
+    @Value("${asr.segment-timeout-seconds:600}")
+    private long segmentTimeoutSeconds;
+
+    @Value("${asr.unsegmented-timeout-seconds:10800}")
+    private long unsegmentedTimeoutSeconds;
+
+    @Autowired
+    @Qualifier("asrSegmentExecutor")
+    private ThreadPoolTaskExecutor segmentExecutor;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = mapper.getFactory();
+
+    // Shared by all jobs and segments; keeps connections to the proxy alive between requests
+    private HttpClient client;
+
+    /**
+     * Receives words as they are parsed from an ASR response; times are in
+     * seconds from the start of the request's audio.
+     */
+    @FunctionalInterface
+    interface WordSink {
+        void accept(String word, double start, double end);
+    }
+
+    @PostConstruct
+    void init() {
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+    }
+
+    /**
+     * Transcribe the video at the URL with the ASR service: its words in
+     * order, with times relative to its start. A video of known duration is
+     * transcribed in overlapping segments that are recognized concurrently;
+     * with an unknown duration (0) it is sent as a single request. Segments
+     * the listener already has are not recognized again. Failures are thrown
+     * (not turned into placeholder text) so the job queue can retry them.
+     */
+    public CompactTranscript transcribe(String videoUrl, int durationSec, SegmentListener listener) throws Exception {
+        List<Segment> segments = plan(durationSec, segmentSeconds, overlapSeconds);
+        listener.planned(segments);
+        CompactTranscript.Builder transcript = new CompactTranscript.Builder();
+        if (segments.size() == 1) {
+            // Parsed straight into the transcript; a single request has nothing to resume from
+            recognize(videoUrl, null, transcript::add);
+            return transcript.build();
+        }
+        List<Future<List<Word>>> pending = new ArrayList<>();
         try {
-            RestTemplate rest = new RestTemplate();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                List<Word> kept = listener.resume(i, segment);
+                if (kept != null) {
+                    pending.add(CompletableFuture.completedFuture(kept));
+                    continue;
+                }
+                int index = i;
+                pending.add(segmentExecutor.submit(() -> {
+                    List<Word> words = new ArrayList<>();
+                    recognize(videoUrl, segment, (word, start, end) -> words.add(new Word(word, start, end)));
+                    List<Word> clipped = clip(segments, index, words);
+                    listener.recognized(index, segment, clipped);
+                    return clipped;
+                }));
+            }
+            // Stitched in order as segments complete; each list is dropped once appended
+            Word last = null;
+            for (int i = 0; i < pending.size(); i++) {
+                last = append(last, pending.get(i).get(), w -> transcript.add(w.word(), w.start(), w.end()));
+                pending.set(i, null);
+            }
+        } catch (ExecutionException e) {
+            // One failed segment fails the attempt; the job retries the segments still missing
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            pending.forEach(f -> {
+                if (f != null) {
+                    f.cancel(true);
+                }
+            });
+        }
+        return transcript.build();
+    }
 
-            HttpEntity<Map<String, String>> req =
-                    new HttpEntity<>(Map.of("videoUrl", videoUrl), headers);
+    /**
+     * Split {@code totalSec} into segments of {@code lengthSec}, each extended
+     * by {@code overlapSec} into the next one so words on a cut are heard whole
+     * by at least one segment.
+     */
+    static List<Segment> plan(double totalSec, double lengthSec, double overlapSec) {
+        List<Segment> segments = new ArrayList<>();
+        if (totalSec <= 0 || lengthSec <= 0 || totalSec <= lengthSec + overlapSec) {
+            segments.add(new Segment(0, totalSec));
+            return segments;
+        }
+        for (double start = 0; start < totalSec; start += lengthSec) {
+            double duration = Math.min(lengthSec + overlapSec, totalSec - start);
+            segments.add(new Segment(start, duration));
+            if (start + duration >= totalSec) {
+                break;
+            }
+        }
+        return segments;
+    }
 
-            String response = rest.postForObject(asrUrl, req, String.class);
+    /**
+     * Shift each segment's words to media time and stitch them together. Two
+     * neighbouring segments both hear their overlap; it is cut in the middle,
+     * words starting before the cut coming from the earlier segment and the
+     * rest from the later one. A word straddling the cut can still be reported
+     * by both with slightly different times, so a repeat that overlaps the
+     * previous word is dropped.
+     */
+    static List<Word> merge(List<Segment> segments, List<List<Word>> results) {
+        List<Word> merged = new ArrayList<>();
+        Word last = null;
+        for (int i = 0; i < segments.size(); i++) {
+            last = append(last, clip(segments, i, results.get(i)), merged::add);
+        }
+        return merged;
+    }
 
-            if (response == null || response.isBlank()) {
-                return "Transcription non disponible.";
+    /**
+     * Words of segment {@code index} shifted to media time, keeping only those
+     * starting within the segment's share of its overlaps.
+     */
+    static List<Word> clip(List<Segment> segments, int index, List<Word> words) {
+        Segment segment = segments.get(index);
+        double from = index == 0 ? Double.NEGATIVE_INFINITY : cut(segments.get(index - 1), segment);
+        double to = index == segments.size() - 1 ? Double.POSITIVE_INFINITY : cut(segment, segments.get(index + 1));
+        List<Word> clipped = new ArrayList<>();
+        for (Word w : words) {
+            double start = w.start() + segment.start();
+            if (start >= from && start < to) {
+                clipped.add(new Word(w.word(), start, w.end() + segment.start()));
             }
+        }
+        return clipped;
+    }
+
+    /**
+     * Pass on the clipped words of the next segment, dropping a repeat of the
+     * word heard last; returns the new last word.
+     */
+    private static Word append(Word last, List<Word> words, Consumer<Word> out) {
+        for (Word w : words) {
+            if (last != null && last.word().equals(w.word()) && w.start() < last.end()) {
+                continue;
+            }
+            out.accept(w);
+            last = w;
+        }
+        return last;
+    }
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(response);
+    private static double cut(Segment earlier, Segment later) {
+        return (later.start() + earlier.start() + earlier.duration()) / 2;
+    }
 
-            // Check if response has a "words" array
-            if (root.has("words") && root.get("words").isArray()) {
-                StringBuilder transcript = new StringBuilder();
-                for (JsonNode wordNode : root.get("words")) {
-                    if (wordNode.has("word")) {
-                        transcript.append(wordNode.get("word").asText()).append(" ");
+    /**
+     * Send one request to the ASR service and stream the words of its answer
+     * into {@code sink} as they are parsed, without holding the response.
+     */
+    private void recognize(String videoUrl, Segment segment, WordSink sink) throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("videoUrl", videoUrl);
+        if (segment != null) {
+            body.put("start", segment.start());
+            body.put("duration", segment.duration());
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(asrUrl))
+            .timeout(Duration.ofSeconds(segment != null ? segmentTimeoutSeconds : unsegmentedTimeoutSeconds))
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+            .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 200) {
+                String error = new String(in.readNBytes(512), StandardCharsets.UTF_8);
+                throw new IOException("ASR service answered " + response.statusCode() + ": " + error);
+            }
+            parseWords(in, segment == null, sink);
+        }
+    }
+
+    /**
+     * Read {"words": [{"word": ..., "start": ..., "end": ...}, ...]} token by
+     * token. A plain {"text": ...} answer is accepted, without timings, only
+     * when {@code textAllowed} (it cannot be merged with other segments), and
+     * only if the response has no word list: the text is held until the end,
+     * so words always replace it whichever field comes first.
+     */
+    void parseWords(InputStream in, boolean textAllowed, WordSink sink) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                throw new IOException("Empty response from the ASR service");
+            }
+            if (first != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected response from the ASR service");
+            }
+            boolean answered = false;
+            String text = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("words".equals(field) && value == JsonToken.START_ARRAY) {
+                    answered = true;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String word = null;
+                        double start = 0;
+                        double end = 0;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.currentName();
+                            parser.nextToken();
+                            switch (name) {
+                                case "word" -> word = parser.getValueAsString();
+                                case "start" -> start = parser.getValueAsDouble();
+                                case "end" -> end = parser.getValueAsDouble();
+                                default -> parser.skipChildren();
+                            }
+                        }
+                        if (word != null) {
+                            sink.accept(word, start, end);
+                        }
                     }
+                } else if ("text".equals(field) && value == JsonToken.VALUE_STRING && textAllowed) {
+                    text = parser.getText();
+                } else {
+                    parser.skipChildren();
                 }
-                return transcript.toString().trim();
             }
-
-            // If response contains a direct text field (fallback)
-            if (root.has("text")) {
-                return root.get("text").asText();
+            if (!answered && text != null) {
+                answered = true;
+                for (String token : text.trim().split("\\s+")) {
+                    if (!token.isEmpty()) {
+                        sink.accept(token, 0, 0);
+                    }
+                }
+            }
+            if (!answered) {
+                throw new IOException("Unexpected response from the ASR service");
             }
-
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return "Erreur lors de la transcription.";
     }
 }
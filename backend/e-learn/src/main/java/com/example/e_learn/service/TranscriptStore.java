@@ -0,0 +1,165 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.StoredTranscript;
+import com.example.e_learn.repository.StoredTranscriptRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Word-level transcripts of videos and lessons in their compact encoding,
+ * stored in their own table rather than in the entity rows. Decoded
+ * transcripts of recently read targets stay in memory; each read checks the
+ * stored version, so a transcript replaced on another node is not served stale.
+ */
+@Service
+public class TranscriptStore {
+
+    @Autowired
+    private StoredTranscriptRepository repository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${transcription.store.cache-bytes:33554432}")
+    private long cacheBytes;
+
+    private record Cached(Instant version, CompactTranscript transcript) {}
+
+    // Access-ordered, so iteration starts at the least recently used transcript
+    private final LinkedHashMap<String, Cached> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Store (or replace) the transcript of the target in the caller's transaction.
+     */
+    @Transactional
+    public CompactTranscript save(String targetType, Long targetId, List<TranscriptService.Word> words) {
+        return save(targetType, targetId, CompactTranscript.of(words));
+    }
+
+    @Transactional
+    public CompactTranscript save(String targetType, Long targetId, CompactTranscript transcript) {
+        return save(targetType, targetId, transcript, null);
+    }
+
+    /**
+     * Store the transcript recognized by the given ASR model version, so a
+     * backfill can find transcripts left behind by an older model.
+     */
+    @Transactional
+    public CompactTranscript save(String targetType, Long targetId, CompactTranscript transcript, String modelVersion) {
+        StoredTranscript stored = repository.findByTargetTypeAndTargetId(targetType, targetId).orElseGet(() -> {
+            StoredTranscript created = new StoredTranscript();
+            created.setTargetType(targetType);
+            created.setTargetId(targetId);
+            return created;
+        });
+        stored.setData(transcript.encode());
+        stored.setWordCount(transcript.size());
+        stored.setDurationMs(transcript.durationMs());
+        stored.setModelVersion(modelVersion);
+        stored.setUpdatedAt(Instant.now());
+        repository.save(stored);
+        eventPublisher.publishEvent(new TranscriptChangedEvent(targetType, targetId, transcript));
+        return transcript;
+    }
+
+    /**
+     * Remove the transcript of a deleted video or lesson, in the caller's transaction.
+     */
+    @Transactional
+    public void delete(String targetType, Long targetId) {
+        repository.deleteByTarget(targetType, targetId);
+        eventPublisher.publishEvent(new TranscriptChangedEvent(targetType, targetId, null));
+    }
+
+    /**
+     * The transcript of the target, or null when none was stored.
+     */
+    public CompactTranscript load(String targetType, Long targetId) {
+        Instant version = repository.findUpdatedAt(targetType, targetId).orElse(null);
+        if (version == null) {
+            return null;
+        }
+        String key = targetType + ":" + targetId;
+        synchronized (cache) {
+            Cached cached = cache.get(key);
+            if (cached != null && cached.version().equals(version)) {
+                return cached.transcript();
+            }
+        }
+        StoredTranscript stored = repository.findByTargetTypeAndTargetId(targetType, targetId).orElse(null);
+        if (stored == null) {
+            return null;
+        }
+        CompactTranscript transcript;
+        try {
+            transcript = CompactTranscript.decode(stored.getData());
+        } catch (Exception e) {
+            System.err.println("Stored transcript of " + key + " is unreadable: " + e.getMessage());
+            return null;
+        }
+        remember(key, new Cached(stored.getUpdatedAt(), transcript));
+        return transcript;
+    }
+
+    /**
+     * The words of the target heard between {@code fromSec} and {@code toSec}
+     * (both optional), found by binary search on the start times. Targets
+     * transcribed before the store existed are answered with their legacy
+     * transcript as a whole: a JSON word list, or plain text.
+     */
+    public ResponseEntity<?> window(String targetType, Long targetId, String legacy, Double fromSec, Double toSec) {
+        CompactTranscript transcript = load(targetType, targetId);
+        if (transcript != null) {
+            long from = fromSec != null ? Math.round(fromSec * 1000) : 0;
+            long to = toSec != null ? Math.round(toSec * 1000) : Long.MAX_VALUE;
+            if (to < from) {
+                return ResponseEntity.badRequest().body("to must not be before from");
+            }
+            return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header("X-Transcript-Words", String.valueOf(transcript.size()))
+                .header("X-Transcript-Duration-Ms", String.valueOf(transcript.durationMs()))
+                .body(transcript.window(from, to));
+        }
+        if (legacy == null || legacy.isBlank()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+            .contentType(legacy.trim().startsWith("[") ? MediaType.APPLICATION_JSON : MediaType.TEXT_PLAIN)
+            .body(legacy);
+    }
+
+    private void remember(String key, Cached entry) {
+        synchronized (cache) {
+            Cached previous = cache.put(key, entry);
+            if (previous != null) {
+                cachedBytes -= previous.transcript().footprintBytes();
+            }
+            cachedBytes += entry.transcript().footprintBytes();
+            Iterator<Map.Entry<String, Cached>> it = cache.entrySet().iterator();
+            while (cachedBytes > cacheBytes && it.hasNext()) {
+                Map.Entry<String, Cached> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                it.remove();
+                cachedBytes -= eldest.getValue().transcript().footprintBytes();
+            }
+        }
+    }
+}
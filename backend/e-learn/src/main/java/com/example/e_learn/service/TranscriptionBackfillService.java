@@ -0,0 +1,281 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.dto.CreateBackfillRequest;
+import com.example.e_learn.model.TranscriptionBackfill;
+import com.example.e_learn.model.TranscriptionJob;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.TranscriptSegmentRepository;
+import com.example.e_learn.repository.TranscriptionBackfillRepository;
+import com.example.e_learn.repository.TranscriptionJobRepository;
+import com.example.e_learn.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bulk transcription of the videos and lessons whose transcript is missing,
+ * failed or left by an older ASR model. A run does not queue everything at
+ * once: on every tick one node locks it, counts its jobs still queued or
+ * running and tops them up to the run's concurrency, no faster than its rate,
+ * with the next candidates after its keyset cursor. The job queue claims its
+ * jobs only after interactive ones and keeps workers free for them. Pausing
+ * stops both the feeding and the claiming of its queued jobs.
+ */
+@Service
+public class TranscriptionBackfillService {
+    public static final String RUNNING = "RUNNING";
+    public static final String PAUSED = "PAUSED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+
+    // Targets handed to the queue in one tick at most, cache hits included
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private TranscriptionBackfillRepository repository;
+
+    @Autowired
+    private TranscriptionJobRepository jobRepository;
+
+    @Autowired
+    private TranscriptSegmentRepository segmentRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private TranscriptionJobService jobService;
+
+    @Autowired
+    private TranscriptCache transcriptCache;
+
+    @Value("${transcription.worker.enabled:true}")
+    private boolean workerEnabled;
+
+    @Value("${transcription.backfill.interval-ms:5000}")
+    private long intervalMs;
+
+    @Value("${transcription.backfill.concurrency:2}")
+    private int defaultConcurrency;
+
+    @Value("${transcription.backfill.rate-per-minute:30}")
+    private int defaultRatePerMinute;
+
+    private final TransactionTemplate transaction;
+
+    public TranscriptionBackfillService(PlatformTransactionManager transactionManager) {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Start a run; only one can be running or paused at a time.
+     */
+    public TranscriptionBackfill start(CreateBackfillRequest request) {
+        List<String> reasons = request.reasons != null ? request.reasons : List.of("missing", "failed");
+        List<String> targets = request.targets != null ? request.targets : List.of(TranscriptionJobService.VIDEO, TranscriptionJobService.LESSON);
+        for (String reason : reasons) {
+            if (!List.of("missing", "failed", "stale").contains(reason)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown reason " + reason + " (missing, failed or stale)");
+            }
+        }
+        for (String target : targets) {
+            if (!List.of(TranscriptionJobService.VIDEO, TranscriptionJobService.LESSON).contains(target)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown target " + target + " (VIDEO or LESSON)");
+            }
+        }
+        if (reasons.isEmpty() || targets.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one reason and one target are required");
+        }
+        Instant now = Instant.now();
+        TranscriptionBackfill run = new TranscriptionBackfill();
+        run.setStatus(RUNNING);
+        run.setMissing(reasons.contains("missing"));
+        run.setFailed(reasons.contains("failed"));
+        run.setStale(reasons.contains("stale"));
+        run.setVideos(targets.contains(TranscriptionJobService.VIDEO));
+        run.setLessons(targets.contains(TranscriptionJobService.LESSON));
+        run.setModelVersion(transcriptCache.modelVersion());
+        run.setConcurrency(Math.max(1, request.concurrency != null ? request.concurrency : defaultConcurrency));
+        run.setRatePerMinute(Math.max(1, request.ratePerMinute != null ? request.ratePerMinute : defaultRatePerMinute));
+        run.setCursorType(run.isVideos() ? TranscriptionJobService.VIDEO : TranscriptionJobService.LESSON);
+        run.setNextFeedAt(now);
+        run.setCreatedAt(now);
+        run.setUpdatedAt(now);
+        return transaction.execute(status -> {
+            if (repository.existsByStatusIn(List.of(RUNNING, PAUSED))) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A backfill is already running or paused");
+            }
+            return repository.save(run);
+        });
+    }
+
+    public List<TranscriptionBackfill> list() {
+        return repository.findTop20ByOrderByIdDesc();
+    }
+
+    /**
+     * The run with the number of its jobs per status and how many were
+     * answered from the transcript cache.
+     */
+    public Optional<Map<String, Object>> progress(Long id) {
+        return repository.findById(id).map(run -> {
+            Map<String, Object> jobs = new LinkedHashMap<>();
+            for (String status : List.of(TranscriptionJobService.QUEUED, TranscriptionJobService.RUNNING,
+                    TranscriptionJobService.SUCCEEDED, TranscriptionJobService.FAILED)) {
+                jobs.put(status.toLowerCase(), 0L);
+            }
+            long reused = 0;
+            for (Object[] row : jobRepository.countByBackfill(id)) {
+                jobs.put(((String) row[0]).toLowerCase(), row[1]);
+                reused += row[2] != null ? ((Number) row[2]).longValue() : 0;
+            }
+            jobs.put("reused", reused);
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("backfill", run);
+            progress.put("jobs", jobs);
+            return progress;
+        });
+    }
+
+    public TranscriptionBackfill pause(Long id) {
+        return transition(id, RUNNING, PAUSED);
+    }
+
+    public TranscriptionBackfill resume(Long id) {
+        return transition(id, PAUSED, RUNNING);
+    }
+
+    /**
+     * Stop the run for good; its jobs not yet started are failed, those
+     * running are left to finish, and are failed rather than retried if
+     * their attempt fails.
+     */
+    public TranscriptionBackfill cancel(Long id) {
+        return transaction.execute(status -> {
+            TranscriptionBackfill run = lock(id);
+            if (!RUNNING.equals(run.getStatus()) && !PAUSED.equals(run.getStatus())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Backfill " + id + " is " + run.getStatus());
+            }
+            Instant now = Instant.now();
+            segmentRepository.deleteQueuedOfBackfill(id);
+            jobRepository.failQueuedOfBackfill(id, "Backfill cancelled", now);
+            run.setStatus(CANCELLED);
+            run.setUpdatedAt(now);
+            run.setFinishedAt(now);
+            return run;
+        });
+    }
+
+    private TranscriptionBackfill transition(Long id, String from, String to) {
+        return transaction.execute(status -> {
+            TranscriptionBackfill run = lock(id);
+            if (!from.equals(run.getStatus())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Backfill " + id + " is " + run.getStatus());
+            }
+            run.setStatus(to);
+            run.setUpdatedAt(Instant.now());
+            return run;
+        });
+    }
+
+    private TranscriptionBackfill lock(Long id) {
+        return repository.lockById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Backfill " + id + " not found"));
+    }
+
+    @Scheduled(fixedDelayString = "${transcription.backfill.interval-ms:5000}")
+    public void tick() {
+        if (!workerEnabled) {
+            return;
+        }
+        try {
+            feed();
+        } catch (Exception e) {
+            System.err.println("Transcription backfill tick failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queue the next candidates of the running backfill, if this node gets
+     * its lock. Media found in the transcript cache succeeds on the spot and
+     * takes neither a concurrency slot nor a share of the rate.
+     */
+    void feed() {
+        transaction.executeWithoutResult(status -> {
+            TranscriptionBackfill run = repository.lockRunning().orElse(null);
+            if (run == null) {
+                return;
+            }
+            Instant now = Instant.now();
+            long inFlight = jobRepository.countActiveByBackfill(run.getId());
+            run.setUpdatedAt(now);
+            if (run.getCursorType() == null) {
+                if (inFlight == 0) {
+                    run.setStatus(COMPLETED);
+                    run.setFinishedAt(now);
+                    System.out.println("Transcription backfill " + run.getId() + " completed: " + run.getSelected() + " targets");
+                }
+                return;
+            }
+            // Rate limit: one job per interval, with at most a tick's worth of unused allowance carried over
+            long perJobMs = Math.max(1, 60_000L / run.getRatePerMinute());
+            Instant next = run.getNextFeedAt();
+            if (next == null || next.isBefore(now.minusMillis(intervalMs))) {
+                next = now.minusMillis(intervalMs);
+            }
+            long slots = run.getConcurrency() - inFlight;
+            int handed = 0;
+            while (slots > 0 && !next.isAfter(now) && handed < BATCH_SIZE && run.getCursorType() != null) {
+                int page = (int) Math.min(slots, BATCH_SIZE - handed);
+                List<Long> ids = candidates(run, page);
+                int used = 0;
+                while (used < ids.size() && slots > 0 && !next.isAfter(now)) {
+                    Long id = ids.get(used++);
+                    TranscriptionJob job = jobService.enqueue(run.getCursorType(), id, false, run.getId());
+                    run.setCursorId(id);
+                    run.setSelected(run.getSelected() + 1);
+                    handed++;
+                    if (!TranscriptionJobService.SUCCEEDED.equals(job.getStatus())) {
+                        slots--;
+                        next = next.plusMillis(perJobMs);
+                    }
+                }
+                if (ids.size() < page && used == ids.size()) {
+                    // This target type is exhausted
+                    if (TranscriptionJobService.VIDEO.equals(run.getCursorType()) && run.isLessons()) {
+                        run.setCursorType(TranscriptionJobService.LESSON);
+                    } else {
+                        run.setCursorType(null);
+                    }
+                    run.setCursorId(0);
+                }
+            }
+            run.setNextFeedAt(next);
+        });
+    }
+
+    private List<Long> candidates(TranscriptionBackfill run, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (TranscriptionJobService.VIDEO.equals(run.getCursorType())) {
+            return videoRepository.findTranscriptionCandidates(run.getCursorId(), run.isMissing(), run.isFailed(),
+                run.isStale(), run.getModelVersion(), page);
+        }
+        return lessonRepository.findTranscriptionCandidates(run.getCursorId(), run.isMissing(), run.isFailed(),
+            run.isStale(), run.getModelVersion(), page);
+    }
+}
@@ -0,0 +1,515 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.TranscriptSegment;
+import com.example.e_learn.model.TranscriptionJob;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.TranscriptSegmentRepository;
+import com.example.e_learn.repository.TranscriptionBackfillRepository;
+import com.example.e_learn.repository.TranscriptionJobRepository;
+import com.example.e_learn.repository.VideoRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable transcription queue. Requests only insert a job; every node polls
+ * for due jobs, claims as many as it has free workers with
+ * SELECT ... FOR UPDATE SKIP LOCKED, and runs the ASR call outside the claiming
+ * transaction while holding a renewed lease. Failed attempts are retried with
+ * exponential backoff; a job whose node dies is picked up again once its
+ * lease has run out. Recognized segments are persisted as they complete, so
+ * the next attempt only recognizes what is missing and subscribers see the
+ * transcript grow. Lessons are the exception: their legacy video has no
+ * duration of its own, so it is recognized in one request, without partial
+ * words or resumption. Media already transcribed by the current ASR model is
+ * answered from the {@link TranscriptCache} instead.
+ */
+@Service
+public class TranscriptionJobService {
+    public static final String VIDEO = "VIDEO";
+    public static final String LESSON = "LESSON";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TranscriptionJobRepository repository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private TranscriptSegmentRepository segmentRepository;
+
+    @Autowired
+    private TranscriptionBackfillRepository backfillRepository;
+
+    @Autowired
+    private TranscriptService transcriptService;
+
+    @Autowired
+    private TranscriptEventService events;
+
+    @Autowired
+    private TranscriptStore transcriptStore;
+
+    @Autowired
+    private TranscriptCache transcriptCache;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    @Qualifier("transcriptionExecutor")
+    private TaskExecutor executor;
+
+    @Value("${transcription.worker.enabled:true}")
+    private boolean workerEnabled;
+
+    @Value("${transcription.worker.threads:2}")
+    private int workerThreads;
+
+    @Value("${transcription.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${transcription.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    @Value("${transcription.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${transcription.lease-seconds:300}")
+    private long leaseSeconds;
+
+    // Workers of each node never given to backfill jobs, so interactive transcriptions start at once
+    @Value("${transcription.backfill.reserved-workers:1}")
+    private int reservedWorkers;
+
+    @Value("${transcription.node-id:}")
+    private String nodeId;
+
+    private final TransactionTemplate transaction;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Jobs this node is running, whose leases it keeps renewing
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    // The backfill jobs among them
+    private final Set<Long> runningBackfill = ConcurrentHashMap.newKeySet();
+
+    public TranscriptionJobService(PlatformTransactionManager transactionManager) {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "node";
+            }
+            nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+        } catch (Exception e) {
+            System.err.println("Could not detect the database for the transcription queue: " + e.getMessage());
+            return;
+        }
+        try {
+            // At most one queued or running job per target; enqueue locks the target row so it is never hit
+            transaction.executeWithoutResult(status -> entityManager.createNativeQuery(
+                "create unique index if not exists uq_transcription_job_active on transcription_job (target_type, target_id) "
+                    + "where status in ('QUEUED', 'RUNNING')").executeUpdate());
+        } catch (Exception e) {
+            System.err.println("Could not create the active transcription job index: " + e.getMessage());
+        }
+    }
+
+    public Optional<TranscriptionJob> get(Long id) {
+        return repository.findById(id);
+    }
+
+    public TranscriptionJob enqueue(String targetType, Long targetId) {
+        return enqueue(targetType, targetId, false);
+    }
+
+    /**
+     * Queue a transcription of the target, or return the job already queued or
+     * running for it. When the transcript cache has the target's media for
+     * the current model, the transcript is stored at once and the returned job
+     * has already succeeded; {@code refresh} skips the cache and recognizes
+     * the media again.
+     */
+    public TranscriptionJob enqueue(String targetType, Long targetId, boolean refresh) {
+        return enqueue(targetType, targetId, refresh, null);
+    }
+
+    /**
+     * Queue a transcription on behalf of a backfill run (null for an
+     * interactive request), joining the caller's transaction if any.
+     */
+    public TranscriptionJob enqueue(String targetType, Long targetId, boolean refresh, Long backfillId) {
+        TranscriptionJob job = transaction.execute(status -> {
+            // Concurrent triggers for the same target wait here, so the second one finds the first one's job
+            lockTarget(targetType, targetId);
+            List<TranscriptionJob> active = repository.findActive(targetType, targetId);
+            if (!active.isEmpty()) {
+                TranscriptionJob pending = active.get(0);
+                if (refresh) {
+                    pending.setRefresh(true);
+                }
+                if (backfillId == null && pending.getBackfillId() != null) {
+                    // An interactive trigger takes the job over, so it waits for neither a paused run nor its limits
+                    pending.setBackfillId(null);
+                }
+                return pending;
+            }
+            Instant now = Instant.now();
+            TranscriptionJob created = new TranscriptionJob();
+            created.setTargetType(targetType);
+            created.setTargetId(targetId);
+            created.setBackfillId(backfillId);
+            created.setCreatedAt(now);
+            created.setUpdatedAt(now);
+            CompactTranscript cached = refresh ? null : transcriptCache.lookup(media(targetType, targetId));
+            if (cached != null) {
+                store(targetType, targetId, cached);
+                created.setStatus(SUCCEEDED);
+                created.setReused(true);
+                created.setFinishedAt(now);
+            } else {
+                created.setStatus(QUEUED);
+                created.setRefresh(refresh ? true : null);
+                created.setNextAttemptAt(now);
+            }
+            return repository.save(created);
+        });
+        if (SUCCEEDED.equals(job.getStatus())) {
+            events.changed(targetType, targetId);
+        }
+        return job;
+    }
+
+    private void lockTarget(String targetType, Long targetId) {
+        if (VIDEO.equals(targetType)) {
+            videoRepository.lockId(targetId);
+        } else {
+            lessonRepository.lockId(targetId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transcription.poll-interval-ms:2000}")
+    public void poll() {
+        if (!workerEnabled) {
+            return;
+        }
+        int free = workerThreads - running.size();
+        if (free <= 0) {
+            return;
+        }
+        int backfillSlots = Math.min(free, workerThreads - reservedWorkers - runningBackfill.size());
+        List<TranscriptionJob> claimed;
+        try {
+            claimed = claim(free, Math.max(0, backfillSlots));
+        } catch (Exception e) {
+            System.err.println("Failed to claim transcription jobs: " + e.getMessage());
+            return;
+        }
+        for (TranscriptionJob job : claimed) {
+            running.add(job.getId());
+            if (job.getBackfillId() != null) {
+                runningBackfill.add(job.getId());
+            }
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                // The lease runs out and the job is claimed again, here or elsewhere
+                running.remove(job.getId());
+                runningBackfill.remove(job.getId());
+                System.err.println("Transcription job " + job.getId() + " rejected by the worker pool");
+            }
+        }
+    }
+
+    List<TranscriptionJob> claim(int limit) {
+        return claim(limit, limit);
+    }
+
+    /**
+     * Claim up to {@code limit} due jobs in one short transaction, at most
+     * {@code backfillLimit} of them queued by a backfill. Jobs whose lease
+     * expired after their last allowed attempt are failed instead.
+     */
+    List<TranscriptionJob> claim(int limit, int backfillLimit) {
+        Instant now = Instant.now();
+        List<TranscriptionJob> claimed = transaction.execute(status -> {
+            List<TranscriptionJob> jobs = new ArrayList<>();
+            int backfill = 0;
+            for (TranscriptionJob job : repository.lockDue(now, limit)) {
+                if (job.getBackfillId() != null && !(RUNNING.equals(job.getStatus()) && job.getAttempts() >= maxAttempts)) {
+                    if (backfill >= backfillLimit) {
+                        continue; // left queued; the lock is released with the transaction
+                    }
+                    backfill++;
+                }
+                job.setUpdatedAt(now);
+                if (RUNNING.equals(job.getStatus()) && job.getAttempts() >= maxAttempts) {
+                    job.setStatus(FAILED);
+                    job.setLastError("Worker " + job.getLockedBy() + " stopped responding");
+                    job.setLockedBy(null);
+                    job.setLockedUntil(null);
+                    job.setFinishedAt(now);
+                    segmentRepository.deleteByJob(job.getId());
+                    continue;
+                }
+                job.setStatus(RUNNING);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setLockedBy(nodeId);
+                job.setLockedUntil(now.plusSeconds(leaseSeconds));
+                jobs.add(job);
+            }
+            return jobs;
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    @Scheduled(fixedDelayString = "${transcription.lease-renew-interval-ms:60000}")
+    public void renewLeases() {
+        if (!running.isEmpty()) {
+            repository.renewLeases(List.copyOf(running), nodeId, Instant.now().plusSeconds(leaseSeconds));
+        }
+    }
+
+    void run(TranscriptionJob job) {
+        try {
+            Source source = source(job);
+            if (source == null) {
+                finish(job, null, new IllegalStateException(job.getTargetType() + " " + job.getTargetId() + " has no video"), false);
+                return;
+            }
+            // Another job may have transcribed the same media since this one was queued
+            CompactTranscript transcript = Boolean.TRUE.equals(job.getRefresh()) ? null : transcriptCache.lookup(source.media());
+            if (transcript != null) {
+                job.setReused(true);
+            } else {
+                transcript = transcriptService.transcribe(source.url(), source.durationSec(), new Progress(job));
+                transcriptCache.put(source.media(), transcript);
+            }
+            finish(job, transcript, null, false);
+        } catch (Exception e) {
+            System.err.println("Transcription job " + job.getId() + " attempt " + job.getAttempts() + " failed: " + e.getMessage());
+            finish(job, null, e, true);
+        } finally {
+            running.remove(job.getId());
+            runningBackfill.remove(job.getId());
+        }
+    }
+
+    /**
+     * Persists each recognized segment of an attempt and hands segments kept
+     * by an earlier attempt of the same job back to the transcription.
+     */
+    private class Progress implements TranscriptService.SegmentListener {
+        private final TranscriptionJob job;
+
+        Progress(TranscriptionJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void planned(List<TranscriptService.Segment> segments) {
+            // Segments of an attempt planned with other settings do not line up with these
+            for (Object[] row : segmentRepository.findLayout(job.getId())) {
+                int index = (Integer) row[0];
+                if (index >= segments.size() || !segments.get(index).equals(new TranscriptService.Segment((Double) row[1], (Double) row[2]))) {
+                    segmentRepository.deleteByJob(job.getId());
+                    break;
+                }
+            }
+            repository.updateSegments(job.getId(), segments.size());
+            events.changed(job.getTargetType(), job.getTargetId());
+        }
+
+        @Override
+        public List<TranscriptService.Word> resume(int index, TranscriptService.Segment segment) {
+            return segmentRepository.findByJobIdAndSegmentIndex(job.getId(), index)
+                .map(s -> readWords(s.getWords()))
+                .orElse(null);
+        }
+
+        @Override
+        public void recognized(int index, TranscriptService.Segment segment, List<TranscriptService.Word> words) throws Exception {
+            TranscriptSegment row = new TranscriptSegment();
+            row.setJobId(job.getId());
+            row.setSegmentIndex(index);
+            row.setStartSec(segment.start());
+            row.setDurationSec(segment.duration());
+            row.setWords(mapper.writeValueAsString(words));
+            row.setCreatedAt(Instant.now());
+            try {
+                segmentRepository.save(row);
+            } catch (DataIntegrityViolationException e) {
+                // Already stored by an attempt that lost its lease; same words
+            }
+            events.changed(job.getTargetType(), job.getTargetId());
+        }
+    }
+
+    private List<TranscriptService.Word> readWords(String json) {
+        try {
+            return mapper.readValue(json, new TypeReference<List<TranscriptService.Word>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable transcript segment", e);
+        }
+    }
+
+    private record Source(String url, int durationSec, MediaObject media) {}
+
+    // A fresh URL is resolved for every attempt, so retries never use an expired signature.
+    // A lesson's own duration is the sum over its videos, so its legacy video is sent unsegmented.
+    private Source source(TranscriptionJob job) throws Exception {
+        Source source = switch (job.getTargetType()) {
+            case VIDEO -> videoRepository.findById(job.getTargetId())
+                    .map(v -> new Source(v.getVideoUrl(), v.getDurationSec(), v.getMedia())).orElse(null);
+            case LESSON -> lessonRepository.findById(job.getTargetId())
+                    .map(l -> new Source(l.getVideoUrl(), 0, l.getVideoMedia())).orElse(null);
+            default -> null;
+        };
+        if (source == null || source.url() == null || source.url().isEmpty()) {
+            return null;
+        }
+        // The ASR fetches stored media on the internal host; client URLs are signed for the public one
+        if (source.media() != null && source.media().getObjectKey() != null) {
+            return new Source(minioService.internalUrl(source.media().getObjectKey()), source.durationSec(), source.media());
+        }
+        return source;
+    }
+
+    private MediaObject media(String targetType, Long targetId) {
+        return switch (targetType) {
+            case VIDEO -> videoRepository.findById(targetId).map(Video::getMedia).orElse(null);
+            case LESSON -> lessonRepository.findById(targetId).map(Lesson::getVideoMedia).orElse(null);
+            default -> null;
+        };
+    }
+
+    private void store(String targetType, Long targetId, CompactTranscript transcript) {
+        transcriptStore.save(targetType, targetId, transcript, transcriptCache.modelVersion());
+        // The legacy text column is superseded by the stored transcript
+        if (VIDEO.equals(targetType)) {
+            videoRepository.updateTranscript(targetId, null);
+        } else {
+            lessonRepository.updateTranscript(targetId, null);
+        }
+    }
+
+    /**
+     * Store the transcript and complete the job, or schedule the next attempt,
+     * in one transaction. Nothing is written when this node lost the lease.
+     */
+    private void finish(TranscriptionJob claimed, CompactTranscript transcript, Exception error, boolean retryable) {
+        transaction.executeWithoutResult(status -> {
+            TranscriptionJob job = repository.lockById(claimed.getId()).orElse(null);
+            if (job == null || !RUNNING.equals(job.getStatus()) || !nodeId.equals(job.getLockedBy())) {
+                System.err.println("Transcription job " + claimed.getId() + " was taken over; dropping this attempt");
+                return;
+            }
+            Instant now = Instant.now();
+            job.setLockedBy(null);
+            job.setLockedUntil(null);
+            job.setUpdatedAt(now);
+            if (error == null) {
+                store(job.getTargetType(), job.getTargetId(), transcript);
+                job.setStatus(SUCCEEDED);
+                job.setReused(claimed.getReused());
+                job.setLastError(null);
+                job.setFinishedAt(now);
+                segmentRepository.deleteByJob(job.getId());
+                return;
+            }
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            job.setLastError(message.length() > 1024 ? message.substring(0, 1024) : message);
+            if (retryable && job.getAttempts() < maxAttempts && !backfillStopped(job)) {
+                job.setStatus(QUEUED);
+                job.setNextAttemptAt(now.plus(backoff(job.getAttempts())));
+            } else {
+                job.setStatus(FAILED);
+                job.setFinishedAt(now);
+                segmentRepository.deleteByJob(job.getId());
+            }
+        });
+        events.changed(claimed.getTargetType(), claimed.getTargetId());
+    }
+
+    /**
+     * Whether the job belongs to a backfill that was cancelled while it ran.
+     * Such a job is not retried: queued again, it would never be claimed and
+     * would keep its target from being queued. The run is locked, so a cancel
+     * either sees the job queued or is seen here.
+     */
+    private boolean backfillStopped(TranscriptionJob job) {
+        if (job.getBackfillId() == null) {
+            return false;
+        }
+        return backfillRepository.lockById(job.getBackfillId())
+            .map(run -> !TranscriptionBackfillService.RUNNING.equals(run.getStatus())
+                && !TranscriptionBackfillService.PAUSED.equals(run.getStatus()))
+            .orElse(true);
+    }
+
+    /**
+     * Exponential backoff after the given number of attempts, capped, with up
+     * to 20% jitter so jobs failed together do not retry together.
+     */
+    Duration backoff(int attempts) {
+        long seconds = backoffSeconds << Math.min(attempts - 1, 20);
+        seconds = Math.min(seconds, maxBackoffSeconds);
+        long jitter = ThreadLocalRandom.current().nextLong(seconds / 5 + 1);
+        return Duration.ofSeconds(seconds + jitter);
+    }
+}
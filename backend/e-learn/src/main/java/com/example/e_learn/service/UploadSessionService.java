@@ -0,0 +1,375 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.dto.CreateUploadRequest;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.UploadSession;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.UploadSessionRepository;
+import io.minio.messages.Part;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Resumable (tus-style) uploads: create a session, append chunks at the
+ * current offset, ask for the offset after a failure, then finalize. Every
+ * chunk becomes one MinIO multipart part, so nothing already accepted is
+ * sent twice and the size is not bound by the servlet multipart limit.
+ * Finalizing reads the whole object back, so it runs in the background and
+ * the client polls the session until it is COMPLETED.
+ */
+@Service
+public class UploadSessionService {
+    public static final String ACTIVE = "ACTIVE";
+    public static final String FINALIZING = "FINALIZING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String ABORTED = "ABORTED";
+
+    // S3 minimum for every part but the last
+    public static final int MIN_CHUNK_BYTES = 5 * 1024 * 1024;
+
+    @Autowired
+    private UploadSessionRepository repository;
+
+    @Autowired
+    private MultipartMinioClient client;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private MediaProbeService mediaProbeService;
+
+    @Autowired
+    private StreamingUploadService streamingUploadService;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    @Qualifier("mediaTaskExecutor")
+    private TaskExecutor executor;
+
+    @Value("${data.mediaBucket}")
+    private String bucketName;
+
+    // Chunks are buffered in memory while their part uploads
+    @Value("${media.upload.max-chunk-bytes:33554432}")
+    private int maxChunkBytes;
+
+    @Value("${media.upload.resumable-max-bytes:10737418240}")
+    private long maxBytes;
+
+    @Value("${media.upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    // A finalization not saved for this long is taken over by another node
+    @Value("${media.upload.finalize-lease-minutes:30}")
+    private long finalizeLeaseMinutes;
+
+    private final TransactionTemplate transaction;
+
+    public UploadSessionService(PlatformTransactionManager transactionManager) {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    public int getMaxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    public Optional<UploadSession> get(String id) {
+        return repository.findById(id);
+    }
+
+    public UploadSession create(CreateUploadRequest request) throws Exception {
+        if (!minioService.supportsMultipart()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "Resumable uploads need the MinIO storage backend");
+        }
+        if (request.lessonId == null || request.filename == null || request.filename.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lessonId and filename are required");
+        }
+        if (request.length == null || request.length <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "length must be the total size in bytes");
+        }
+        if (request.length > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds " + maxBytes + " bytes");
+        }
+        String contentType = request.contentType == null || request.contentType.isBlank()
+            || request.contentType.equals("application/octet-stream") ? "video/mp4" : request.contentType;
+        minioService.ensureBucket();
+        String objectKey = minioService.stagingObjectName(request.filename);
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setLessonId(request.lessonId);
+        session.setTitle(request.title);
+        session.setFilename(request.filename);
+        session.setContentType(contentType);
+        session.setObjectKey(objectKey);
+        session.setMultipartUploadId(client.createUpload(bucketName, objectKey, contentType).get());
+        session.setTotalBytes(request.length);
+        session.setStatus(ACTIVE);
+        session.setCreatedAt(Instant.now());
+        session.setUpdatedAt(session.getCreatedAt());
+        return repository.save(session);
+    }
+
+    /**
+     * Append {@code length} bytes at {@code offset}, which must equal the
+     * session's current offset. The chunk is stored as the next multipart
+     * part only once it has been received completely; a chunk re-sent after a
+     * crash overwrites the same part number, so retries are idempotent.
+     */
+    public UploadSession appendChunk(String id, long offset, long length, InputStream in) throws Exception {
+        UploadSession session = repository.findById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload"));
+        if (!ACTIVE.equals(session.getStatus())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is " + session.getStatus());
+        }
+        if (offset != session.getOffsetBytes()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload-Offset must be " + session.getOffsetBytes());
+        }
+        long remaining = session.getTotalBytes() - offset;
+        if (length <= 0 || length > remaining || length > maxChunkBytes) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Chunk must be 1.." + Math.min(remaining, maxChunkBytes) + " bytes with a Content-Length");
+        }
+        if (length < MIN_CHUNK_BYTES && length < remaining) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Every chunk but the last must be at least " + MIN_CHUNK_BYTES + " bytes");
+        }
+
+        streamingUploadService.acquireSlot();
+        try {
+            byte[] chunk = in.readNBytes((int) length);
+            if (chunk.length < length) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Chunk ended after " + chunk.length + " of " + length + " bytes; resend it");
+            }
+            int partNumber = session.getPartCount() + 1;
+            client.uploadPart(bucketName, session.getObjectKey(), session.getMultipartUploadId(),
+                partNumber, chunk, chunk.length).get();
+        } finally {
+            streamingUploadService.releaseSlot();
+        }
+        session.setPartCount(session.getPartCount() + 1);
+        session.setOffsetBytes(offset + length);
+        session.setUpdatedAt(Instant.now());
+        // @Version rejects a concurrent append of the same chunk
+        return repository.save(session);
+    }
+
+    /**
+     * Start finalizing a fully uploaded session and return it. Only the first
+     * call moves it to FINALIZING and hands the work to the background; any
+     * call after that returns the session as it stands, with its video id once
+     * COMPLETED.
+     */
+    public UploadSession finalizeUpload(String id) {
+        UploadSession session = repository.findById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload"));
+        if (FINALIZING.equals(session.getStatus()) || COMPLETED.equals(session.getStatus())) {
+            return session;
+        }
+        if (!ACTIVE.equals(session.getStatus())) {
+            String reason = session.getError() != null ? ": " + session.getError() : "";
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is " + session.getStatus() + reason);
+        }
+        if (session.getOffsetBytes() != session.getTotalBytes()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "Upload incomplete: " + session.getOffsetBytes() + " of " + session.getTotalBytes() + " bytes");
+        }
+        if (repository.startFinalizing(id, Instant.now()) == 1) {
+            submit(id);
+        }
+        // This call or a concurrent one moved it on
+        return repository.findById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload"));
+    }
+
+    private void submit(String id) {
+        try {
+            executor.execute(() -> complete(id));
+        } catch (TaskRejectedException e) {
+            System.err.println("Finalization of upload session " + id + " is deferred: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Carry a FINALIZING session through the remaining steps: complete the
+     * multipart upload, relocate the moov box and hash the bytes, adopt them
+     * under their content key, then create the video. Each step's result is
+     * saved before the next starts, so a resumed finalization skips what is
+     * done; the video is created in the transaction that marks the session
+     * COMPLETED, so it is never created twice.
+     */
+    void complete(String id) {
+        UploadSession session = repository.findById(id).orElse(null);
+        if (session == null || !FINALIZING.equals(session.getStatus())) {
+            return;
+        }
+        try {
+            if (session.getStagedKey() == null) {
+                // Already there when the upload was completed before the last attempt stopped
+                if (!minioService.exists(session.getObjectKey())) {
+                    List<Part> parts = client.listUploadedParts(bucketName, session.getObjectKey(), session.getMultipartUploadId());
+                    if (parts.size() != session.getPartCount()) {
+                        throw new IllegalStateException(
+                            "Expected " + session.getPartCount() + " parts in storage, found " + parts.size());
+                    }
+                    Part[] completed = parts.stream().map(p -> new Part(p.partNumber(), p.etag())).toArray(Part[]::new);
+                    client.completeUpload(bucketName, session.getObjectKey(), session.getMultipartUploadId(), completed).get();
+                }
+                // Chunks may have arrived on different nodes, so the moov box is relocated and the hash taken from the stored object
+                MinioService.Staged staged = minioService.fastStart(session.getObjectKey(), session.getTotalBytes(),
+                    session.getContentType());
+                session.setStagedKey(staged.key());
+                session.setSha256(staged.sha256());
+                session = save(session);
+            }
+
+            UploadedObject uploaded = null;
+            if (session.getAdoptedKey() == null) {
+                if (!session.getStagedKey().equals(session.getObjectKey())) {
+                    minioService.deleteObject(session.getObjectKey());
+                }
+                if (minioService.exists(session.getStagedKey())) {
+                    uploaded = minioService.adopt(session.getStagedKey(), session.getSha256(), session.getTotalBytes(),
+                        session.getContentType());
+                    session.setAdoptedKey(uploaded.metadata().objectName());
+                } else {
+                    // Adopted before the last attempt stopped: the staging object is gone and the reference taken
+                    session.setAdoptedKey(ContentStore.keyFor(session.getSha256()));
+                }
+                session = save(session);
+            }
+            if (uploaded == null) {
+                uploaded = minioService.adopted(session.getAdoptedKey());
+            }
+
+            String title = session.getTitle() != null && !session.getTitle().isBlank() ? session.getTitle() : session.getFilename();
+            MediaObject media = uploaded.toMediaObject();
+            MediaProbe.MediaInfo probed = mediaProbeService.probe(media);
+            String url = uploaded.url();
+            UploadSession adopted = session;
+            transaction.executeWithoutResult(status -> {
+                int orderIndex = videoService.getVideosByLessonId(adopted.getLessonId()).size();
+                Video video = videoService.createVideoForLesson(adopted.getLessonId(), title, url, media, probed, orderIndex);
+                adopted.setStatus(COMPLETED);
+                adopted.setVideoId(video.getId());
+                save(adopted);
+            });
+            System.out.println("Finalized upload session " + id + " as video " + adopted.getVideoId());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            System.err.println("Finalization of upload session " + id + " was taken over elsewhere");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // The lesson is gone or the parts do not add up: retrying cannot help
+            fail(session, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Finalization of upload session " + id + " failed, will resume: " + e.getMessage());
+        }
+    }
+
+    private UploadSession save(UploadSession session) {
+        session.setUpdatedAt(Instant.now());
+        // @Version rejects the save once another node has taken the finalization over
+        return repository.save(session);
+    }
+
+    /**
+     * Give up on a finalization, dropping whatever it had stored so far.
+     */
+    private void fail(UploadSession session, String error) {
+        System.err.println("Finalization of upload session " + session.getId() + " failed: " + error);
+        try {
+            if (session.getAdoptedKey() != null) {
+                contentStore.release(session.getAdoptedKey());
+            } else if (session.getStagedKey() != null) {
+                minioService.deleteObject(session.getStagedKey());
+                minioService.deleteObject(session.getObjectKey());
+            } else {
+                abortInStorage(session);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to clean up upload session " + session.getId() + ": " + e.getMessage());
+        }
+        session.setStatus(FAILED);
+        session.setError(error);
+        try {
+            save(session);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            System.err.println("Upload session " + session.getId() + " was taken over while failing");
+        }
+    }
+
+    public void abort(String id) throws Exception {
+        UploadSession session = repository.findById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload"));
+        if (ACTIVE.equals(session.getStatus())) {
+            abortInStorage(session);
+            session.setStatus(ABORTED);
+            session.setUpdatedAt(Instant.now());
+            repository.save(session);
+        }
+    }
+
+    /**
+     * Abort sessions that have not received a chunk within the TTL, so their
+     * parts do not linger in the bucket.
+     */
+    @Scheduled(fixedDelayString = "${media.upload.cleanup-interval-ms:3600000}")
+    public void expireStaleSessions() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(sessionTtlHours));
+        for (UploadSession session : repository.findByStatusAndUpdatedAtBefore(ACTIVE, cutoff)) {
+            try {
+                abortInStorage(session);
+                session.setStatus(ABORTED);
+                session.setUpdatedAt(Instant.now());
+                repository.save(session);
+                System.out.println("Expired upload session " + session.getId());
+            } catch (Exception e) {
+                System.err.println("Failed to expire upload session " + session.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Take over finalizations whose node stopped saving them within the lease
+     * (a crash, a restart or a storage error), resuming at their last step.
+     */
+    @Scheduled(fixedDelayString = "${media.upload.finalize-resume-interval-ms:60000}")
+    public void resumeStaleFinalizations() {
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(Duration.ofMinutes(finalizeLeaseMinutes));
+        for (UploadSession session : repository.findByStatusAndUpdatedAtBefore(FINALIZING, cutoff)) {
+            if (repository.resumeFinalizing(session.getId(), cutoff, now) == 1) {
+                System.out.println("Resuming finalization of upload session " + session.getId());
+                submit(session.getId());
+            }
+        }
+    }
+
+    private void abortInStorage(UploadSession session) throws Exception {
+        client.abortUpload(bucketName, session.getObjectKey(), session.getMultipartUploadId()).get();
+    }
+}
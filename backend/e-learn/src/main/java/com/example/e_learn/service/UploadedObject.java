@@ -0,0 +1,17 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.MediaObject;
+
+/**
+ * Result of storing a file: the URL handed to clients, the object's metadata
+ * and the bucket holding it.
+ */
+public record UploadedObject(String url, ObjectMetadata metadata, String bucket) {
+
+    public MediaObject toMediaObject() {
+        MediaObject media = new MediaObject(metadata.objectName(), metadata.size(), metadata.etag(),
+            metadata.contentType(), metadata.lastModified());
+        media.setBucket(bucket);
+        return media;
+    }
+}
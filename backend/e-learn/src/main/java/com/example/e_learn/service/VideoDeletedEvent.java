@@ -0,0 +1,8 @@
+package com.example.e_learn.service;
+
+/**
+ * Published when a video row is deleted, so the assets generated for it are
+ * removed once the deletion commits.
+ */
+public record VideoDeletedEvent(Long videoId) {
+}
@@ -1,9 +1,12 @@
 package com.example.e_learn.service;
 
 import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
 import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.LessonRepository;
 import com.example.e_learn.repository.VideoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +21,15 @@ public class VideoService {
     @Autowired
     private LessonService lessonService;
 
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private TranscriptStore transcriptStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Video> getVideosByLessonId(Long lessonId) {
         return videoRepository.findByLessonIdOrderByOrderIndexAsc(lessonId);
     }
@@ -31,18 +43,71 @@ public class VideoService {
         return videoRepository.save(video);
     }
 
+    @Transactional
+    public void updateHls(Long id, String status, String path) {
+        videoRepository.updateHls(id, status, path);
+    }
+
+    @Transactional
+    public void updateThumbnails(Long id, String status, String path) {
+        videoRepository.updateThumbnails(id, status, path);
+    }
+
+    /**
+     * Record probed container metadata and roll the lesson's total duration up.
+     */
+    @Transactional
+    public void applyProbe(Long id, MediaProbe.MediaInfo info) {
+        videoRepository.findById(id).ifPresent(video -> {
+            setProbed(video, info);
+            videoRepository.save(video);
+            lessonRepository.rollUpDuration(video.getLesson().getId());
+        });
+    }
+
+    private static void setProbed(Video video, MediaProbe.MediaInfo info) {
+        if (info == null) {
+            return;
+        }
+        video.setDurationSec(info.durationSec());
+        video.setWidth(info.width());
+        video.setHeight(info.height());
+        video.setVideoCodec(info.videoCodec());
+        video.setAudioCodec(info.audioCodec());
+        video.setBitrate(info.bitrate());
+    }
+
     @Transactional
     public void deleteVideo(Long id) {
-        videoRepository.deleteById(id);
+        videoRepository.findById(id).ifPresent(video -> {
+            releaseMedia(video);
+            eventPublisher.publishEvent(new VideoDeletedEvent(id));
+            transcriptStore.delete(TranscriptionJobService.VIDEO, id);
+            videoRepository.delete(video);
+            videoRepository.flush();
+            lessonRepository.rollUpDuration(video.getLesson().getId());
+        });
     }
 
     @Transactional
     public void deleteVideosByLessonId(Long lessonId) {
+        videoRepository.findByLessonIdOrderByOrderIndexAsc(lessonId).forEach(video -> {
+            releaseMedia(video);
+            eventPublisher.publishEvent(new VideoDeletedEvent(video.getId()));
+            transcriptStore.delete(TranscriptionJobService.VIDEO, video.getId());
+        });
         videoRepository.deleteByLessonId(lessonId);
     }
 
+    // The stored object is released once the deletion commits
+    private void releaseMedia(Video video) {
+        if (video.getMedia() != null && video.getMedia().getObjectKey() != null) {
+            eventPublisher.publishEvent(new MediaReleasedEvent(video.getMedia().getObjectKey()));
+        }
+    }
+
     @Transactional
-    public Video createVideoForLesson(Long lessonId, String title, String videoUrl, int durationSec, int orderIndex) {
+    public Video createVideoForLesson(Long lessonId, String title, String videoUrl, MediaObject media, MediaProbe.MediaInfo probed, int orderIndex) {
         Optional<Lesson> lessonOpt = lessonService.getLesson(lessonId);
         if (lessonOpt.isEmpty()) {
             throw new IllegalArgumentException("Lesson not found: " + lessonId);
@@ -50,12 +115,18 @@ public class VideoService {
         
         Video video = new Video();
         video.setTitle(title);
-        video.setVideoUrl(videoUrl);
-        video.setDurationSec(durationSec);
+        // Stored media is addressed by key; the URL is only kept for external links
+        video.setVideoUrl(media != null && media.getObjectKey() != null ? null : videoUrl);
+        video.setMedia(media);
+        setProbed(video, probed);
         video.setOrderIndex(orderIndex);
         video.setLesson(lessonOpt.get());
         
-        return videoRepository.save(video);
+        Video saved = videoRepository.saveAndFlush(video);
+        lessonRepository.rollUpDuration(lessonId);
+        // Background processing starts once the row is committed
+        eventPublisher.publishEvent(new VideoUploadedEvent(saved.getId()));
+        return saved;
     }
 }
 
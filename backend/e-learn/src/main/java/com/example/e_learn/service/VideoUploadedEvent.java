@@ -0,0 +1,7 @@
+package com.example.e_learn.service;
+
+/**
+ * Published once a new video row is committed, to start background processing.
+ */
+public record VideoUploadedEvent(Long videoId) {
+}
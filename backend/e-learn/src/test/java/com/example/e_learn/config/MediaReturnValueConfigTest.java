@@ -0,0 +1,152 @@
+package com.example.e_learn.config;
+
+import com.example.e_learn.service.MediaBody;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"media.stream.write-idle-timeout-ms=500"
+})
+@Import(MediaReturnValueConfigTest.MediaLikeController.class)
+class MediaReturnValueConfigTest {
+
+	private static final long STALLED_LENGTH = 256L * 1024 * 1024;
+	private static final CountDownLatch stalledReleased = new CountDownLatch(1);
+
+	private static final byte[] LARGE = new byte[8 * 1024 * 1024 + 123];
+
+	static {
+		for (int i = 0; i < LARGE.length; i++) {
+			LARGE[i] = (byte) (i * 7 + i / 4096);
+		}
+	}
+
+	@RestController
+	static class MediaLikeController {
+		// Declared like the media endpoints: the body type is only known at runtime
+		@GetMapping("/api/auth/test-media/{kind}")
+		public ResponseEntity<?> media(@PathVariable String kind) {
+			switch (kind) {
+				case "stream": {
+					StreamingResponseBody body = out -> out.write("bytes".getBytes(StandardCharsets.US_ASCII));
+					return ResponseEntity.ok().header("Content-Type", "video/mp4").body(body);
+				}
+				case "in-memory":
+					return media(new ByteArrayInputStream(LARGE));
+				case "blocking": {
+					// Reports nothing available, so every read goes through the read executor
+					InputStream in = new ByteArrayInputStream(LARGE) {
+						@Override
+						public synchronized int available() {
+							return 0;
+						}
+					};
+					return media(in);
+				}
+				case "stalled": {
+					// Far more than the socket buffers hold, so the write stalls on a client that stops reading
+					InputStream in = new InputStream() {
+						@Override
+						public int read() {
+							return 0;
+						}
+
+						@Override
+						public int read(byte[] b, int off, int len) {
+							return len;
+						}
+					};
+					MediaBody body = new MediaBody(in, STALLED_LENGTH, () -> new byte[65536], buffer -> stalledReleased.countDown());
+					return ResponseEntity.ok().header("Content-Type", "video/mp4").contentLength(STALLED_LENGTH).body(body);
+				}
+				default:
+					return ResponseEntity.ok(Map.of("kind", kind));
+			}
+		}
+
+		private ResponseEntity<?> media(InputStream in) {
+			MediaBody body = new MediaBody(in, LARGE.length, () -> new byte[65536], buffer -> { });
+			return ResponseEntity.ok()
+				.header("Content-Type", "video/mp4")
+				.contentLength(LARGE.length)
+				.body(body);
+		}
+	}
+
+	@LocalServerPort
+	private int port;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private HttpResponse<byte[]> get(String kind) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/test-media/" + kind)).build();
+		return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	@Test
+	void streamsStreamingBodiesOfWildcardResponseEntities() throws Exception {
+		HttpResponse<byte[]> response = get("stream");
+		assertEquals(200, response.statusCode());
+		assertEquals("video/mp4", response.headers().firstValue("Content-Type").orElse(null));
+		assertEquals("bytes", new String(response.body(), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void writesMediaBodiesWithNonBlockingIo() throws Exception {
+		for (String kind : new String[] {"in-memory", "blocking"}) {
+			HttpResponse<byte[]> response = get(kind);
+			assertEquals(200, response.statusCode());
+			assertEquals(String.valueOf(LARGE.length), response.headers().firstValue("Content-Length").orElse(null));
+			assertArrayEquals(LARGE, response.body(), kind);
+		}
+	}
+
+	@Test
+	void releasesTheBufferOfAClientThatStopsReading() throws Exception {
+		try (Socket socket = new Socket()) {
+			socket.setReceiveBufferSize(4096);
+			socket.connect(new InetSocketAddress("localhost", port));
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /api/auth/test-media/stalled HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			// Never read the response: the idle timeout must end the write
+			assertTrue(stalledReleased.await(20, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void otherBodiesStillGoThroughMessageConverters() throws Exception {
+		HttpResponse<byte[]> response = get("json");
+		assertEquals(200, response.statusCode());
+		assertEquals("{\"kind\":\"json\"}", new String(response.body(), StandardCharsets.UTF_8));
+	}
+}
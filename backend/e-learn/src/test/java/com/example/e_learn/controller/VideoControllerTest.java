@@ -0,0 +1,62 @@
+package com.example.e_learn.controller;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.service.LessonService;
+import com.example.e_learn.service.MediaProbeService;
+import com.example.e_learn.service.MinioService;
+import com.example.e_learn.service.ObjectMetadata;
+import com.example.e_learn.service.UploadedObject;
+import com.example.e_learn.service.VideoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class VideoControllerTest {
+
+	private final VideoService videoService = mock(VideoService.class);
+	private final LessonService lessonService = mock(LessonService.class);
+	private final MinioService minioService = mock(MinioService.class);
+	private final MockMultipartFile file = new MockMultipartFile("file", "clip.mp4", "video/mp4", new byte[] {1, 2, 3});
+
+	private VideoController controller() {
+		VideoController controller = new VideoController();
+		ReflectionTestUtils.setField(controller, "videoService", videoService);
+		ReflectionTestUtils.setField(controller, "lessonService", lessonService);
+		ReflectionTestUtils.setField(controller, "minioService", minioService);
+		ReflectionTestUtils.setField(controller, "mediaProbeService", mock(MediaProbeService.class));
+		return controller;
+	}
+
+	@Test
+	void checksTheLessonBeforeUploading() throws Exception {
+		when(lessonService.getLesson(7L)).thenReturn(Optional.empty());
+
+		ResponseEntity<?> response = controller().uploadVideo(7L, file, "");
+
+		assertEquals(404, response.getStatusCode().value());
+		verify(minioService, never()).uploadVideo(any());
+	}
+
+	@Test
+	void releasesTheUploadWhenTheVideoCannotBeSaved() throws Exception {
+		when(lessonService.getLesson(7L)).thenReturn(Optional.of(new Lesson()));
+		UploadedObject uploaded = new UploadedObject(null,
+			new ObjectMetadata("sha256/abc", 3, "etag", "video/mp4", Instant.EPOCH), "lesson-videos");
+		when(minioService.uploadVideo(file)).thenReturn(uploaded);
+		when(videoService.createVideoForLesson(eq(7L), any(), any(), any(), any(), anyInt()))
+			.thenThrow(new IllegalArgumentException("Lesson not found: 7"));
+
+		ResponseEntity<?> response = controller().uploadVideo(7L, file, "");
+
+		assertEquals(500, response.getStatusCode().value());
+		verify(minioService).discard(uploaded);
+	}
+}
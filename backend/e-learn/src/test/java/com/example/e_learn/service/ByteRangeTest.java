@@ -0,0 +1,36 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+	@Test
+	void parsesClosedOpenAndSuffixRanges() {
+		assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=0-99", 1000));
+		assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+		assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+		assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000));
+		assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("bytes=990-5000", 1000));
+	}
+
+	@Test
+	void unsatisfiableRangesYieldEmptyList() {
+		assertEquals(List.of(), ByteRange.parse("bytes=1000-", 1000));
+		assertEquals(List.of(), ByteRange.parse("bytes=-0", 1000));
+		assertEquals(List.of(new ByteRange(0, 0)), ByteRange.parse("bytes=2000-3000, 0-0", 1000));
+	}
+
+	@Test
+	void malformedHeadersAreIgnored() {
+		assertNull(ByteRange.parse(null, 1000));
+		assertNull(ByteRange.parse("items=0-1", 1000));
+		assertNull(ByteRange.parse("bytes=abc", 1000));
+		assertNull(ByteRange.parse("bytes=5-1", 1000));
+		assertNull(ByteRange.parse("bytes=-", 1000));
+		assertNull(ByteRange.parse("bytes=0-1", -1));
+	}
+}
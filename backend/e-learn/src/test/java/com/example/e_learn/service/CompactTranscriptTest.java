@@ -0,0 +1,50 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.service.TranscriptService.Word;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTranscriptTest {
+
+	@Test
+	void roundTripsAFewBytesPerWord() throws IOException {
+		List<Word> words = new ArrayList<>();
+		String[] text = "le cours de ce jour porte sur le calcul de la dérivée".split(" ");
+		for (int i = 0; i < 3000; i++) {
+			double start = i * 0.4;
+			words.add(new Word(text[i % text.length], start, start + 0.3));
+		}
+
+		CompactTranscript transcript = CompactTranscript.of(words);
+		byte[] encoded = transcript.encode();
+		CompactTranscript decoded = CompactTranscript.decode(encoded);
+
+		// One byte of word id plus two for each time, against ~40 bytes per word as JSON
+		assertTrue(encoded.length < words.size() * 6, "encoded in " + encoded.length + " bytes");
+		assertEquals(3000, decoded.size());
+		assertEquals("dérivée", decoded.word(11));
+		assertEquals(4400, decoded.startMs(11));
+		assertEquals(4700, decoded.endMs(11));
+		assertEquals(transcript.text(), decoded.text());
+		assertThrows(IOException.class, () -> CompactTranscript.decode(java.util.Arrays.copyOf(encoded, encoded.length / 2)));
+	}
+
+	@Test
+	void windowsIncludeTheWordBeingSpokenAtTheStart() {
+		CompactTranscript transcript = CompactTranscript.of(List.of(
+				new Word("bonjour", 1.0, 1.5),
+				new Word("à", 1.6, 1.7),
+				new Word("tous", 1.8, 2.4),
+				new Word("aujourd'hui", 3.0, 3.6)));
+
+		assertEquals(List.of("à", "tous"), transcript.window(1600, 3000).stream().map(Word::word).toList());
+		assertEquals(List.of("tous", "aujourd'hui"), transcript.window(2000, 10_000).stream().map(Word::word).toList());
+		assertTrue(transcript.window(5000, 6000).isEmpty());
+		assertEquals(3600, transcript.durationMs());
+	}
+}
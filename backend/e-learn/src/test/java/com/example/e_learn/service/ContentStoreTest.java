@@ -0,0 +1,66 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.StoredObject;
+import com.example.e_learn.repository.StoredObjectRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ContentStoreTest {
+
+	private final StoredObjectRepository repository = mock(StoredObjectRepository.class);
+	private final MediaStorage storage = mock(MediaStorage.class);
+
+	private ContentStore store() {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		ContentStore store = new ContentStore(transactionManager);
+		ReflectionTestUtils.setField(store, "repository", repository);
+		ReflectionTestUtils.setField(store, "storage", storage);
+		return store;
+	}
+
+	private StoredObject stored(long refCount) {
+		StoredObject stored = new StoredObject();
+		stored.setObjectKey("sha256/abc");
+		stored.setRefCount(refCount);
+		when(repository.lockByKey("sha256/abc")).thenReturn(Optional.of(stored));
+		return stored;
+	}
+
+	@Test
+	void keysObjectsByTheirSha256() throws Exception {
+		String sha = ContentStore.sha256(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", sha);
+		assertEquals("sha256/" + sha, ContentStore.keyFor(sha));
+		assertTrue(ContentStore.isContentAddressed(ContentStore.keyFor(sha)));
+		assertFalse(ContentStore.isContentAddressed("0b6f_intro.mp4"));
+	}
+
+	@Test
+	void removesTheObjectWithTheLastReference() throws Exception {
+		ContentStore store = store();
+		StoredObject stored = stored(2);
+
+		store.release("sha256/abc");
+		assertEquals(1, stored.getRefCount());
+		verify(storage, never()).delete(any());
+
+		store.release("sha256/abc");
+		verify(storage).delete("sha256/abc");
+		verify(repository).delete(stored);
+
+		// Legacy keys are not reference counted
+		store.release("0b6f_intro.mp4");
+		verify(repository, never()).lockByKey("0b6f_intro.mp4");
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemMediaStorageTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void storesReadsRangesAndMovesObjects() throws Exception {
+		FileSystemMediaStorage storage = new FileSystemMediaStorage(root.toString());
+		byte[] data = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+		String etag = storage.put("incoming/a.mp4", new ByteArrayInputStream(data), -1, "video/mp4", Map.of());
+		assertEquals("4032af8d61035123906e58e067140cc5", etag); // MD5, as S3 reports it
+
+		try (InputStream in = storage.get("incoming/a.mp4", 4, 6)) {
+			assertEquals("456789", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+		}
+
+		assertEquals(etag, storage.move("incoming/a.mp4", "sha256/abc", "video/webm", Map.of()));
+		ObjectMetadata meta = storage.stat("sha256/abc");
+		assertEquals(16, meta.size());
+		assertEquals(etag, meta.etag());
+		assertEquals("video/webm", meta.contentType());
+		assertTrue(Files.isRegularFile(storage.localFile("sha256/abc")));
+		assertThrows(NoSuchFileException.class, () -> storage.stat("incoming/a.mp4"));
+
+		storage.delete("sha256/abc");
+		assertNull(storage.localFile("sha256/abc"));
+	}
+
+	@Test
+	void deletesEverythingUnderAPrefixOnly() throws Exception {
+		FileSystemMediaStorage storage = new FileSystemMediaStorage(root.toString());
+		for (String key : new String[] {"hls/4/r1/master.m3u8", "hls/4/r1/720p/seg_00000.ts", "hls/4/r2/master.m3u8", "hls/42/r1/master.m3u8"}) {
+			storage.put(key, new ByteArrayInputStream(new byte[] {1}), 1, "video/mp2t", Map.of());
+		}
+		storage.deletePrefix("hls/4/r1/");
+		assertNull(storage.localFile("hls/4/r1/master.m3u8"));
+		assertNull(storage.localFile("hls/4/r1/720p/seg_00000.ts"));
+		assertNotNull(storage.localFile("hls/4/r2/master.m3u8"));
+
+		storage.deletePrefix("hls/4/");
+		assertNull(storage.localFile("hls/4/r2/master.m3u8"));
+		assertNotNull(storage.localFile("hls/42/r1/master.m3u8"), "a longer id with the same digits is kept");
+		storage.deletePrefix("hls/7/"); // nothing stored: no error
+	}
+
+	@Test
+	void rejectsKeysOutsideTheStore() {
+		FileSystemMediaStorage storage = new FileSystemMediaStorage(root.toString());
+		assertThrows(IllegalArgumentException.class, () -> storage.stat("../../etc/passwd"));
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.e_learn.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"media.storage.backend=filesystem",
+	"media.storage.fs.root=${java.io.tmpdir}/elearn-fs-streaming-test"
+})
+@Import(FileSystemStreamingTest.StoredMediaController.class)
+class FileSystemStreamingTest {
+
+	private static final byte[] DATA = new byte[3 * 1024 * 1024 + 17];
+
+	static {
+		for (int i = 0; i < DATA.length; i++) {
+			DATA[i] = (byte) (i * 31 + i / 1000);
+		}
+	}
+
+	@RestController
+	static class StoredMediaController {
+		@Autowired
+		private MinioService minioService;
+
+		@Autowired
+		private MediaStreamService mediaStreamService;
+
+		@GetMapping("/api/auth/test-stored/{name}")
+		public ResponseEntity<?> media(@PathVariable String name, HttpServletRequest request) throws Exception {
+			ObjectMetadata meta = minioService.metadataForKey("test/" + name);
+			ResponseEntity<?> response = mediaStreamService.stream(meta,
+				mediaStreamService.mediaHeaders(MediaType.parseMediaType("video/mp4")), request);
+			boolean sendfile = request.getAttribute(MediaStreamService.SENDFILE_FILENAME) != null;
+			return ResponseEntity.status(response.getStatusCode())
+				.headers(response.getHeaders())
+				.header("X-Test-Sendfile", String.valueOf(sendfile))
+				.body(response.getBody());
+		}
+	}
+
+	@Autowired
+	private MediaStorage storage;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void servesLocalObjectsWithSendfile() throws Exception {
+		assertInstanceOf(FileSystemMediaStorage.class, storage);
+		storage.put("test/clip.mp4", new ByteArrayInputStream(DATA), DATA.length, "video/mp4", Map.of());
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create("http://localhost:" + port + "/api/auth/test-stored/clip.mp4");
+
+		HttpResponse<byte[]> full = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+		assertEquals(200, full.statusCode());
+		assertEquals("true", full.headers().firstValue("X-Test-Sendfile").orElse(null));
+		assertArrayEquals(DATA, full.body());
+
+		HttpResponse<byte[]> range = client.send(HttpRequest.newBuilder(uri).header(HttpHeaders.RANGE, "bytes=1000000-1999999").build(),
+			HttpResponse.BodyHandlers.ofByteArray());
+		assertEquals(206, range.statusCode());
+		assertEquals("bytes 1000000-1999999/" + DATA.length, range.headers().firstValue(HttpHeaders.CONTENT_RANGE).orElse(null));
+		assertArrayEquals(Arrays.copyOfRange(DATA, 1000000, 2000000), range.body());
+	}
+}
@@ -0,0 +1,131 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyframeIndexTest {
+
+	private static byte[] box(String type, byte[]... children) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int size = 8;
+		for (byte[] child : children) {
+			size += child.length;
+		}
+		out.writeBytes(ByteBuffer.allocate(4).putInt(size).array());
+		out.writeBytes(type.getBytes(StandardCharsets.ISO_8859_1));
+		for (byte[] child : children) {
+			out.writeBytes(child);
+		}
+		return out.toByteArray();
+	}
+
+	// Full box body: version/flags followed by 32-bit fields
+	private static byte[] fields(int... values) {
+		ByteBuffer body = ByteBuffer.allocate(4 + values.length * 4).putInt(0);
+		for (int value : values) {
+			body.putInt(value);
+		}
+		return body.array();
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] hdlr(String handler) {
+		ByteBuffer body = ByteBuffer.allocate(24);
+		body.position(8);
+		body.put(handler.getBytes(StandardCharsets.ISO_8859_1));
+		return box("hdlr", body.array());
+	}
+
+	/**
+	 * Ten 1 s samples of 100 + i bytes, two per chunk, keyframes at samples 1, 5 and 8;
+	 * the media data starts at {@code mdatOffset}. An audio track comes first.
+	 */
+	private static byte[] file() {
+		byte[] audio = box("trak", box("mdia", box("mdhd", fields(0, 0, 48000, 0)), hdlr("soun"),
+			box("minf", box("stbl", box("stts", fields(1, 1, 1024))))));
+		int mdatOffset = 4096;
+		int[] chunks = new int[5];
+		int offset = mdatOffset;
+		for (int c = 0; c < 5; c++) {
+			chunks[c] = offset;
+			offset += (100 + 2 * c) + (100 + 2 * c + 1);
+		}
+		int[] sizes = new int[12];
+		sizes[0] = 0; // variable sizes
+		sizes[1] = 10;
+		for (int i = 0; i < 10; i++) {
+			sizes[2 + i] = 100 + i;
+		}
+		byte[] stbl = box("stbl",
+			box("stts", fields(1, 10, 1000)),
+			box("stss", fields(3, 1, 5, 8)),
+			box("stsc", fields(1, 1, 2, 1)),
+			box("stsz", fields(sizes)),
+			box("stco", fields(5, chunks[0], chunks[1], chunks[2], chunks[3], chunks[4])));
+		byte[] video = box("trak", box("tkhd", new byte[84]), box("mdia", box("mdhd", fields(0, 0, 1000, 10000)),
+			hdlr("vide"), box("minf", stbl)));
+		byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+		byte[] free = box("free", new byte[mdatOffset - 8 - ftyp.length - 8]);
+		byte[] mdat = box("mdat", new byte[offset - mdatOffset]);
+		// moov at the end, as written by most encoders
+		return concat(ftyp, free, mdat, box("moov", box("mvhd", new byte[100]), audio, video));
+	}
+
+	private static long expectedOffset(int sample) {
+		long offset = 4096;
+		for (int s = 1; s < sample; s++) {
+			offset += 100 + s - 1;
+		}
+		return offset;
+	}
+
+	@Test
+	void mapsKeyframeTimesToSampleOffsets() throws Exception {
+		byte[] file = file();
+		KeyframeIndex index = KeyframeIndex.build((offset, length) ->
+			Arrays.copyOfRange(file, (int) offset, (int) Math.min(file.length, offset + length)), file.length);
+
+		assertEquals(3, index.size());
+		assertEquals(0, index.timeMs(0));
+		assertEquals(4000, index.timeMs(1));
+		assertEquals(7000, index.timeMs(2));
+		assertEquals(expectedOffset(1), index.offset(0));
+		assertEquals(expectedOffset(5), index.offset(1));
+		assertEquals(expectedOffset(8), index.offset(2));
+
+		assertEquals(0, index.floor(3999));
+		assertEquals(1, index.floor(4000));
+		assertEquals(1, index.floor(6500));
+		assertEquals(2, index.floor(60_000));
+		assertEquals(0, index.floor(-5));
+	}
+
+	@Test
+	void survivesEncoding() throws Exception {
+		byte[] file = file();
+		KeyframeIndex index = KeyframeIndex.build((offset, length) ->
+			Arrays.copyOfRange(file, (int) offset, (int) Math.min(file.length, offset + length)), file.length);
+
+		KeyframeIndex decoded = KeyframeIndex.decode(index.encode());
+
+		assertEquals(index.size(), decoded.size());
+		for (int i = 0; i < index.size(); i++) {
+			assertEquals(index.timeMs(i), decoded.timeMs(i));
+			assertEquals(index.offset(i), decoded.offset(i));
+		}
+		assertTrue(KeyframeIndex.decode(KeyframeIndex.EMPTY.encode()).isEmpty());
+	}
+}
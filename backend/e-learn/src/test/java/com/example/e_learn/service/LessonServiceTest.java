@@ -0,0 +1,77 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.VideoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:lessons;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"transcription.worker.enabled=false"
+})
+class LessonServiceTest {
+
+	@Autowired
+	private LessonService lessonService;
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private VideoRepository videoRepository;
+
+	@MockitoBean
+	private MediaStorage storage;
+
+	@Test
+	void deletingALessonRemovesTheDerivedObjectsOfItsVideos() throws Exception {
+		Lesson lesson = new Lesson();
+		lesson.setTitle("lesson");
+		lesson = lessonRepository.save(lesson);
+		Video video = new Video();
+		video.setTitle("video");
+		video.setLesson(lesson);
+		Long videoId = videoRepository.save(video).getId();
+
+		lessonService.deleteLesson(lesson.getId());
+
+		assertFalse(videoRepository.existsById(videoId));
+		verify(storage).deletePrefix("hls/" + videoId + "/");
+		verify(storage).deletePrefix("thumbs/" + videoId + "/");
+	}
+
+	@Test
+	void anEditedDurationDoesNotOverrideTheVideos() {
+		Lesson lesson = new Lesson();
+		lesson.setTitle("timed");
+		lesson = lessonRepository.save(lesson);
+		Video video = new Video();
+		video.setTitle("video");
+		video.setDurationSec(90);
+		video.setLesson(lesson);
+		videoRepository.save(video);
+
+		lesson.setDurationSec(5);
+		assertEquals(90, lessonService.updateLesson(lesson).getDurationSec());
+		assertEquals(90, lessonRepository.findById(lesson.getId()).orElseThrow().getDurationSec());
+
+		// Without videos the edited value is kept
+		Lesson empty = new Lesson();
+		empty.setTitle("empty");
+		empty = lessonRepository.save(empty);
+		empty.setDurationSec(300);
+		assertEquals(300, lessonService.updateLesson(empty).getDurationSec());
+	}
+}
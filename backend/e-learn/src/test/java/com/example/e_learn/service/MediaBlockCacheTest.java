@@ -0,0 +1,171 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaBlockCacheTest {
+
+	@TempDir
+	Path dir;
+
+	private MediaBlockCache cache;
+
+	// Offsets requested from the origin
+	private final List<Long> fetched = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		cache = new MediaBlockCache();
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "cacheDir", dir.toString());
+		ReflectionTestUtils.setField(cache, "blockSize", 4);
+		ReflectionTestUtils.setField(cache, "maxBytes", 12L);
+		ReflectionTestUtils.setField(cache, "prefetchExecutor", new SyncTaskExecutor());
+		cache.init();
+	}
+
+	private static ObjectMetadata meta(String etag, int size) {
+		return new ObjectMetadata("video.mp4", size, etag, "video/mp4", Instant.EPOCH);
+	}
+
+	private MediaBlockCache.RangeLoader origin(byte[] content) {
+		return (name, offset, length) -> {
+			synchronized (fetched) {
+				fetched.add(offset);
+			}
+			return new ByteArrayInputStream(Arrays.copyOfRange(content, (int) offset, (int) (offset + length)));
+		};
+	}
+
+	private String read(ObjectMetadata meta, long offset, long length, MediaBlockCache.RangeLoader loader) throws Exception {
+		try (InputStream in = cache.open(meta, offset, length, loader)) {
+			return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+		}
+	}
+
+	private long stat(String name) {
+		return ((Number) cache.stats().get(name)).longValue();
+	}
+
+	@Test
+	void countsHitsAndMissesPerBlock() throws Exception {
+		byte[] content = "abcdefghij".getBytes(StandardCharsets.US_ASCII);
+		ObjectMetadata meta = meta("v1", content.length);
+		assertEquals("cdefg", read(meta, 2, 5, origin(content)));
+		assertEquals(2, stat("misses"));
+		assertEquals(0, stat("hits"));
+		assertEquals(8, stat("originBytes"));
+
+		assertEquals("bcdef", read(meta, 1, 5, origin(content)));
+		assertEquals(2, stat("hits"));
+		assertEquals(List.of(0L, 4L), fetched);
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedBlock() throws Exception {
+		byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+		ObjectMetadata meta = meta("v1", content.length);
+		MediaBlockCache.RangeLoader loader = origin(content);
+		read(meta, 0, 12, loader); // blocks 0, 1 and 2 fill the cache
+		read(meta, 0, 4, loader); // block 0 is now the most recently used
+		assertEquals("cdef", read(meta, 12, 4, loader)); // block 3 evicts block 1
+		assertEquals(1, stat("evictions"));
+		assertEquals(12, stat("cachedBytes"));
+
+		fetched.clear();
+		assertEquals("0123", read(meta, 0, 4, loader));
+		assertEquals("4567", read(meta, 4, 4, loader));
+		assertEquals(List.of(4L), fetched, "only the evicted block is fetched again");
+		assertEquals(3, dir.resolve("blocks").toFile().list().length, "evicted block files are deleted");
+	}
+
+	@Test
+	void startupOnlyClearsTheBlockDirectory() throws Exception {
+		Path other = Files.writeString(dir.resolve("keep.txt"), "not a block");
+		Path stale = Files.writeString(dir.resolve("blocks").resolve("stale.blk"), "old");
+		cache.init();
+		assertTrue(Files.exists(other));
+		assertFalse(Files.exists(stale));
+	}
+
+	@Test
+	void aReplacedObjectIsNotServedFromItsOldBlocks() throws Exception {
+		assertEquals("abcd", read(meta("v1", 8), 0, 4, origin("abcdefgh".getBytes(StandardCharsets.US_ASCII))));
+		assertEquals("ABCD", read(meta("v2", 8), 0, 4, origin("ABCDEFGH".getBytes(StandardCharsets.US_ASCII))));
+		assertEquals(2, stat("misses"));
+		assertEquals(0, stat("hits"));
+	}
+
+	@Test
+	void readersOfABlockBeingFetchedJoinTheFetch() throws Exception {
+		byte[] content = "abcdefgh".getBytes(StandardCharsets.US_ASCII);
+		ObjectMetadata meta = meta("v1", content.length);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MediaBlockCache.RangeLoader slow = (name, offset, length) -> {
+			started.countDown();
+			assertTrue(release.await(5, TimeUnit.SECONDS));
+			return origin(content).load(name, offset, length);
+		};
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+			try {
+				return read(meta, 0, 4, slow);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> {
+			try {
+				return read(meta, 0, 4, slow);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (stat("joined") == 0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+		assertEquals("abcd", first.get(5, TimeUnit.SECONDS));
+		assertEquals("abcd", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, stat("misses"));
+		assertEquals(1, stat("joined"));
+		assertEquals(0, stat("hits"));
+		assertEquals(List.of(0L), fetched);
+	}
+
+	@Test
+	void theStreamDrivesItsReadAhead() throws Exception {
+		byte[] content = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+		ObjectMetadata meta = meta("v1", content.length);
+		List<Long> reached = new ArrayList<>();
+		MediaBlockCache.ReadAhead readAhead = position -> {
+			reached.add(position);
+			return position >= 4 ? 1 : 0;
+		};
+		try (InputStream in = cache.open(meta, 0, 8, readAhead, origin(content))) {
+			assertEquals("01234567", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+		}
+		assertEquals(List.of(0L, 4L, 8L), reached);
+		assertEquals(List.of(0L, 4L, 8L), fetched, "the block after the second is prefetched");
+		assertEquals(1, stat("prefetched"));
+	}
+}
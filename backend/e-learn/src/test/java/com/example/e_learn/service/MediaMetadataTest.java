@@ -0,0 +1,72 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.repository.LessonRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:mediametadata;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"transcription.worker.enabled=false"
+})
+class MediaMetadataTest {
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private MinioService minioService;
+
+	@MockitoBean
+	private MediaStorage storage;
+
+	private MediaObject stored(String key, MediaObject media) {
+		Lesson lesson = new Lesson();
+		lesson.setTitle(key);
+		lesson.setVideoMedia(media);
+		Long id = lessonRepository.save(lesson).getId();
+		return lessonRepository.findById(id).orElseThrow().getVideoMedia();
+	}
+
+	@Test
+	void metadataCapturedAtUploadIsReadFromTheRow() throws Exception {
+		Instant modified = Instant.parse("2026-01-02T03:04:05Z");
+		MediaObject media = stored("sha256/complete", new MediaObject("sha256/complete", 123456L, "etag-1", "video/mp4", modified));
+
+		ObjectMetadata meta = minioService.metadataFor(media, null);
+		assertEquals("sha256/complete", meta.objectName());
+		assertEquals(123456L, meta.size());
+		assertEquals("etag-1", meta.etag());
+		assertEquals("video/mp4", meta.contentType());
+		assertEquals(modified, meta.lastModified());
+		verify(storage, never()).stat(anyString());
+	}
+
+	@Test
+	void rowsWithoutMetadataAreStatedOnceThenCached() throws Exception {
+		MediaObject media = stored("sha256/partial", new MediaObject("sha256/partial", null, null, null, null));
+		when(storage.stat("sha256/partial")).thenReturn(
+			new ObjectMetadata("sha256/partial", 42L, "etag-2", "video/mp4", Instant.EPOCH));
+
+		assertEquals(42L, minioService.metadataFor(media, null).size());
+		assertEquals("etag-2", minioService.metadataFor(media, null).etag());
+		verify(storage, times(1)).stat("sha256/partial");
+	}
+}
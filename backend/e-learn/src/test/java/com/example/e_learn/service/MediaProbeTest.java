@@ -0,0 +1,129 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaProbeTest {
+
+	private static byte[] box(String type, byte[]... children) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int size = 8;
+		for (byte[] child : children) {
+			size += child.length;
+		}
+		out.writeBytes(ByteBuffer.allocate(4).putInt(size).array());
+		out.writeBytes(type.getBytes(StandardCharsets.ISO_8859_1));
+		for (byte[] child : children) {
+			out.writeBytes(child);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+
+	// Version 0 mvhd/mdhd body: version/flags, creation, modification, timescale, duration
+	private static byte[] header(String type, int timescale, int duration, int padding) {
+		return box(type, ByteBuffer.allocate(20 + padding).putInt(0).putInt(0).putInt(0).putInt(timescale).putInt(duration).array());
+	}
+
+	private static byte[] track(String handler, String format, int width, int height) {
+		ByteBuffer tkhd = ByteBuffer.allocate(84);
+		tkhd.putInt(76, width << 16).putInt(80, height << 16);
+		ByteBuffer hdlr = ByteBuffer.allocate(24);
+		hdlr.position(8);
+		hdlr.put(handler.getBytes(StandardCharsets.ISO_8859_1));
+		ByteBuffer stsd = ByteBuffer.allocate(16).putInt(0).putInt(1).putInt(16);
+		stsd.put(format.getBytes(StandardCharsets.ISO_8859_1));
+		return box("trak", box("tkhd", tkhd.array()), box("mdia",
+			header("mdhd", 48000, 48000 * 95, 4), box("hdlr", hdlr.array()),
+			box("minf", box("stbl", box("stsd", stsd.array()), box("stsz", new byte[20000])))));
+	}
+
+	private static MediaProbe.RangeReader reader(byte[] file, long[] fetched) {
+		return (offset, length) -> {
+			int from = (int) offset;
+			int to = (int) Math.min(file.length, offset + length);
+			fetched[0] += to - from;
+			return Arrays.copyOfRange(file, from, to);
+		};
+	}
+
+	@Test
+	void readsMp4HeadersWithMoovAtTheEndInAFewKilobytes() throws Exception {
+		byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+		byte[] mdat = box("mdat", new byte[2_000_000]);
+		byte[] moov = box("moov", header("mvhd", 1000, 95_500, 80),
+			track("vide", "avc1", 1280, 720), track("soun", "mp4a", 0, 0));
+		byte[] file = concat(ftyp, mdat, moov);
+		long[] fetched = new long[1];
+
+		MediaProbe.MediaInfo info = MediaProbe.probe(reader(file, fetched), file.length);
+
+		assertEquals(95_500, info.durationMs());
+		assertEquals(96, info.durationSec());
+		assertEquals(1280, info.width());
+		assertEquals(720, info.height());
+		assertEquals("avc1", info.videoCodec());
+		assertEquals("mp4a", info.audioCodec());
+		assertEquals(file.length * 8L * 1000 / 95_500, info.bitrate());
+		// Headers only: neither the media data nor the sample tables are fetched
+		assertTrue(fetched[0] < 8 * MediaProbe.WINDOW_BYTES, "read " + fetched[0] + " bytes");
+	}
+
+	private static byte[] ebml(int id, byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] idBytes = ByteBuffer.allocate(4).putInt(id).array();
+		int skip = 0;
+		while (idBytes[skip] == 0) {
+			skip++;
+		}
+		out.write(idBytes, skip, 4 - skip);
+		out.writeBytes(ByteBuffer.allocate(8).putLong(data.length | 0x0100000000000000L).array());
+		out.writeBytes(data);
+		return out.toByteArray();
+	}
+
+	private static byte[] uint(int id, int value) {
+		return ebml(id, ByteBuffer.allocate(4).putInt(value).array());
+	}
+
+	@Test
+	void readsWebmInfoAndTracks() throws Exception {
+		byte[] info = ebml(0x1549A966, concat(uint(0x2AD7B1, 1_000_000),
+			ebml(0x4489, ByteBuffer.allocate(8).putDouble(12_345.0).array())));
+		byte[] video = ebml(0xAE, concat(uint(0x83, 1), ebml(0x86, "V_VP9".getBytes(StandardCharsets.US_ASCII)),
+			ebml(0xE0, concat(uint(0xB0, 640), uint(0xBA, 360)))));
+		byte[] audio = ebml(0xAE, concat(uint(0x83, 2), ebml(0x86, "A_OPUS".getBytes(StandardCharsets.US_ASCII))));
+		byte[] cluster = ebml(0x1F43B675, new byte[100_000]);
+		byte[] segment = ebml(0x18538067, concat(info, ebml(0x1654AE6B, concat(video, audio)), cluster));
+		byte[] file = concat(ebml(0x1A45DFA3, ebml(0x4282, "webm".getBytes(StandardCharsets.US_ASCII))), segment);
+		long[] fetched = new long[1];
+
+		MediaProbe.MediaInfo probed = MediaProbe.probe(reader(file, fetched), file.length);
+
+		assertEquals(12_345, probed.durationMs());
+		assertEquals(640, probed.width());
+		assertEquals(360, probed.height());
+		assertEquals("vp9", probed.videoCodec());
+		assertEquals("opus", probed.audioCodec());
+		assertEquals(MediaProbe.WINDOW_BYTES, fetched[0]);
+	}
+
+	@Test
+	void rejectsUnknownContainers() throws Exception {
+		byte[] file = "not a video file at all".getBytes(StandardCharsets.US_ASCII);
+		assertNull(MediaProbe.probe(reader(file, new long[1]), file.length));
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MediaStreamServiceTest {
+
+	private static final byte[] DATA = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+	private static final ObjectMetadata META =
+		new ObjectMetadata("obj", DATA.length, "abc123", "video/mp4", Instant.parse("2024-01-01T10:00:00Z"));
+
+	private MinioService minioService;
+	private MediaStreamService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		minioService = mock(MinioService.class);
+		when(minioService.getObjectStream(any(), anyLong(), anyLong())).thenAnswer(inv ->
+			new ByteArrayInputStream(DATA, (int) (long) inv.getArgument(1), (int) (long) inv.getArgument(2)));
+		when(minioService.getObjectStream(any(), anyLong(), anyLong(), any())).thenAnswer(inv ->
+			new ByteArrayInputStream(DATA, (int) (long) inv.getArgument(1), (int) (long) inv.getArgument(2)));
+		service = new MediaStreamService();
+		ReflectionTestUtils.setField(service, "minioService", minioService);
+		ReflectionTestUtils.setField(service, "readAheadTracker", new ReadAheadTracker(4, 16, 100));
+		ReflectionTestUtils.setField(service, "bufferSize", 4);
+		ReflectionTestUtils.setField(service, "bufferPoolSize", 2);
+		service.initBufferPool();
+	}
+
+	private ResponseEntity<?> get(MockHttpServletRequest request) throws Exception {
+		return service.stream(META, service.mediaHeaders(MediaType.parseMediaType("video/mp4")), request);
+	}
+
+	private static String body(ResponseEntity<?> response) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		((StreamingResponseBody) response.getBody()).writeTo(out);
+		return out.toString(StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	void servesSuffixRangeWithValidators() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(HttpHeaders.RANGE, "bytes=-5");
+		ResponseEntity<?> response = get(request);
+		assertEquals(206, response.getStatusCode().value());
+		assertEquals("bytes 15-19/20", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+		assertEquals("\"abc123\"", response.getHeaders().getETag());
+		assertEquals("fghij", body(response));
+	}
+
+	@Test
+	void matchingIfNoneMatchAnswers304WithoutOpeningObject() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"abc123\"");
+		assertEquals(304, get(request).getStatusCode().value());
+
+		request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 01 Jan 2024 10:00:00 GMT");
+		assertEquals(304, get(request).getStatusCode().value());
+		verify(minioService, never()).getObjectStream(any(), anyLong(), anyLong());
+		verify(minioService, never()).getObjectStream(any(), anyLong(), anyLong(), any());
+	}
+
+	@Test
+	void staleIfRangeFallsBackToFullBody() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+		request.addHeader(HttpHeaders.IF_RANGE, "\"old-etag\"");
+		ResponseEntity<?> response = get(request);
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(new String(DATA, StandardCharsets.US_ASCII), body(response));
+	}
+
+	@Test
+	void unsatisfiableRangeAnswers416() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+		ResponseEntity<?> response = get(request);
+		assertEquals(416, response.getStatusCode().value());
+		assertEquals("bytes */20", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	void multipleRangesAreSentAsMultipartByteranges() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-1, 10-11, 1-2");
+		ResponseEntity<?> response = get(request);
+		assertEquals(206, response.getStatusCode().value());
+		MediaType type = response.getHeaders().getContentType();
+		assertEquals("multipart", type.getType());
+		String boundary = type.getParameter("boundary");
+		String body = body(response);
+		assertEquals(response.getHeaders().getContentLength(), body.length());
+		assertTrue(body.contains("Content-Range: bytes 0-2/20\r\n\r\n012\r\n--" + boundary));
+		assertTrue(body.contains("Content-Range: bytes 10-11/20\r\n\r\nab\r\n--" + boundary + "--\r\n"));
+	}
+
+	@Test
+	void redirectDeliveryAnswers302ToPresignedUrl() throws Exception {
+		when(minioService.deliveryUrl(eq("obj"), eq("video/mp4"), isNull())).thenReturn(
+			new PresignedUrlCache.PresignedUrl("http://minio.example/obj?sig", Instant.now().plusSeconds(900)));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.setParameter("delivery", "redirect");
+		ResponseEntity<?> response = get(request);
+		assertEquals(302, response.getStatusCode().value());
+		assertEquals("http://minio.example/obj?sig", response.getHeaders().getLocation().toString());
+	}
+}
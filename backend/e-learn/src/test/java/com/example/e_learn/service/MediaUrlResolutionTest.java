@@ -0,0 +1,51 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.repository.LessonRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false"
+})
+class MediaUrlResolutionTest {
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private MinioService minioService;
+
+	@Test
+	void signsUrlsFromTheObjectKeyWhenRead() {
+		Lesson lesson = new Lesson();
+		lesson.setTitle("Keyed");
+		lesson.setVideoMedia(new MediaObject("sha256/abc", 10L, "etag", "video/mp4", Instant.now()));
+		Long id = lessonRepository.save(lesson).getId();
+
+		String url = lessonRepository.findById(id).orElseThrow().getVideoUrl();
+		assertTrue(url.contains("/lesson-videos/sha256/abc?"), url);
+		assertTrue(url.contains("X-Amz-Signature="), url);
+		// Signed once per key, then reused
+		assertEquals(url, lessonRepository.findById(id).orElseThrow().getVideoUrl());
+		assertEquals("sha256/abc", minioService.objectKeyFor(url));
+
+		Lesson external = new Lesson();
+		external.setTitle("External");
+		external.setVideoUrl("https://videos.example.com/intro.mp4");
+		Long externalId = lessonRepository.save(external).getId();
+		assertEquals("https://videos.example.com/intro.mp4", lessonRepository.findById(externalId).orElseThrow().getVideoUrl());
+		assertNull(minioService.objectKeyFor("https://videos.example.com/intro.mp4"));
+	}
+}
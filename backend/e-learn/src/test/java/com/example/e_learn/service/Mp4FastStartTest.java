@@ -0,0 +1,155 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Mp4FastStartTest {
+
+	@TempDir
+	Path root;
+
+	private static byte[] box(String type, byte[]... children) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int size = 8;
+		for (byte[] child : children) {
+			size += child.length;
+		}
+		out.writeBytes(ByteBuffer.allocate(4).putInt(size).array());
+		out.writeBytes(type.getBytes(StandardCharsets.ISO_8859_1));
+		for (byte[] child : children) {
+			out.writeBytes(child);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] chunkOffsets(String type, long... offsets) {
+		boolean wide = type.equals("co64");
+		ByteBuffer body = ByteBuffer.allocate(8 + offsets.length * (wide ? 8 : 4));
+		body.putInt(0).putInt(offsets.length);
+		for (long offset : offsets) {
+			if (wide) {
+				body.putLong(offset);
+			} else {
+				body.putInt((int) offset);
+			}
+		}
+		return box(type, body.array());
+	}
+
+	private static byte[] track(byte[] table) {
+		return box("trak", box("tkhd", new byte[12]), box("mdia", box("minf", box("stbl", box("stsz", new byte[12]), table))));
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] readAll(Mp4FastStart.Rewrite rewrite) throws Exception {
+		try (InputStream in = rewrite.open()) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static long[] offsets(byte[] file, String type) {
+		String text = new String(file, StandardCharsets.ISO_8859_1);
+		int at = text.indexOf(type) + 4;
+		ByteBuffer buf = ByteBuffer.wrap(file);
+		int count = buf.getInt(at + 4);
+		long[] result = new long[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = type.equals("co64") ? buf.getLong(at + 8 + i * 8) : buf.getInt(at + 8 + i * 4) & 0xffffffffL;
+		}
+		return result;
+	}
+
+	@Test
+	void movesMoovInFrontOfMediaDataAndShiftsChunkOffsets() throws Exception {
+		byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+		byte[] payload = new byte[1000];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) (i * 31);
+		}
+		byte[] mdat = box("mdat", payload);
+		long data = ftyp.length + 8;
+		byte[] moov = box("moov", box("mvhd", new byte[20]),
+			track(chunkOffsets("stco", data, data + 100, data + 900)),
+			track(chunkOffsets("co64", data + 400)));
+		byte[] original = concat(ftyp, mdat, moov);
+
+		Mp4FastStart.Rewrite rewrite = Mp4FastStart.plan(() -> new ByteArrayInputStream(original), original.length);
+		assertNotNull(rewrite);
+		byte[] rewritten = readAll(rewrite);
+		assertEquals(original.length, rewritten.length);
+		assertEquals("moov", new String(rewritten, ftyp.length + 4, 4, StandardCharsets.ISO_8859_1));
+		assertEquals("mdat", new String(rewritten, ftyp.length + moov.length + 4, 4, StandardCharsets.ISO_8859_1));
+
+		long[] before = concat(offsets(original, "stco"), offsets(original, "co64"));
+		long[] after = concat(offsets(rewritten, "stco"), offsets(rewritten, "co64"));
+		for (int i = 0; i < before.length; i++) {
+			assertEquals(before[i] + moov.length, after[i]);
+			assertEquals(original[(int) before[i]], rewritten[(int) after[i]]);
+		}
+	}
+
+	private static long[] concat(long[] a, long[] b) {
+		long[] all = new long[a.length + b.length];
+		System.arraycopy(a, 0, all, 0, a.length);
+		System.arraycopy(b, 0, all, a.length, b.length);
+		return all;
+	}
+
+	@Test
+	void leavesFastStartAndNonMp4FilesAlone() throws Exception {
+		byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+		byte[] moov = box("moov", track(chunkOffsets("stco", 100)));
+		byte[] fastStart = concat(ftyp, moov, box("mdat", new byte[64]));
+		assertNull(Mp4FastStart.plan(() -> new ByteArrayInputStream(fastStart), fastStart.length));
+
+		byte[] webm = new byte[] {0x1a, 0x45, (byte) 0xdf, (byte) 0xa3, 0, 0, 0, 0, 0, 0, 0, 0};
+		assertNull(Mp4FastStart.plan(() -> new ByteArrayInputStream(webm), webm.length));
+
+		byte[] truncated = concat(ftyp, box("mdat", new byte[64]));
+		assertNull(Mp4FastStart.plan(() -> new ByteArrayInputStream(truncated), truncated.length + 10));
+	}
+
+	@Test
+	void stagedUploadsAreRewrittenInStorage() throws Exception {
+		byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+		byte[] mdat = box("mdat", new byte[500]);
+		byte[] moov = box("moov", track(chunkOffsets("stco", ftyp.length + 8)));
+		byte[] original = concat(ftyp, mdat, moov);
+		FileSystemMediaStorage storage = new FileSystemMediaStorage(root.toString());
+		storage.put("incoming/a.mp4", new ByteArrayInputStream(original), original.length, "video/mp4", Map.of());
+		MinioService minioService = new MinioService();
+		ReflectionTestUtils.setField(minioService, "storage", storage);
+
+		MinioService.Staged staged = minioService.fastStart("incoming/a.mp4", original.length, "video/mp4");
+		assertNotEquals("incoming/a.mp4", staged.key());
+		assertEquals(original.length, storage.stat("incoming/a.mp4").size(), "the caller drops the original");
+		byte[] stored;
+		try (InputStream in = storage.get(staged.key(), 0, -1)) {
+			stored = in.readAllBytes();
+		}
+		assertEquals("moov", new String(stored, ftyp.length + 4, 4, StandardCharsets.ISO_8859_1));
+		assertEquals(minioService.sha256Of(staged.key()), staged.sha256());
+
+		// Already fast-start: kept under its key and only hashed
+		MinioService.Staged again = minioService.fastStart(staged.key(), stored.length, "video/mp4");
+		assertEquals(staged, again);
+	}
+}
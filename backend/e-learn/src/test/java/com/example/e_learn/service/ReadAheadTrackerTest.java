@@ -0,0 +1,61 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadAheadTrackerTest {
+
+	private static final ObjectMetadata META = new ObjectMetadata("video.mp4", 10_000, "etag", "video/mp4", null);
+
+	private static MockHttpServletRequest client(String address) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+		request.setRemoteAddr(address);
+		request.addHeader("User-Agent", "player");
+		return request;
+	}
+
+	@Test
+	void readsAheadWhenAClientContinuesWhatItWasServed() {
+		ReadAheadTracker tracker = new ReadAheadTracker(4, 100, 100);
+		MediaBlockCache.ReadAhead first = tracker.record(client("10.0.0.1"), META, 0);
+		assertEquals(0, first.reached(0));
+		first.reached(1000);
+		MediaBlockCache.ReadAhead second = tracker.record(client("10.0.0.1"), META, 1000);
+		assertEquals(4, second.reached(1000));
+		second.reached(2000);
+		assertEquals(4, tracker.record(client("10.0.0.1"), META, 2050).reached(2050));
+		// A seek backwards or far past what was served is not sequential
+		assertEquals(0, tracker.record(client("10.0.0.1"), META, 500).reached(500));
+		assertEquals(0, tracker.record(client("10.0.0.1"), META, 5000).reached(5000));
+	}
+
+	@Test
+	void aSingleOpenEndedStreamReadsAheadOncePastItsFirstBlock() {
+		ReadAheadTracker tracker = new ReadAheadTracker(4, 100, 100);
+		MediaBlockCache.ReadAhead stream = tracker.record(client("10.0.0.1"), META, 0);
+		assertEquals(0, stream.reached(0));
+		assertEquals(0, stream.reached(60));
+		assertEquals(4, stream.reached(100));
+		assertEquals(4, stream.reached(9000));
+	}
+
+	@Test
+	void anAbortedOpenEndedRangeDoesNotMakeTheNextSeekSequential() {
+		ReadAheadTracker tracker = new ReadAheadTracker(4, 100, 100);
+		// bytes=0- asks for the whole object, but the player stops after 40 bytes
+		MediaBlockCache.ReadAhead probe = tracker.record(client("10.0.0.1"), META, 0);
+		probe.reached(0);
+		probe.reached(40);
+		assertEquals(0, tracker.record(client("10.0.0.1"), META, 5000).reached(5000));
+	}
+
+	@Test
+	void tracksClientsSeparately() {
+		ReadAheadTracker tracker = new ReadAheadTracker(4, 100, 100);
+		tracker.record(client("10.0.0.1"), META, 0).reached(1000);
+		assertEquals(0, tracker.record(client("10.0.0.2"), META, 1000).reached(1000));
+		assertEquals(4, tracker.record(client("10.0.0.1"), META, 1000).reached(1000));
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.VideoRepository;
+import com.example.e_learn.service.TranscriptService.Word;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:search;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"transcription.worker.enabled=false",
+	"search.passage-seconds=10"
+})
+class SearchServiceTest {
+
+	@Autowired
+	private SearchService searchService;
+
+	@Autowired
+	private TranscriptStore transcriptStore;
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private VideoRepository videoRepository;
+
+	@Test
+	void ranksLessonsAboveTranscriptsAndPointsIntoTheVideo() {
+		Lesson calculus = new Lesson();
+		calculus.setTitle("Dérivées et intégrales");
+		calculus.setDescription("Introduction au calcul");
+		calculus = lessonRepository.save(calculus);
+		Lesson physics = new Lesson();
+		physics.setTitle("Mécanique");
+		physics.setDescription("Le mouvement et les intégrales de chemin");
+		physics = lessonRepository.save(physics);
+		Video video = new Video();
+		video.setTitle("Cours 1");
+		video.setLesson(physics);
+		video = videoRepository.save(video);
+
+		// Two minutes of speech, the interesting words at 42 s
+		List<Word> words = new ArrayList<>();
+		for (int i = 0; i < 240; i++) {
+			String word = i == 84 ? "intégrales" : i == 85 ? "curvilignes" : "et";
+			words.add(new Word(word, i * 0.5, i * 0.5 + 0.4));
+		}
+		transcriptStore.save(TranscriptionJobService.VIDEO, video.getId(), words);
+
+		SearchService.Page page = searchService.search("Intégrales", 0, 10);
+
+		assertEquals(3, page.hits().size());
+		assertFalse(page.hasMore());
+		assertEquals(calculus.getId(), page.hits().get(0).lessonId(), "title match first");
+		assertEquals(physics.getId(), page.hits().get(1).lessonId(), "then description match");
+		SearchService.Hit spoken = page.hits().get(2);
+		assertEquals(SearchService.TRANSCRIPT_HIT, spoken.type());
+		assertEquals(video.getId(), spoken.videoId());
+		assertEquals("Mécanique", spoken.lessonTitle());
+		assertEquals(42, spoken.second());
+		assertTrue(spoken.snippet().contains("intégrales curvilignes"));
+
+		SearchService.Page paged = searchService.search("intégrales", 1, 2);
+		assertEquals(1, paged.hits().size());
+		assertEquals(SearchService.TRANSCRIPT_HIT, paged.hits().get(0).type());
+
+		// Re-transcribing replaces the passages
+		transcriptStore.save(TranscriptionJobService.VIDEO, video.getId(), List.of(new Word("bonjour", 0, 0.5)));
+		assertEquals(2, searchService.search("intégrales", 0, 10).hits().size());
+		assertEquals(1, searchService.search("bonjour", 0, 10).hits().size());
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.e_learn.service;
+
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StreamingUploadServiceTest {
+
+	private final Map<Integer, byte[]> uploadedParts = new TreeMap<>();
+
+	private StreamingUploadService service(MultipartMinioClient client, long maxBytes) {
+		StreamingUploadService service = new StreamingUploadService(1);
+		ReflectionTestUtils.setField(service, "client", client);
+		ReflectionTestUtils.setField(service, "bucketName", "lesson-videos");
+		ReflectionTestUtils.setField(service, "partSize", 10);
+		ReflectionTestUtils.setField(service, "parallelParts", 2);
+		ReflectionTestUtils.setField(service, "maxBytes", maxBytes);
+		ReflectionTestUtils.setField(service, "slotWaitSeconds", 1L);
+		return service;
+	}
+
+	private MultipartMinioClient client() throws Exception {
+		MultipartMinioClient client = mock(MultipartMinioClient.class);
+		when(client.createUpload(any(), any(), any())).thenReturn(CompletableFuture.completedFuture("upload-1"));
+		when(client.uploadPart(any(), any(), any(), anyInt(), any(), anyInt())).thenAnswer(inv -> {
+			int number = inv.getArgument(3);
+			byte[] data = inv.getArgument(4);
+			synchronized (uploadedParts) {
+				uploadedParts.put(number, Arrays.copyOf(data, (int) inv.getArgument(5)));
+			}
+			return CompletableFuture.completedFuture(new Part(number, "etag-" + number));
+		});
+		ObjectWriteResponse written = mock(ObjectWriteResponse.class);
+		when(written.etag()).thenReturn("etag-3");
+		when(client.completeUpload(any(), any(), any(), any())).thenReturn(CompletableFuture.completedFuture(written));
+		when(client.abortUpload(any(), any(), any())).thenAnswer(inv -> CompletableFuture.completedFuture(null));
+		return client;
+	}
+
+	@Test
+	void splitsTheStreamIntoOrderedParts() throws Exception {
+		MultipartMinioClient client = client();
+		byte[] data = new byte[25];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		StreamingUploadService.Result result = service(client, 1000).upload("video.mp4", "video/mp4", new ByteArrayInputStream(data));
+
+		assertEquals(25, result.size());
+		assertEquals("etag-3", result.etag());
+		ByteArrayOutputStream joined = new ByteArrayOutputStream();
+		uploadedParts.values().forEach(joined::writeBytes);
+		assertArrayEquals(data, joined.toByteArray());
+		assertEquals(3, uploadedParts.size());
+		verify(client).completeUpload(eq("lesson-videos"), eq("video.mp4"), eq("upload-1"),
+			argThat(parts -> parts.length == 3 && parts[2].partNumber() == 3));
+	}
+
+	@Test
+	void abortsOversizedAndEmptyUploads() throws Exception {
+		MultipartMinioClient client = client();
+		ResponseStatusException tooLarge = assertThrows(ResponseStatusException.class, () ->
+			service(client, 15).upload("video.mp4", "video/mp4", new ByteArrayInputStream(new byte[40])));
+		assertEquals(413, tooLarge.getStatusCode().value());
+
+		ResponseStatusException empty = assertThrows(ResponseStatusException.class, () ->
+			service(client, 15).upload("video.mp4", "video/mp4", new ByteArrayInputStream(new byte[0])));
+		assertEquals(400, empty.getStatusCode().value());
+
+		verify(client, times(2)).abortUpload("lesson-videos", "video.mp4", "upload-1");
+		verify(client, never()).completeUpload(any(), any(), any(), any());
+	}
+}
@@ -0,0 +1,28 @@
+package com.example.e_learn.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailServiceTest {
+
+	@Test
+	void mapsEveryIntervalToATileOfItsSheet() {
+		ThumbnailService service = new ThumbnailService();
+		ReflectionTestUtils.setField(service, "intervalSeconds", 30);
+		ReflectionTestUtils.setField(service, "tileWidth", 160);
+		ReflectionTestUtils.setField(service, "tileHeight", 90);
+		ReflectionTestUtils.setField(service, "columns", 2);
+		ReflectionTestUtils.setField(service, "rows", 2);
+
+		String[] cues = service.thumbnailTrack(5).split("\n\n");
+
+		assertEquals(6, cues.length);
+		assertEquals("WEBVTT", cues[0]);
+		assertEquals("00:00:00.000 --> 00:00:30.000\nsprite_000.jpg#xywh=0,0,160,90", cues[1]);
+		assertEquals("00:01:30.000 --> 00:02:00.000\nsprite_000.jpg#xywh=160,90,160,90", cues[4]);
+		// The fifth tile starts the next sheet
+		assertEquals("00:02:00.000 --> 00:02:30.000\nsprite_001.jpg#xywh=0,0,160,90\n", cues[5]);
+	}
+}
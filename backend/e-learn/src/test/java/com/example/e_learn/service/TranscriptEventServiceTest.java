@@ -0,0 +1,27 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.service.TranscriptService.Word;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptEventServiceTest {
+
+	private static final CompactTranscript TRANSCRIPT = CompactTranscript.of(List.of(
+		new Word("bonjour", 0.2, 0.6), new Word("tout", 10.1, 10.4), new Word("le", 20.0, 20.2), new Word("monde", 29.5, 30.2)));
+
+	@Test
+	void theFinalEventCarriesTheWordsOfSegmentsNeverSent() {
+		// Segments 0 and 2 were sent; segment 1 was deleted with the job's success before the next poll
+		List<Word> rest = TranscriptEventService.unsent(TRANSCRIPT, List.of(new double[] {0, 10}, new double[] {20, 30}));
+		assertEquals(List.of(new Word("tout", 10.1, 10.4)), rest);
+	}
+
+	@Test
+	void unsegmentedJobsGetTheWholeTranscript() {
+		assertEquals(4, TranscriptEventService.unsent(TRANSCRIPT, List.of()).size());
+		assertTrue(TranscriptEventService.unsent(null, List.of()).isEmpty());
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.service.TranscriptService.Segment;
+import com.example.e_learn.service.TranscriptService.Word;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptServiceTest {
+
+	@Test
+	void plansOverlappingSegmentsCoveringTheWholeVideo() {
+		List<Segment> segments = TranscriptService.plan(250, 120, 4);
+
+		assertEquals(List.of(new Segment(0, 124), new Segment(120, 124), new Segment(240, 10)), segments);
+		assertEquals(List.of(new Segment(0, 122)), TranscriptService.plan(122, 120, 4));
+		assertEquals(List.of(new Segment(0, 0)), TranscriptService.plan(0, 120, 4));
+	}
+
+	@Test
+	void mergesSegmentsInMediaTimeWithoutRepeatingTheOverlap() {
+		List<Segment> segments = List.of(new Segment(0, 14), new Segment(10, 10));
+		// The overlap 10..14 is heard by both segments and cut at 12
+		List<Word> first = List.of(
+				new Word("bonjour", 1.0, 1.5),
+				new Word("la", 10.2, 10.4),
+				new Word("classe", 11.8, 12.3),
+				new Word("aujourd'hui", 12.5, 13.1),
+				new Word("nous", 13.9, 14.0));
+		List<Word> second = List.of(
+				new Word("sse", 0.0, 0.3),
+				new Word("la", 0.2, 0.4),
+				new Word("classe", 2.05, 2.3),
+				new Word("aujourd'hui", 2.5, 3.1),
+				new Word("nous", 3.3, 3.6),
+				new Word("parlons", 4.0, 4.6));
+
+		List<Word> merged = TranscriptService.merge(segments, List.of(first, second));
+
+		assertEquals(List.of("bonjour", "la", "classe", "aujourd'hui", "nous", "parlons"),
+				merged.stream().map(Word::word).toList());
+		assertEquals(12.5, merged.get(3).start(), 1e-9);
+		assertEquals(14.6, merged.get(5).end(), 1e-9);
+	}
+
+	private static ByteArrayInputStream json(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void streamsWordsFromTheAsrAnswer() throws IOException {
+		TranscriptService service = new TranscriptService();
+		List<Word> words = new ArrayList<>();
+
+		service.parseWords(json("{\"model\": {\"name\": \"fr\"}, \"words\": ["
+				+ "{\"word\": \"bonjour\", \"start\": 0.5, \"end\": 0.9, \"conf\": 1.0},"
+				+ "{\"conf\": 0.8, \"end\": 1.4, \"start\": 1.0, \"word\": \"à\"}]}"),
+				false, (word, start, end) -> words.add(new Word(word, start, end)));
+
+		assertEquals(List.of(new Word("bonjour", 0.5, 0.9), new Word("à", 1.0, 1.4)), words);
+	}
+
+	@Test
+	void acceptsPlainTextOnlyForUnsegmentedRequests() throws IOException {
+		TranscriptService service = new TranscriptService();
+		List<String> words = new ArrayList<>();
+
+		service.parseWords(json("{\"text\": \" bonjour  tout le monde \"}"), true, (word, start, end) -> words.add(word));
+		assertEquals(List.of("bonjour", "tout", "le", "monde"), words);
+
+		// Timed words replace the text, whichever comes first
+		words.clear();
+		service.parseWords(json("{\"text\": \"bonjour tout\", \"words\": [{\"word\": \"bonjour\", \"start\": 0.5, \"end\": 0.9}]}"),
+				true, (word, start, end) -> words.add(word + "@" + start));
+		assertEquals(List.of("bonjour@0.5"), words);
+
+		assertThrows(IOException.class, () -> service.parseWords(json("{\"text\": \"bonjour\"}"), false, (word, start, end) -> {}));
+		assertThrows(IOException.class, () -> service.parseWords(json(""), true, (word, start, end) -> {}));
+		assertThrows(IOException.class, () -> service.parseWords(json("{\"error\": \"ffmpeg failed\"}"), true, (word, start, end) -> {}));
+	}
+}
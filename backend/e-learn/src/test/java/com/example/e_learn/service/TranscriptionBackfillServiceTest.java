@@ -0,0 +1,163 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.dto.CreateBackfillRequest;
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.TranscriptionBackfill;
+import com.example.e_learn.model.TranscriptionJob;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.TranscriptionBackfillRepository;
+import com.example.e_learn.repository.TranscriptionJobRepository;
+import com.example.e_learn.service.TranscriptService.Word;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:transcriptionbackfill;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"transcription.worker.enabled=false",
+	"asr.model-version=model-2"
+})
+class TranscriptionBackfillServiceTest {
+
+	@Autowired
+	private TranscriptionBackfillService backfills;
+
+	@Autowired
+	private TranscriptionBackfillRepository backfillRepository;
+
+	@Autowired
+	private TranscriptionJobService jobs;
+
+	@Autowired
+	private TranscriptionJobRepository jobRepository;
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private TranscriptStore transcriptStore;
+
+	@MockitoBean
+	private TranscriptService transcriptService;
+
+	private Long lesson(String title) {
+		Lesson lesson = new Lesson();
+		lesson.setTitle(title);
+		lesson.setVideoUrl("https://videos.example.com/" + title + ".mp4");
+		return lessonRepository.save(lesson).getId();
+	}
+
+	private CreateBackfillRequest request(String... reasons) {
+		CreateBackfillRequest request = new CreateBackfillRequest();
+		request.reasons = List.of(reasons);
+		request.targets = List.of(TranscriptionJobService.LESSON);
+		request.concurrency = 1;
+		request.ratePerMinute = 600;
+		return request;
+	}
+
+	private List<Long> jobsOf(Long backfillId) {
+		return jobRepository.findAll().stream()
+			.filter(j -> backfillId.equals(j.getBackfillId()))
+			.map(TranscriptionJob::getTargetId)
+			.toList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> jobCounts(Long backfillId) {
+		return (Map<String, Object>) backfills.progress(backfillId).orElseThrow().get("jobs");
+	}
+
+	@Test
+	void feedsCandidatesUnderItsLimitsAfterInteractiveJobs() throws Exception {
+		CompactTranscript words = CompactTranscript.of(List.of(new Word("bonjour", 0.2, 0.6)));
+		Long missing = lesson("missing");
+		Long current = lesson("current");
+		transcriptStore.save(TranscriptionJobService.LESSON, current, words, "model-2");
+		Long stale = lesson("stale");
+		transcriptStore.save(TranscriptionJobService.LESSON, stale, words, "model-1");
+
+		TranscriptionBackfill run = backfills.start(request("missing"));
+		assertThrows(ResponseStatusException.class, () -> backfills.start(request("stale")), "one run at a time");
+		backfills.feed();
+		backfills.feed();
+		assertEquals(List.of(missing), jobsOf(run.getId()), "only the lesson without a transcript, one at a time");
+
+		// Paused, its queued job is not claimed; an interactive job comes first once resumed
+		backfills.pause(run.getId());
+		assertTrue(jobs.claim(10).isEmpty());
+		backfills.resume(run.getId());
+		TranscriptionJob interactive = jobs.enqueue(TranscriptionJobService.LESSON, lesson("interactive"));
+		assertEquals(List.of(interactive.getId()), jobs.claim(10, 0).stream().map(TranscriptionJob::getId).toList());
+		List<TranscriptionJob> claimed = jobs.claim(10, 1);
+		assertEquals(List.of(missing), claimed.stream().map(TranscriptionJob::getTargetId).toList());
+
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenReturn(words);
+		jobs.run(claimed.get(0));
+		assertEquals(1L, jobCounts(run.getId()).get("succeeded"));
+
+		backfills.feed();
+		backfills.feed();
+		assertEquals(TranscriptionBackfillService.COMPLETED, backfillRepository.findById(run.getId()).orElseThrow().getStatus());
+
+		// A stale run picks up the transcript left by the previous model only
+		TranscriptionBackfill restale = backfills.start(request("stale"));
+		backfills.feed();
+		assertEquals(List.of(stale), jobsOf(restale.getId()));
+		backfills.cancel(restale.getId());
+		assertEquals(1L, jobCounts(restale.getId()).get("failed"));
+	}
+
+	@Test
+	void interactiveTriggersTakeJobsOverAndCancelledJobsAreNotRetried() throws Exception {
+		CompactTranscript words = CompactTranscript.of(List.of(new Word("bonjour", 0.2, 0.6)));
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenReturn(words);
+		when(transcriptService.transcribe(contains("flaky"), anyInt(), any())).thenThrow(new IOException("ASR unavailable"));
+		Long flaky = lesson("flaky");
+		Long waiting = lesson("waiting");
+		CreateBackfillRequest request = request("missing");
+		request.concurrency = 2;
+		request.ratePerMinute = 60_000;
+		TranscriptionBackfill run = backfills.start(request);
+		backfills.feed();
+		Thread.sleep(5);
+		backfills.feed();
+		assertEquals(List.of(flaky, waiting), jobsOf(run.getId()));
+		List<TranscriptionJob> running = jobs.claim(1, 1);
+		assertEquals(List.of(flaky), running.stream().map(TranscriptionJob::getTargetId).toList());
+
+		// A trigger for the lesson whose job waits in the paused run takes the job over
+		backfills.pause(run.getId());
+		TranscriptionJob promoted = jobs.enqueue(TranscriptionJobService.LESSON, waiting);
+		assertNull(promoted.getBackfillId());
+		List<TranscriptionJob> interactive = jobs.claim(10, 0);
+		assertEquals(List.of(promoted.getId()), interactive.stream().map(TranscriptionJob::getId).toList());
+		jobs.run(interactive.get(0));
+		assertEquals(TranscriptionJobService.SUCCEEDED, jobRepository.findById(promoted.getId()).orElseThrow().getStatus());
+
+		// The attempt running when the run is cancelled fails for good instead of waiting in the queue
+		backfills.cancel(run.getId());
+		jobs.run(running.get(0));
+		assertEquals(TranscriptionJobService.FAILED, jobRepository.findById(running.get(0).getId()).orElseThrow().getStatus());
+		assertTrue(jobRepository.findActive(TranscriptionJobService.LESSON, flaky).isEmpty());
+		transcriptStore.save(TranscriptionJobService.LESSON, flaky, words, "model-2");
+	}
+}
@@ -0,0 +1,218 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.Lesson;
+import com.example.e_learn.model.MediaObject;
+import com.example.e_learn.model.TranscriptionJob;
+import com.example.e_learn.repository.LessonRepository;
+import com.example.e_learn.repository.TranscriptSegmentRepository;
+import com.example.e_learn.repository.TranscriptionJobRepository;
+import com.example.e_learn.service.TranscriptService.Segment;
+import com.example.e_learn.service.TranscriptService.SegmentListener;
+import com.example.e_learn.service.TranscriptService.Word;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:transcriptionjobs;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+	"spring.datasource.driver-class-name=org.h2.Driver",
+	"spring.datasource.username=sa",
+	"spring.datasource.password=",
+	"spring.jpa.hibernate.ddl-auto=update",
+	"spring.flyway.enabled=false",
+	"transcription.worker.enabled=false",
+	"transcription.max-attempts=2"
+})
+class TranscriptionJobServiceTest {
+
+	@Autowired
+	private TranscriptionJobService jobs;
+
+	@Autowired
+	private TranscriptionJobRepository jobRepository;
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private TranscriptSegmentRepository segmentRepository;
+
+	@Autowired
+	private TranscriptStore transcriptStore;
+
+	@MockitoBean
+	private TranscriptService transcriptService;
+
+	private Long lesson(String title) {
+		Lesson lesson = new Lesson();
+		lesson.setTitle(title);
+		lesson.setVideoUrl("https://videos.example.com/" + title + ".mp4");
+		return lessonRepository.save(lesson).getId();
+	}
+
+	@Test
+	void claimsEachJobOnceAndStoresTheTranscript() throws Exception {
+		Long lessonId = lesson("claimed");
+		TranscriptionJob job = jobs.enqueue(TranscriptionJobService.LESSON, lessonId);
+		// A second trigger while the job is pending returns the same job
+		assertEquals(job.getId(), jobs.enqueue(TranscriptionJobService.LESSON, lessonId).getId());
+
+		List<TranscriptionJob> claimed = jobs.claim(10);
+		assertEquals(List.of(job.getId()), claimed.stream().map(TranscriptionJob::getId).toList());
+		assertTrue(jobs.claim(10).isEmpty(), "a running job with a live lease is not claimed again");
+
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenReturn(CompactTranscript.of(List.of(
+			new Word("bonjour", 0.2, 0.6), new Word("tout", 0.7, 0.9), new Word("le", 0.9, 1.0), new Word("monde", 1.0, 1.4))));
+		jobs.run(claimed.get(0));
+
+		TranscriptionJob done = jobRepository.findById(job.getId()).orElseThrow();
+		assertEquals(TranscriptionJobService.SUCCEEDED, done.getStatus());
+		assertNull(done.getLockedBy());
+		assertEquals("bonjour tout le monde", transcriptStore.load(TranscriptionJobService.LESSON, lessonId).text());
+	}
+
+	@Test
+	void concurrentTriggersShareOneActiveJob() throws Exception {
+		Long lessonId = lesson("contended");
+		CountDownLatch start = new CountDownLatch(1);
+		List<CompletableFuture<Long>> triggers = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			triggers.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					assertTrue(start.await(5, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return jobs.enqueue(TranscriptionJobService.LESSON, lessonId).getId();
+			}));
+		}
+		start.countDown();
+		Long first = triggers.get(0).get(10, TimeUnit.SECONDS);
+		for (CompletableFuture<Long> trigger : triggers) {
+			assertEquals(first, trigger.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(1, jobRepository.findActive(TranscriptionJobService.LESSON, lessonId).size());
+	}
+
+	@Test
+	void retriesWithBackoffThenFails() throws Exception {
+		Long lessonId = lesson("flaky");
+		TranscriptionJob job = jobs.enqueue(TranscriptionJobService.LESSON, lessonId);
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenThrow(new IOException("ASR unavailable"));
+
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(job.getId())).findFirst().orElseThrow());
+		TranscriptionJob retry = jobRepository.findById(job.getId()).orElseThrow();
+		assertEquals(TranscriptionJobService.QUEUED, retry.getStatus());
+		assertEquals("ASR unavailable", retry.getLastError());
+		assertTrue(retry.getNextAttemptAt().isAfter(Instant.now().plusSeconds(20)));
+
+		// Due again: the second (last) attempt fails for good
+		retry.setNextAttemptAt(Instant.now().minusSeconds(1));
+		jobRepository.save(retry);
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(job.getId())).findFirst().orElseThrow());
+		TranscriptionJob failed = jobRepository.findById(job.getId()).orElseThrow();
+		assertEquals(TranscriptionJobService.FAILED, failed.getStatus());
+		assertEquals(2, failed.getAttempts());
+		assertNotNull(failed.getFinishedAt());
+	}
+
+	@Test
+	void resumesFromTheSegmentsOfTheFailedAttempt() throws Exception {
+		Long lessonId = lesson("resumed");
+		TranscriptionJob job = jobs.enqueue(TranscriptionJobService.LESSON, lessonId);
+		List<Segment> plan = List.of(new Segment(0, 124), new Segment(120, 30));
+		List<Word> first = List.of(new Word("bonjour", 1.0, 1.4));
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenAnswer(call -> {
+			SegmentListener listener = call.getArgument(2);
+			listener.planned(plan);
+			listener.recognized(0, plan.get(0), first);
+			throw new IOException("connection reset");
+		});
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(job.getId())).findFirst().orElseThrow());
+		assertEquals(List.of(0), segmentRepository.findIndexes(job.getId()));
+		assertEquals(2, jobRepository.findById(job.getId()).orElseThrow().getSegments());
+
+		TranscriptionJob retry = jobRepository.findById(job.getId()).orElseThrow();
+		retry.setNextAttemptAt(Instant.now().minusSeconds(1));
+		jobRepository.save(retry);
+		doAnswer(call -> {
+			SegmentListener listener = call.getArgument(2);
+			listener.planned(plan);
+			assertEquals(first, listener.resume(0, plan.get(0)));
+			assertNull(listener.resume(1, plan.get(1)));
+			return CompactTranscript.of(first);
+		}).when(transcriptService).transcribe(anyString(), anyInt(), any());
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(job.getId())).findFirst().orElseThrow());
+
+		assertEquals(TranscriptionJobService.SUCCEEDED, jobRepository.findById(job.getId()).orElseThrow().getStatus());
+		assertTrue(segmentRepository.findIndexes(job.getId()).isEmpty(), "segments are dropped once the transcript is stored");
+	}
+
+	@Test
+	void reusesTheTranscriptOfIdenticalMedia() throws Exception {
+		String key = ContentStore.keyFor("ab".repeat(32));
+		Long first = lesson("original");
+		Long copy = lesson("copy");
+		for (Long id : List.of(first, copy)) {
+			Lesson lesson = lessonRepository.findById(id).orElseThrow();
+			lesson.setVideoMedia(new MediaObject(key, 1024L, "etag", "video/mp4", Instant.now()));
+			lessonRepository.save(lesson);
+		}
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenReturn(CompactTranscript.of(List.of(
+			new Word("déjà", 0.1, 0.5), new Word("vu", 0.5, 0.8))));
+		TranscriptionJob job = jobs.enqueue(TranscriptionJobService.LESSON, first);
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(job.getId())).findFirst().orElseThrow());
+
+		// The same recording attached to another lesson is answered without the ASR
+		TranscriptionJob reused = jobs.enqueue(TranscriptionJobService.LESSON, copy);
+		assertEquals(TranscriptionJobService.SUCCEEDED, reused.getStatus());
+		assertEquals(Boolean.TRUE, reused.getReused());
+		assertEquals("déjà vu", transcriptStore.load(TranscriptionJobService.LESSON, copy).text());
+		verify(transcriptService, times(1)).transcribe(anyString(), anyInt(), any());
+
+		// A refresh recognizes it again
+		TranscriptionJob refreshed = jobs.enqueue(TranscriptionJobService.LESSON, copy, true);
+		assertEquals(TranscriptionJobService.QUEUED, refreshed.getStatus());
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(refreshed.getId())).findFirst().orElseThrow());
+		verify(transcriptService, times(2)).transcribe(anyString(), anyInt(), any());
+		assertNull(jobRepository.findById(refreshed.getId()).orElseThrow().getReused());
+	}
+
+	@Test
+	void sendsStoredMediaToTheAsrOnTheInternalHost() throws Exception {
+		Long lessonId = lesson("stored");
+		Lesson lesson = lessonRepository.findById(lessonId).orElseThrow();
+		lesson.setVideoMedia(new MediaObject(ContentStore.keyFor("cd".repeat(32)), 1024L, "etag", "video/mp4", Instant.now()));
+		lessonRepository.save(lesson);
+		List<String> urls = new ArrayList<>();
+		when(transcriptService.transcribe(anyString(), anyInt(), any())).thenAnswer(call -> {
+			urls.add(call.getArgument(0));
+			return CompactTranscript.of(List.of(new Word("interne", 0.1, 0.5)));
+		});
+		TranscriptionJob job = jobs.enqueue(TranscriptionJobService.LESSON, lessonId);
+		jobs.run(jobs.claim(10).stream().filter(j -> j.getId().equals(job.getId())).findFirst().orElseThrow());
+
+		// Signed for minio.url, so the ASR can fetch it without rewriting the host
+		assertEquals(1, urls.size());
+		assertTrue(urls.get(0).startsWith("http://minio:9000/"), urls.get(0));
+		assertTrue(urls.get(0).contains("X-Amz-Signature="), urls.get(0));
+	}
+}
@@ -0,0 +1,168 @@
+package com.example.e_learn.service;
+
+import com.example.e_learn.model.UploadSession;
+import com.example.e_learn.model.Video;
+import com.example.e_learn.repository.UploadSessionRepository;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UploadSessionServiceTest {
+
+	private static final int MIN = UploadSessionService.MIN_CHUNK_BYTES;
+
+	private final UploadSession session = new UploadSession();
+	private final MultipartMinioClient client = mock(MultipartMinioClient.class);
+	private final UploadSessionRepository repository = mock(UploadSessionRepository.class);
+	private final MinioService minioService = mock(MinioService.class);
+	private final VideoService videoService = mock(VideoService.class);
+	private final List<Runnable> background = new ArrayList<>();
+
+	private UploadSessionService service() throws Exception {
+		session.setId("s1");
+		session.setObjectKey("video.mp4");
+		session.setMultipartUploadId("upload-1");
+		session.setTotalBytes(MIN + 100);
+		session.setStatus(UploadSessionService.ACTIVE);
+
+		when(repository.findById("s1")).thenReturn(Optional.of(session));
+		when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+		when(client.uploadPart(any(), any(), any(), anyInt(), any(), anyInt())).thenAnswer(inv ->
+			CompletableFuture.completedFuture(new Part(inv.getArgument(3), "etag")));
+
+		UploadSessionService service = new UploadSessionService(mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(service, "repository", repository);
+		ReflectionTestUtils.setField(service, "client", client);
+		ReflectionTestUtils.setField(service, "minioService", minioService);
+		ReflectionTestUtils.setField(service, "videoService", videoService);
+		ReflectionTestUtils.setField(service, "mediaProbeService", mock(MediaProbeService.class));
+		ReflectionTestUtils.setField(service, "contentStore", mock(ContentStore.class));
+		ReflectionTestUtils.setField(service, "executor", (TaskExecutor) background::add);
+		ReflectionTestUtils.setField(service, "streamingUploadService", new StreamingUploadService(1));
+		ReflectionTestUtils.setField(service, "bucketName", "lesson-videos");
+		ReflectionTestUtils.setField(service, "maxChunkBytes", 2 * MIN);
+		return service;
+	}
+
+	@Test
+	void appendsChunksAsConsecutiveParts() throws Exception {
+		UploadSessionService service = service();
+
+		service.appendChunk("s1", 0, MIN, new ByteArrayInputStream(new byte[MIN]));
+		service.appendChunk("s1", MIN, 100, new ByteArrayInputStream(new byte[100]));
+
+		assertEquals(MIN + 100, session.getOffsetBytes());
+		assertEquals(2, session.getPartCount());
+		verify(client).uploadPart(eq("lesson-videos"), eq("video.mp4"), eq("upload-1"), eq(1), any(), eq(MIN));
+		verify(client).uploadPart(eq("lesson-videos"), eq("video.mp4"), eq("upload-1"), eq(2), any(), eq(100));
+	}
+
+	@Test
+	void rejectsWrongOffsetsAndIncompleteChunks() throws Exception {
+		UploadSessionService service = service();
+
+		ResponseStatusException wrongOffset = assertThrows(ResponseStatusException.class, () ->
+			service.appendChunk("s1", 10, 100, new ByteArrayInputStream(new byte[100])));
+		assertEquals(409, wrongOffset.getStatusCode().value());
+
+		ResponseStatusException tooSmall = assertThrows(ResponseStatusException.class, () ->
+			service.appendChunk("s1", 0, 100, new ByteArrayInputStream(new byte[100])));
+		assertEquals(400, tooSmall.getStatusCode().value());
+
+		// The connection dropped mid-chunk: nothing is stored and the offset stays put
+		ResponseStatusException truncated = assertThrows(ResponseStatusException.class, () ->
+			service.appendChunk("s1", 0, MIN, new ByteArrayInputStream(new byte[MIN - 1])));
+		assertEquals(400, truncated.getStatusCode().value());
+
+		assertEquals(0, session.getOffsetBytes());
+		verify(client, never()).uploadPart(any(), any(), any(), anyInt(), any(), anyInt());
+	}
+
+	private void uploaded() {
+		session.setOffsetBytes(session.getTotalBytes());
+		session.setPartCount(2);
+		session.setLessonId(7L);
+		session.setFilename("video.mp4");
+		session.setContentType("video/mp4");
+	}
+
+	private static UploadedObject object(String key) {
+		return new UploadedObject("/media/" + key, new ObjectMetadata(key, MIN + 100, "etag", "video/mp4", Instant.EPOCH), "lesson-videos");
+	}
+
+	@Test
+	void onlyTheFirstFinalizeCallStartsTheBackgroundWork() throws Exception {
+		UploadSessionService service = service();
+		uploaded();
+		when(repository.startFinalizing(eq("s1"), any())).thenAnswer(inv -> {
+			session.setStatus(UploadSessionService.FINALIZING);
+			return 1;
+		}).thenReturn(0);
+
+		assertEquals(UploadSessionService.FINALIZING, service.finalizeUpload("s1").getStatus());
+		assertEquals(UploadSessionService.FINALIZING, service.finalizeUpload("s1").getStatus());
+		assertEquals(1, background.size(), "nothing is read back on the request thread");
+		verify(repository, times(1)).startFinalizing(eq("s1"), any());
+		verify(minioService, never()).fastStart(any(), anyLong(), any());
+	}
+
+	@Test
+	void finalizationResumesAfterItsLastRecordedStep() throws Exception {
+		UploadSessionService service = service();
+		uploaded();
+		session.setStatus(UploadSessionService.FINALIZING);
+		// Completed, rewritten and hashed before the previous attempt stopped
+		session.setStagedKey("incoming/fast_video.mp4");
+		session.setSha256("abc");
+		when(minioService.exists("incoming/fast_video.mp4")).thenReturn(true);
+		when(minioService.adopt("incoming/fast_video.mp4", "abc", MIN + 100, "video/mp4")).thenReturn(object("sha256/abc"));
+		Video video = new Video();
+		video.setId(42L);
+		when(videoService.createVideoForLesson(eq(7L), eq("video.mp4"), any(), any(), any(), anyInt())).thenReturn(video);
+
+		service.complete("s1");
+
+		verify(client, never()).completeUpload(any(), any(), any(), any());
+		verify(minioService, never()).fastStart(any(), anyLong(), any());
+		verify(minioService).deleteObject("video.mp4");
+		assertEquals("sha256/abc", session.getAdoptedKey());
+		assertEquals(UploadSessionService.COMPLETED, session.getStatus());
+		assertEquals(42L, session.getVideoId());
+
+		// Finalizing again returns the session and creates nothing more
+		assertEquals(42L, service.finalizeUpload("s1").getVideoId());
+		service.complete("s1");
+		verify(videoService, times(1)).createVideoForLesson(any(), any(), any(), any(), any(), anyInt());
+	}
+
+	@Test
+	void aFinalizationTakenOverElsewhereStopsAtItsNextSave() throws Exception {
+		UploadSessionService service = service();
+		uploaded();
+		session.setStatus(UploadSessionService.FINALIZING);
+		when(minioService.exists("video.mp4")).thenReturn(true);
+		when(minioService.fastStart("video.mp4", MIN + 100, "video/mp4")).thenReturn(new MinioService.Staged("video.mp4", "abc"));
+		when(repository.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(UploadSession.class, "s1"));
+
+		service.complete("s1");
+
+		verify(minioService, never()).adopt(any(), any(), anyLong(), any());
+		verify(videoService, never()).createVideoForLesson(any(), any(), any(), any(), any(), anyInt());
+		assertEquals(UploadSessionService.FINALIZING, session.getStatus());
+	}
+}
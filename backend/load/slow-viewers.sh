@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Holds N rate-limited video streams open (slow mobile viewers) and meanwhile
+# measures latency of a JSON endpoint. Run once with the backend started with
+# MEDIA_STREAM_NON_BLOCKING=true (default) and once with false to compare the
+# non-blocking writer with blocking per-stream threads.
+#
+# usage: ./slow-viewers.sh <lessonId> [viewers=400] [rate=200k] [samples=200]
+set -euo pipefail
+
+BASE=${BASE:-http://localhost:8080}
+LESSON=${1:?lesson id with a video}
+VIEWERS=${2:-400}
+RATE=${3:-200k}
+SAMPLES=${4:-200}
+
+pids=()
+cleanup() { kill "${pids[@]}" 2>/dev/null || true; }
+trap cleanup EXIT
+
+echo "Starting $VIEWERS viewers at $RATE/s on lesson $LESSON"
+for _ in $(seq "$VIEWERS"); do
+  curl -s -o /dev/null --limit-rate "$RATE" -H 'Range: bytes=0-' "$BASE/api/lessons/$LESSON/stream" &
+  pids+=($!)
+done
+sleep 5
+
+echo "Sampling $BASE/api/specializations ($SAMPLES requests)"
+for _ in $(seq "$SAMPLES"); do
+  curl -s -o /dev/null -w '%{http_code} %{time_total}\n' --max-time 30 "$BASE/api/specializations"
+done | awk '
+  { codes[$1]++; t[NR] = $2 }
+  END {
+    n = asort(t)
+    printf "status codes:"; for (c in codes) printf " %s=%d", c, codes[c]; printf "\n"
+    printf "latency p50=%.3fs p95=%.3fs p99=%.3fs max=%.3fs\n", t[int(n*0.5)], t[int(n*0.95)], t[int(n*0.99)], t[n]
+  }'
+
+# Threads in the JVM (Tomcat + media pools); compare between the two modes
+if pid=$(pgrep -f 'e-learn.*\.jar|ELearnApplication' | head -1); then
+  echo "JVM threads: $(ls /proc/"$pid"/task | wc -l)"
+fi
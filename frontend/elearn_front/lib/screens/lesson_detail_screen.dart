@@ -33,6 +33,7 @@ class _LessonDetailScreenState extends State<LessonDetailScreen> {
     currentLesson = widget.lesson;
     _loadVideo();
     _parseTranscript();
+    _refreshLesson(); // lessons from the list come without their transcript
     _checkEnrollment();
   }
 
@@ -92,11 +92,27 @@ class LessonService {
     );
     if (response.statusCode == 200) {
       final data = jsonDecode(response.body);
+      // The transcript is not part of the lesson JSON; it is served on its own
+      data['transcript'] = await fetchTranscript(lessonId, context);
       return Lesson.fromJson(data);
     }
     return null;
   }
 
+  // Word list as JSON ('[{"word": ..., "start": ..., "end": ...}]'), or plain text for old lessons
+  static Future<String?> fetchTranscript(int lessonId, BuildContext context) async {
+    final authService = Provider.of<AuthService>(context, listen: false);
+    if (!authService.isAuthenticated) return null;
+    final response = await http.get(
+      Uri.parse('http://localhost:8080/api/lessons/$lessonId/transcript'),
+      headers: {'Authorization': 'Bearer ${authService.jwt}'},
+    );
+    if (response.statusCode == 200) {
+      return utf8.decode(response.bodyBytes);
+    }
+    return null;
+  }
+
   static Future<bool> triggerTranscript(int lessonId, BuildContext context) async {
     final authService = Provider.of<AuthService>(context, listen: false);
     if (!authService.isAuthenticated) return false;
@@ -104,7 +120,8 @@ class LessonService {
       Uri.parse('http://localhost:8080/api/lessons/$lessonId/transcript'),
       headers: {'Authorization': 'Bearer ${authService.jwt}'},
     );
-    return response.statusCode == 200;
+    // 202: the transcription was queued; the lesson is refreshed until it appears
+    return response.statusCode == 200 || response.statusCode == 202;
   }
 
   static Future<bool> addLesson(BuildContext ctx, String title, String desc, String specialization, int duration, List<PlatformFile> videoFiles) async {
@@ -1,6 +1,7 @@
 import os
 import json
 import subprocess
+import tempfile
 import requests
 from flask import Flask, request, jsonify
 from websocket import create_connection, WebSocketConnectionClosedException
@@ -15,13 +16,22 @@ def recognize():
     video_url = data.get('videoUrl')
     if not video_url:
         return jsonify({'error': 'videoUrl required'}), 400
-    if "localhost:9000" in video_url:
-        video_url = video_url.replace("localhost:9000", "minio:9000")
+    # Optional segment in seconds; word times are relative to its start
+    start = data.get('start')
+    duration = data.get('duration')
 
+    # Segments are transcribed concurrently, so each request gets its own file
+    fd, audio_path = tempfile.mkstemp(suffix='.pcm')
+    os.close(fd)
     try:
-        audio_path = '/tmp/audio.wav'
-        cmd = [
-            'ffmpeg', '-y', '-i', video_url,
+        cmd = ['ffmpeg', '-y']
+        if start is not None:
+            # Before -i, so ffmpeg seeks the input instead of decoding up to the start
+            cmd += ['-ss', str(float(start))]
+        if duration is not None:
+            cmd += ['-t', str(float(duration))]
+        cmd += [
+            '-i', video_url,
             '-ac', '1', '-ar', '16000', '-f', 's16le', '-acodec', 'pcm_s16le', audio_path
         ]
         subprocess.run(cmd, check=True, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
@@ -55,6 +65,8 @@ def recognize():
 
     except Exception as e:
         return jsonify({'error': str(e), 'words': []}), 500
+    finally:
+        os.remove(audio_path)
 
 if __name__ == '__main__':
-    app.run(host='0.0.0.0', port=8000)
+    app.run(host='0.0.0.0', port=8000, threaded=True)